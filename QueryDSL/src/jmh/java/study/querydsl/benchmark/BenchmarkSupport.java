@@ -0,0 +1,85 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import study.querydsl.QueryDslApplication;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 벤치마크 공통 - 메모리 H2 로 애플리케이션을 띄우고 데이터를 적재한다.
+ */
+final class BenchmarkSupport {
+
+	private static final int TEAM_COUNT = 10;
+	private static final int BATCH_SIZE = 100;
+
+	private BenchmarkSupport() {
+	}
+
+	/**
+	 * 웹 서버, SQL 로그, P6Spy, 2차 캐시 없이 쿼리 비용만 측정되도록 띄운다.
+	 */
+	static ConfigurableApplicationContext start(String... args) {
+
+		String[] defaults = {
+				"--spring.profiles.active=jmh",
+				"--spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1",
+				"--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+				"--spring.jpa.properties.hibernate.cache.use_query_cache=false",
+				"--decorator.datasource.enabled=false",
+				"--querydsl.sql-log.enabled=false"
+		};
+
+		String[] merged = new String[defaults.length + args.length];
+		System.arraycopy(defaults, 0, merged, 0, defaults.length);
+		System.arraycopy(args, 0, merged, defaults.length, args.length);
+
+		return new SpringApplicationBuilder(QueryDslApplication.class)
+				.web(WebApplicationType.NONE)
+				.logStartupInfo(false)
+				.run(merged);
+
+	}
+
+	static void seed(EntityManagerFactory emf, int rowCount) {
+
+		EntityManager em = emf.createEntityManager();
+
+		try {
+
+			em.getTransaction().begin();
+
+			Long[] teamIds = new Long[TEAM_COUNT];
+			for ( int i=0; i<TEAM_COUNT; i++ ) {
+				Team team = new Team("team" + i);
+				em.persist(team);
+				teamIds[i] = team.getId();
+			}
+
+			for ( int i=0; i<rowCount; i++ ) {
+
+				Member member = new Member("member" + i, i % 100);
+				member.setTeam(em.getReference(Team.class, teamIds[i % TEAM_COUNT]));
+				em.persist(member);
+
+				if ( (i + 1) % BATCH_SIZE == 0 ) {
+					em.flush();
+					em.clear();
+				}
+
+			}
+
+			em.getTransaction().commit();
+
+		} finally {
+			em.close();
+		}
+
+	}
+
+}
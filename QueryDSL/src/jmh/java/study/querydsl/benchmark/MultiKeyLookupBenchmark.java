@@ -0,0 +1,118 @@
+package study.querydsl.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+
+/**
+ * 키마다 findById/findByUsername_QueryDsl 을 반복하는 경우와 findAllByIds/findAllByUsernames (in 절 묶음) 비교
+ *
+ * ./gradlew jmh -PjmhIncludes=MultiKeyLookupBenchmark -PjmhRows=10000,100000
+ * keyCount 는 일부러 2의 거듭제곱이 아닌 값을 섞었다 (in 절 padding)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiKeyLookupBenchmark {
+
+	@Param({"10000"})
+	int rowCount;
+
+	@Param({"10", "100", "1000"})
+	int keyCount;
+
+	private ConfigurableApplicationContext context;
+	private MemberJpaRepository memberJpaRepository;
+	private final List<Long> ids = new ArrayList<>();
+	private final List<String> usernames = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		context = BenchmarkSupport.start();
+
+		EntityManagerFactory emf = context.getBean(EntityManagerFactory.class);
+		BenchmarkSupport.seed(emf, rowCount);
+
+		EntityManager em = emf.createEntityManager();
+
+		try {
+
+			List<Long> allIds = em.createQuery("select m.id from Member m", Long.class).getResultList();
+
+			for ( int i=0; i<keyCount; i++ ) {
+				ids.add(allIds.get(ThreadLocalRandom.current().nextInt(allIds.size())));
+				usernames.add("member" + ThreadLocalRandom.current().nextInt(rowCount));
+			}
+
+		} finally {
+			em.close();
+		}
+
+		memberJpaRepository = context.getBean(MemberJpaRepository.class);
+
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Member> findByIdLoop() {
+
+		List<Member> result = new ArrayList<>(ids.size());
+
+		for ( Long id : ids ) memberJpaRepository.findById(id).ifPresent(result::add);
+
+		return result;
+
+	}
+
+	@Benchmark
+	public Map<Long, Member> findAllByIds() {
+		return memberJpaRepository.findAllByIds(ids);
+	}
+
+	@Benchmark
+	public List<Member> findByUsernameLoop() {
+
+		List<Member> result = new ArrayList<>(usernames.size());
+
+		for ( String username : usernames ) result.addAll(memberJpaRepository.findByUsername_QueryDsl(username));
+
+		return result;
+
+	}
+
+	@Benchmark
+	public Map<String, List<Member>> findAllByUsernames() {
+		return memberJpaRepository.findAllByUsernames(usernames);
+	}
+
+}
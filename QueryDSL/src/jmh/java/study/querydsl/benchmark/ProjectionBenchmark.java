@@ -0,0 +1,141 @@
+package study.querydsl.benchmark;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import study.querydsl.dto.MemberDto;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.dto.QMemberDto;
+import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.entity.Member;
+
+/**
+ * 프로젝션 방식별 조회 비용 비교 (QueryDslBasicTest 의 프로젝션 예제와 같은 쿼리)
+ *
+ * ./gradlew jmh -PjmhIncludes=ProjectionBenchmark -PjmhRows=1000,100000
+ * 처리량(ops/s)과 함께 gc 프로파일러의 gc.alloc.rate.norm(B/op) 을 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+	@Param({"1000", "10000"})
+	int rowCount;
+
+	private ConfigurableApplicationContext context;
+	private EntityManager em;
+	private JPAQueryFactory queryFactory;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		context = BenchmarkSupport.start();
+
+		EntityManagerFactory emf = context.getBean(EntityManagerFactory.class);
+		BenchmarkSupport.seed(emf, rowCount);
+
+		em = emf.createEntityManager();
+		queryFactory = new JPAQueryFactory(em);
+
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		em.close();
+		context.close();
+	}
+
+	@Benchmark
+	public List<MemberDto> bean() {
+		return fetch(queryFactory
+				.select(Projections.bean(MemberDto.class, member.username, member.age))
+				.from(member));
+	}
+
+	@Benchmark
+	public List<MemberDto> fields() {
+		return fetch(queryFactory
+				.select(Projections.fields(MemberDto.class, member.username, member.age))
+				.from(member));
+	}
+
+	@Benchmark
+	public List<MemberDto> constructor() {
+		return fetch(queryFactory
+				.select(Projections.constructor(MemberDto.class, member.username, member.age))
+				.from(member));
+	}
+
+	@Benchmark
+	public List<MemberDto> queryProjection() {
+		return fetch(queryFactory
+				.select(new QMemberDto(member.username, member.age))
+				.from(member));
+	}
+
+	@Benchmark
+	public List<MemberTeamDto> queryProjectionJoin() {
+		return fetch(queryFactory
+				.select(new QMemberTeamDto(
+						member.id.as("memberId"),
+						member.username,
+						member.age,
+						team.id.as("teamId"),
+						team.name.as("teamName")))
+				.from(member)
+				.leftJoin(member.team, team));
+	}
+
+	@Benchmark
+	public List<Tuple> tuple() {
+		return fetch(queryFactory
+				.select(member.username, member.age)
+				.from(member));
+	}
+
+	@Benchmark
+	public List<Member> entity() {
+		return fetch(queryFactory
+				.selectFrom(member));
+	}
+
+	// 엔티티 조회가 영속성 컨텍스트에 계속 쌓이지 않도록 매번 비운다 (모든 방식에 동일하게 적용)
+	private <T> List<T> fetch(JPAQuery<T> query) {
+
+		List<T> result = query.fetch();
+		em.clear();
+
+		return result;
+
+	}
+
+}
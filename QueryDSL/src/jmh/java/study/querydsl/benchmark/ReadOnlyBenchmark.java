@@ -0,0 +1,115 @@
+package study.querydsl.benchmark;
+
+import static study.querydsl.entity.QMember.member;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import study.querydsl.entity.Member;
+
+/**
+ * 엔티티 수천 건을 조회하고 flush, 커밋하는 트랜잭션 한 번의 비용
+ *
+ * managed : 일반 트랜잭션 (엔티티마다 스냅샷, flush 때 변경 감지)
+ * readOnlyHint : 쿼리에 읽기 전용 힌트 (Querydsl4RepositorySupport.readOnly)
+ * readOnlySession : @Transactional(readOnly = true) 와 같은 세션 설정 (기본 읽기 전용, FlushMode.MANUAL)
+ *
+ * ./gradlew jmh -PjmhIncludes=ReadOnlyBenchmark -PjmhRows=1000,10000
+ * gc.alloc.rate.norm(B/op) 으로 스냅샷만큼 줄어든 할당량을, 처리량으로 flush 시간 차이를 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadOnlyBenchmark {
+
+	@Param({"1000", "10000"})
+	int rowCount;
+
+	private ConfigurableApplicationContext context;
+	private EntityManagerFactory emf;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = BenchmarkSupport.start();
+		emf = context.getBean(EntityManagerFactory.class);
+		BenchmarkSupport.seed(emf, rowCount);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public int managed() {
+		return loadAndFlush(false, false);
+	}
+
+	@Benchmark
+	public int readOnlyHint() {
+		return loadAndFlush(true, false);
+	}
+
+	@Benchmark
+	public int readOnlySession() {
+		return loadAndFlush(false, true);
+	}
+
+	private int loadAndFlush(boolean readOnlyHint, boolean readOnlySession) {
+
+		EntityManager em = emf.createEntityManager();
+
+		try {
+
+			if ( readOnlySession ) {
+				Session session = em.unwrap(Session.class);
+				session.setDefaultReadOnly(true);
+				session.setHibernateFlushMode(FlushMode.MANUAL);
+			}
+
+			em.getTransaction().begin();
+
+			JPAQuery<Member> query = new JPAQueryFactory(em).selectFrom(member);
+			if ( readOnlyHint ) query.setHint(HibernateHints.HINT_READ_ONLY, true);
+
+			List<Member> members = query.fetch();
+
+			// 읽기 전용 엔티티는 변경 감지 대상이 아니므로 flush 가 엔티티 수와 상관없이 끝난다
+			em.flush();
+			em.getTransaction().commit();
+
+			return members.size();
+
+		} finally {
+			em.close();
+		}
+
+	}
+
+}
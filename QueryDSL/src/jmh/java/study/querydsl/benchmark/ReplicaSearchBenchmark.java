@@ -0,0 +1,123 @@
+package study.querydsl.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import jakarta.persistence.EntityManagerFactory;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.replica.ColumnarMemberRepository;
+import study.querydsl.replica.MemberReplica;
+import study.querydsl.repository.MemberRepositoryImpl;
+
+/**
+ * MemberRepositoryImpl(DB) 와 ColumnarMemberRepository(메모리 컬럼 복제본) 의 search, searchPageComplex 비교
+ *
+ * ./gradlew jmh -PjmhIncludes=ReplicaSearchBenchmark -PjmhRows=10000,100000
+ * condition : username(한 건), team(1/10), age(ageGoe/ageLoe 범위 1/10), teamAge(1/100)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplicaSearchBenchmark {
+
+	@Param({"10000"})
+	int rowCount;
+
+	@Param({"username", "team", "age", "teamAge"})
+	String condition;
+
+	private ConfigurableApplicationContext context;
+	private MemberRepositoryImpl memberRepositoryImpl;
+	private ColumnarMemberRepository columnarMemberRepository;
+	private MemberSearchCondition searchCondition;
+	private final PageRequest pageRequest = PageRequest.of(1, 20);
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		// 적재 후 예약되는 재적재가 측정 중에 끼어들지 않도록 직접 적재한다
+		context = BenchmarkSupport.start("--querydsl.replica.enabled=true", "--querydsl.replica.refresh-delay=1h");
+
+		BenchmarkSupport.seed(context.getBean(EntityManagerFactory.class), rowCount);
+
+		MemberReplica replica = context.getBean(MemberReplica.class);
+		replica.refresh();
+
+		if ( !replica.isFresh() ) throw new IllegalStateException("member replica is not fresh");
+
+		memberRepositoryImpl = context.getBean(MemberRepositoryImpl.class);
+		columnarMemberRepository = context.getBean(ColumnarMemberRepository.class);
+		searchCondition = condition(condition);
+
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<MemberTeamDto> jpaSearch() {
+		return memberRepositoryImpl.search(searchCondition);
+	}
+
+	@Benchmark
+	public List<MemberTeamDto> replicaSearch() {
+		return columnarMemberRepository.search(searchCondition);
+	}
+
+	@Benchmark
+	public Page<MemberTeamDto> jpaSearchPageComplex() {
+		return memberRepositoryImpl.searchPageComplex(searchCondition, pageRequest);
+	}
+
+	@Benchmark
+	public Page<MemberTeamDto> replicaSearchPageComplex() {
+		return columnarMemberRepository.searchPageComplex(searchCondition, pageRequest);
+	}
+
+	private static MemberSearchCondition condition(String name) {
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+
+		switch ( name ) {
+			case "username" -> condition.setUsername("member42");
+			case "team" -> condition.setTeamName("team3");
+			case "age" -> {
+				condition.setAgeGoe(40);
+				condition.setAgeLoe(49);
+			}
+			case "teamAge" -> {
+				condition.setTeamName("team3");
+				condition.setAgeGoe(40);
+				condition.setAgeLoe(49);
+			}
+			default -> throw new IllegalArgumentException(name);
+		}
+
+		return condition;
+
+	}
+
+}
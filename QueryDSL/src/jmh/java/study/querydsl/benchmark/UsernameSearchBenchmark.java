@@ -0,0 +1,109 @@
+package study.querydsl.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import jakarta.persistence.EntityManagerFactory;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.index.MemberBitmapIndex;
+import study.querydsl.repository.MemberRepositoryImpl;
+
+/**
+ * username 시작/포함 검색 - like 만 쓴 경우(index=false)와 trigram 후보 id 로 in 조회한 경우(index=true) 비교
+ *
+ * ./gradlew jmh -PjmhIncludes=UsernameSearchBenchmark -PjmhRows=1000000
+ * condition : startsWith(member99999 로 시작, 11건. 후보 없이 like 로 조회하고 count 만 인덱스), contains(ber12345 포함, 11건),
+ *             containsShort(99 포함, 후보가 max-candidates 보다 많아 like 로 되돌아가는 경우)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UsernameSearchBenchmark {
+
+	@Param({"1000000"})
+	int rowCount;
+
+	@Param({"false", "true"})
+	boolean index;
+
+	@Param({"startsWith", "contains", "containsShort"})
+	String condition;
+
+	private ConfigurableApplicationContext context;
+	private MemberRepositoryImpl memberRepositoryImpl;
+	private MemberSearchCondition searchCondition;
+	private final PageRequest pageRequest = PageRequest.of(0, 20);
+
+	@Setup(Level.Trial)
+	public void setUp() {
+
+		context = BenchmarkSupport.start("--querydsl.bitmap-index.enabled=" + index, "--querydsl.bitmap-index.rebuild-delay=1h");
+
+		BenchmarkSupport.seed(context.getBean(EntityManagerFactory.class), rowCount);
+
+		if ( index ) {
+
+			MemberBitmapIndex bitmapIndex = context.getBean(MemberBitmapIndex.class);
+			bitmapIndex.rebuild();
+
+			if ( !bitmapIndex.isReady() ) throw new IllegalStateException("member bitmap index is not ready");
+
+		}
+
+		memberRepositoryImpl = context.getBean(MemberRepositoryImpl.class);
+		searchCondition = condition(condition);
+
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<MemberTeamDto> search() {
+		return memberRepositoryImpl.search(searchCondition);
+	}
+
+	@Benchmark
+	public Page<MemberTeamDto> searchPageComplex() {
+		return memberRepositoryImpl.searchPageComplex(searchCondition, pageRequest);
+	}
+
+	private static MemberSearchCondition condition(String name) {
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+
+		switch ( name ) {
+			case "startsWith" -> condition.setUsernameStartsWith("member99999");
+			case "contains" -> condition.setUsernameContains("ber12345");
+			case "containsShort" -> condition.setUsernameContains("99");
+			default -> throw new IllegalArgumentException(name);
+		}
+
+		return condition;
+
+	}
+
+}
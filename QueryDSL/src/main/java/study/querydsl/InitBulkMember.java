@@ -0,0 +1,147 @@
+package study.querydsl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 대용량 테스트 데이터 적재 (--spring.profiles.active=bulk)
+ *
+ * JDBC batch insert(hibernate.jdbc.batch_size) 단위로 flush/clear 하고
+ * commit-size 건마다 트랜잭션을 나눠 커밋한다.
+ */
+@Profile("bulk")
+@Component
+@RequiredArgsConstructor
+public class InitBulkMember {
+
+	private final BulkMemberLoader bulkMemberLoader;
+
+	@PostConstruct
+	public void init() {
+		bulkMemberLoader.load();
+	}
+
+	@Slf4j
+	@Component
+	@Profile("bulk")
+	static class BulkMemberLoader {
+
+		@PersistenceContext
+		private EntityManager em;
+
+		private final TransactionTemplate transactionTemplate;
+		private final int memberCount;
+		private final int teamCount;
+		private final int batchSize;
+		private final int commitSize;
+
+		public BulkMemberLoader(
+				PlatformTransactionManager transactionManager,
+				@Value("${querydsl.bulk.member-count:1000000}") int memberCount,
+				@Value("${querydsl.bulk.team-count:100}") int teamCount,
+				@Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize,
+				@Value("${querydsl.bulk.commit-size:10000}") int commitSize) {
+			Assert.isTrue(memberCount >= 0, "querydsl.bulk.member-count must not be negative");
+			Assert.isTrue(teamCount > 0, "querydsl.bulk.team-count must be greater than zero");
+			Assert.isTrue(batchSize > 0, "hibernate.jdbc.batch_size must be greater than zero");
+			Assert.isTrue(commitSize > 0, "querydsl.bulk.commit-size must be greater than zero");
+			this.transactionTemplate = new TransactionTemplate(transactionManager);
+			this.memberCount = memberCount;
+			this.teamCount = teamCount;
+			this.batchSize = batchSize;
+			this.commitSize = commitSize;
+		}
+
+		public void load() {
+
+			long start = System.nanoTime();
+
+			List<Long> teamIds = transactionTemplate.execute(status -> persistTeams());
+
+			for ( int from = 0; from < memberCount; from += commitSize ) {
+
+				int chunkFrom = from;
+				int chunkTo = Math.min(from + commitSize, memberCount);
+
+				transactionTemplate.executeWithoutResult(status -> persistMembers(chunkFrom, chunkTo, teamIds));
+
+				log.info("bulk load progress {}/{} members ({} rows/sec)", chunkTo, memberCount, rowsPerSecond(chunkTo, start));
+
+			}
+
+			long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+			log.info("bulk load finished: {} teams, {} members in {} ms ({} rows/sec)", teamCount, memberCount, elapsedMillis, rowsPerSecond(memberCount + teamCount, start));
+
+		}
+
+		private List<Long> persistTeams() {
+
+			ignoreSecondLevelCache();
+
+			List<Long> teamIds = new ArrayList<>(teamCount);
+
+			for ( int i=1; i<=teamCount; i++ ) {
+
+				Team team = new Team("team" + i);
+				em.persist(team);
+				teamIds.add(team.getId());
+
+			}
+
+			return teamIds;
+
+		}
+
+		private void persistMembers(int from, int to, List<Long> teamIds) {
+
+			ignoreSecondLevelCache();
+
+			for ( int i=from; i<to; i++ ) {
+
+				// changeTeam() 은 team.getMembers() 를 초기화하므로 프록시만 연결한다
+				Member member = new Member("member" + (i + 1), i % 100 + 1);
+				member.setTeam(em.getReference(Team.class, teamIds.get(i % teamIds.size())));
+				em.persist(member);
+
+				if ( (i - from + 1) % batchSize == 0 ) {
+					em.flush();
+					em.clear();
+				}
+
+			}
+
+			em.flush();
+			em.clear();
+
+		}
+
+		// 적재한 엔티티를 2차 캐시에 넣지 않는다 (캐시가 적재 데이터로 가득 차 실제로 자주 읽는 엔티티가 밀려나지 않도록)
+		private void ignoreSecondLevelCache() {
+			em.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+		}
+
+		private static long rowsPerSecond(long rows, long startNanos) {
+			long elapsedNanos = Math.max(System.nanoTime() - startNanos, 1);
+			return rows * 1_000_000_000L / elapsedNanos;
+		}
+
+	}
+
+}
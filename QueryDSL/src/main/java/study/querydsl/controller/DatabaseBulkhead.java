@@ -0,0 +1,114 @@
+package study.querydsl.controller;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.repository.support.ConcurrentPageExecutor;
+
+/**
+ * DB 작업 동시 실행 수를 커넥션 풀 크기로 제한한다.
+ *
+ * 가상 스레드 모드에서는 요청 스레드 수에 제한이 없으므로 커넥션을 기다리는 요청이 무한히 쌓인다.
+ * acquire-timeout 안에 자리가 나지 않으면 커넥션 대기 대신 바로 503 으로 거절한다.
+ * 동시 count({@link ConcurrentPageExecutor})가 켜져 있으면 count 스레드가 커넥션을 최대 count-pool-size 개
+ * 더 쓰므로, max-concurrent 를 따로 주지 않으면 커넥션 풀에서 그만큼 뺀 수로 제한한다.
+ *
+ * 스트리밍 응답은 다 내려보낼 때까지(최대 async request-timeout) 커넥션을 잡고 있으므로
+ * 일반 요청과 같은 자리를 쓰면 느린 클라이언트 몇 개가 bulkhead 를 다 차지한다.
+ * 스트리밍은 {@link #stream(Runnable)} 으로 stream-max-concurrent 개의 별도 자리를 쓰고, 그만큼 일반 요청 자리에서 뺀다.
+ */
+@Slf4j
+@Component
+public class DatabaseBulkhead {
+
+	private final Semaphore permits;
+	private final Semaphore streamPermits;
+	private final long acquireTimeoutMillis;
+
+	public DatabaseBulkhead(
+			@Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize,
+			@Value("${querydsl.pagination.concurrent-count:true}") boolean concurrentCount,
+			@Value("${querydsl.pagination.count-pool-size:4}") int countPoolSize,
+			@Value("${querydsl.bulkhead.max-concurrent:0}") int maxConcurrent,
+			@Value("${querydsl.bulkhead.stream-max-concurrent:2}") int streamMaxConcurrent,
+			@Value("${querydsl.bulkhead.acquire-timeout-millis:1000}") long acquireTimeoutMillis) {
+
+		if ( streamMaxConcurrent <= 0 ) throw new IllegalArgumentException("stream-max-concurrent must be positive: " + streamMaxConcurrent);
+
+		int reservedConnections = (concurrentCount ? countPoolSize : 0) + streamMaxConcurrent;
+		int permitCount = maxConcurrent > 0 ? maxConcurrent : connectionPoolSize - reservedConnections;
+
+		if ( permitCount <= 0 ) throw new IllegalStateException("count-pool-size + stream-max-concurrent(" + reservedConnections + ") must be smaller than the connection pool(" + connectionPoolSize + ")");
+
+		if ( permitCount + reservedConnections > connectionPoolSize ) {
+			log.warn("bulkhead max-concurrent({}) + count/stream connections({}) exceeds connection pool({}), requests may wait for connections", permitCount, reservedConnections, connectionPoolSize);
+		}
+
+		this.permits = new Semaphore(permitCount, true);
+		this.streamPermits = new Semaphore(streamMaxConcurrent, true);
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+
+	}
+
+	public <T> T call(Supplier<T> work) {
+		return call(permits, work);
+	}
+
+	/**
+	 * 커넥션을 오래 잡는 스트리밍 작업. 일반 요청과 다른 자리를 쓴다
+	 */
+	public void stream(Runnable work) {
+		call(streamPermits, () -> {
+			work.run();
+			return null;
+		});
+	}
+
+	public int availablePermits() {
+		return permits.availablePermits();
+	}
+
+	public int availableStreamPermits() {
+		return streamPermits.availablePermits();
+	}
+
+	private <T> T call(Semaphore semaphore, Supplier<T> work) {
+
+		acquire(semaphore);
+
+		try {
+			return work.get();
+		} finally {
+			semaphore.release();
+		}
+
+	}
+
+	private void acquire(Semaphore semaphore) {
+
+		try {
+			if ( !semaphore.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS) ) throw new BulkheadFullException();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new BulkheadFullException();
+		}
+
+	}
+
+	@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+	public static class BulkheadFullException extends RuntimeException {
+
+		public BulkheadFullException() {
+			super("Too many concurrent database requests");
+		}
+
+	}
+
+}
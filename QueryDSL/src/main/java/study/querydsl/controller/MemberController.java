@@ -1,38 +1,118 @@
 package study.querydsl.controller;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.RequiredArgsConstructor;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.replica.ColumnarMemberRepository;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.TeamBatchLoader;
+import study.querydsl.repository.support.InvalidKeysetCursorException;
+import study.querydsl.repository.support.KeysetCursor;
+import study.querydsl.repository.support.KeysetSlice;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+	// keyset 페이지 한 번에 내려주는 최대 건수
+	static final int MAX_KEYSET_SIZE = KeysetSlice.MAX_SIZE;
+	
+	// id 목록 조회 한 번에 받는 최대 id 수
+	static final int MAX_LOOKUP_IDS = 1000;
+
 	private final MemberJpaRepository memberJpaRepository;
 	private final MemberRepository memberRepository;
+	private final ColumnarMemberRepository columnarMemberRepository;
+	private final ObjectMapper objectMapper;
+	private final DatabaseBulkhead bulkhead;
+	private final TeamBatchLoader teamBatchLoader;
 	
 	@GetMapping("/v1/members")
 	public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-		return memberJpaRepository.searchByWhereParam(condition);
+		return bulkhead.call(() -> memberJpaRepository.searchByWhereParam(condition));
+	}
+	
+	// 한 줄에 한 건씩 NDJSON 으로 조회되는 대로 내려보낸다
+	// 다 보낼 때까지 커넥션을 잡고 있으므로 일반 조회와 따로 스트리밍 자리만 쓴다
+	@GetMapping(value = "/v1/members/stream", produces = "application/x-ndjson")
+	public StreamingResponseBody streamMemberV1(MemberSearchCondition condition) {
+		return out -> bulkhead.stream(() -> memberJpaRepository.streamByWhereParam(condition, dto -> writeLine(out, dto)));
+	}
+	
+	// 회원 엔티티를 id 묶음으로 읽고 팀은 TeamBatchLoader 로 한 번에 읽는다 (팀마다 프록시를 초기화하지 않는다)
+	@GetMapping("/v1/members/by-ids")
+	public List<MemberTeamDto> findMembersV1(@RequestParam List<Long> ids) {
+		
+		if ( ids.size() > MAX_LOOKUP_IDS ) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "ids must be at most " + MAX_LOOKUP_IDS);
+		
+		return bulkhead.call(() -> {
+			
+			Collection<Member> members = memberJpaRepository.findAllByIds(ids).values();
+			teamBatchLoader.loadTeams(members);
+			
+			return members.stream()
+					.map(m -> m.getTeam() == null
+							? new MemberTeamDto(m.getId(), m.getUsername(), m.getAge(), null, null)
+							: new MemberTeamDto(m.getId(), m.getUsername(), m.getAge(), m.getTeam().getId(), m.getTeam().getName()))
+					.toList();
+			
+		});
+		
 	}
 	
 	@GetMapping("/v2/members")
 	public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
-		return memberRepository.searchPageSimple(condition, pageable);
+		return bulkhead.call(() -> memberRepository.searchPageWindow(condition, pageable));
 	} 
 	
+	// querydsl.replica.enabled 이면 메모리 복제본에서 조회 (최신이 아니면 DB)
 	@GetMapping("/v3/members")
 	public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-		return memberRepository.searchPageComplex(condition, pageable);
+		return bulkhead.call(() -> columnarMemberRepository.searchPageComplex(condition, pageable));
+	}
+	
+	@GetMapping("/v4/members")
+	public KeysetSlice<MemberTeamDto> searchMemberV4(MemberSearchCondition condition, @RequestParam(required = false) String cursor, @RequestParam(defaultValue = "20") int size) {
+		
+		// 쿼리를 실행하기 전에 잘못된 요청은 400 으로 돌려보낸다
+		if ( size <= 0 || size > MAX_KEYSET_SIZE ) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_KEYSET_SIZE);
+		
+		try {
+			KeysetCursor.decode(cursor);
+			// 커서 키 타입이 정렬키(age)와 맞지 않으면 쿼리를 만들 때 드러난다
+			return bulkhead.call(() -> memberRepository.searchKeyset(condition, cursor, size));
+		} catch ( InvalidKeysetCursorException e ) {
+			throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid cursor", e);
+		}
+		
+	}
+	
+	private void writeLine(OutputStream out, MemberTeamDto dto) {
+		try {
+			out.write(objectMapper.writeValueAsBytes(dto));
+			out.write('\n');
+		} catch ( IOException e ) {
+			throw new UncheckedIOException(e);
+		}
 	}
 	
 }
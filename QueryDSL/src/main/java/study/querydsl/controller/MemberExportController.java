@@ -0,0 +1,74 @@
+package study.querydsl.controller;
+
+import java.net.URI;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import lombok.RequiredArgsConstructor;
+import study.querydsl.service.ExportJob;
+import study.querydsl.service.MemberExportService;
+
+/**
+ * 회원 CSV export. POST 로 작업을 시작하고 Location 의 상태를 폴링하다가 완료되면 file 을 받는다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class MemberExportController {
+
+	private final MemberExportService memberExportService;
+	
+	@PostMapping("/v1/members/export")
+	public ResponseEntity<ExportJob> startExport() {
+		
+		ExportJob job;
+		
+		try {
+			job = memberExportService.start();
+		} catch ( TaskRejectedException e ) {
+			throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "too many export jobs", e);
+		}
+		
+		return ResponseEntity.accepted()
+				.location(URI.create("/v1/members/export/" + job.getId()))
+				.body(job);
+		
+	}
+	
+	@GetMapping("/v1/members/export/{id}")
+	public ExportJob exportStatus(@PathVariable String id) {
+		return findJob(id);
+	}
+	
+	@GetMapping("/v1/members/export/{id}/file")
+	public ResponseEntity<Resource> exportFile(@PathVariable String id) {
+		
+		ExportJob job = findJob(id);
+		
+		if ( job.getStatus() != ExportJob.Status.COMPLETED ) {
+			throw new ResponseStatusException(HttpStatus.CONFLICT, "export " + id + " is " + job.getStatus());
+		}
+		
+		return ResponseEntity.ok()
+				.contentType(new MediaType("text", "csv"))
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"members-" + id + ".csv\"")
+				.body(new FileSystemResource(job.getFile()));
+		
+	}
+	
+	private ExportJob findJob(String id) {
+		return memberExportService.find(id)
+				.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "export " + id + " not found"));
+	}
+	
+}
@@ -0,0 +1,24 @@
+package study.querydsl.controller;
+
+import java.util.List;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import lombok.RequiredArgsConstructor;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.stats.TeamStatsService;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+	private final TeamStatsService teamStatsService;
+	
+	// 증분으로 유지하는 통계라 DB 를 거치지 않는다 (재계산이 필요할 때만 group by)
+	@GetMapping("/v1/teams/stats")
+	public List<TeamStatsDto> teamStats() {
+		return teamStatsService.getStats();
+	}
+	
+}
@@ -1,15 +1,39 @@
 package study.querydsl.dto;
 
+import org.springframework.util.StringUtils;
+
 import lombok.Data;
 
 @Data
 public class MemberSearchCondition {
 
-	// 회원명, 팀명, 나이(ageGoe, ageLoe)
+	// 회원명(일치, 시작, 포함), 팀명, 나이(ageGoe, ageLoe)
 	
 	private String username;
+	private String usernameStartsWith;
+	private String usernameContains;
 	private String teamName;
 	private Integer ageGoe;
 	private Integer ageLoe;
 	
+	// 앞뒤 공백을 제거하고 빈 문자열은 null 로 통일한 사본 (캐시 키로 사용)
+	public MemberSearchCondition normalize() {
+		
+		MemberSearchCondition normalized = new MemberSearchCondition();
+		
+		normalized.setUsername(trimToNull(username));
+		normalized.setUsernameStartsWith(trimToNull(usernameStartsWith));
+		normalized.setUsernameContains(trimToNull(usernameContains));
+		normalized.setTeamName(trimToNull(teamName));
+		normalized.setAgeGoe(ageGoe);
+		normalized.setAgeLoe(ageLoe);
+		
+		return normalized;
+		
+	}
+	
+	private static String trimToNull(String value) {
+		return StringUtils.hasText(value) ? value.trim() : null;
+	}
+	
 }
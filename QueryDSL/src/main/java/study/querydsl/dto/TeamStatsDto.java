@@ -0,0 +1,23 @@
+package study.querydsl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 팀별 회원 나이 통계 (count, sum, avg, max, min)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TeamStatsDto {
+
+	private Long teamId;
+	private String teamName;
+	private long count;
+	private long sum;
+	private double avg;
+	private int max;
+	private int min;
+	
+}
@@ -1,12 +1,20 @@
 package study.querydsl.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -14,14 +22,23 @@ import lombok.Setter;
 import lombok.ToString;
 
 @Entity
+@Table(indexes = {
+		  @Index(name = "idx_member_username", columnList = "username")
+		, @Index(name = "idx_member_age", columnList = "age, member_id") // ageGoe/ageLoe 범위 조건, (age, id) keyset 정렬
+		, @Index(name = "idx_member_team_id", columnList = "team_id")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @ToString(of = {"id", "username" , "age"})
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Member {
 
+	// 시퀀스 한 번에 100개씩 할당 받아 insert 마다 시퀀스를 호출하지 않는다 (pooled optimizer)
 	@Id
-	@GeneratedValue
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq_generator")
+	@SequenceGenerator(name = "member_seq_generator", sequenceName = "member_seq", allocationSize = 100)
 	@Column(name = "member_id")
 	private Long id;
 	
@@ -0,0 +1,447 @@
+package study.querydsl.index;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkOperationEvent;
+import study.querydsl.repository.support.DebouncedTask;
+import study.querydsl.repository.support.MemberChangeHandler;
+import study.querydsl.repository.support.MemberRow;
+
+/**
+ * MemberSearchCondition count 용 비트맵 인덱스 ({@link MemberBitmaps}).
+ *
+ * 커밋된 Member/Team 변경({@link MemberChangeHandler})을 바로 반영하고,
+ * 어떤 행이 바뀌었는지 모르는 벌크 연산 후에는 DB 에서 다시 적재한다. 적재하는 동안 들어온 변경은
+ * 모아 두었다가 새 비트맵에 다시 적용한다 (같은 변경을 두 번 적용해도 결과가 같다).
+ * flush 밖의 DML (벌크 연산, JPQL/네이티브 executeUpdate) 은 {@link study.querydsl.repository.support.MemberWriteListener} 가
+ * 실행하는 순간 알려 주므로 다시 적재할 때까지 인덱스를 쓰지 않는다.
+ * 엔티티를 쓰는 트랜잭션이 끝나 커밋 후 이벤트를 반영하기 전까지도 인덱스를 쓰지 않는다 (커밋과 이벤트 사이에 이전 값을 보지 않도록).
+ * 그동안에는 {@link #count(MemberSearchCondition)} 가 비어 있고 SQL count 를 쓴다.
+ * 다른 인스턴스의 쓰기는 알 수 없으므로 rebuild-interval 마다 다시 적재해서 맞춘다 (적재하는 동안에는 이전 비트맵을 그대로 쓴다).
+ * username 부분 문자열 검색은 {@link #usernameCandidates(MemberSearchCondition, EntityManager)} 로 후보 id 를 먼저 구한다
+ * (H2 내장 전문 검색은 단어 단위라 "ber3" 같은 부분 문자열을 찾지 못한다).
+ */
+@Slf4j
+@Component
+public class MemberBitmapIndex implements MemberChangeHandler, DisposableBean {
+
+	private final SessionFactory sessionFactory;
+	private final boolean enabled;
+	private final Duration rebuildDelay;
+	private final int fetchSize;
+	private final int maxCandidates;
+	private final DebouncedTask rebuildTask;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// 커밋 후 이벤트가 아직 오지 않았을 수 있는 쓰기 트랜잭션 수 (MemberWriteListener)
+	private final AtomicInteger writesInFlight = new AtomicInteger();
+
+	// 아래는 lock 으로 보호
+	private MemberBitmaps bitmaps;
+	private List<Consumer<MemberBitmaps>> journal;
+	private long staleGeneration;
+	private boolean stale = true;
+	// member id 가 int 범위를 넘으면 RoaringBitmap 에 넣을 수 없으므로 인덱스를 쓰지 않는다
+	private boolean unsupported;
+
+	public MemberBitmapIndex(
+			EntityManagerFactory emf,
+			@Value("${querydsl.bitmap-index.enabled:false}") boolean enabled,
+			@Value("${querydsl.bitmap-index.rebuild-delay:1s}") Duration rebuildDelay,
+			@Value("${querydsl.stream.fetch-size:500}") int fetchSize,
+			@Value("${querydsl.bitmap-index.max-candidates:1000}") int maxCandidates) {
+
+		this.sessionFactory = emf.unwrap(SessionFactory.class);
+		this.enabled = enabled;
+		this.rebuildDelay = rebuildDelay;
+		this.fetchSize = fetchSize;
+		this.maxCandidates = maxCandidates;
+
+		this.rebuildTask = new DebouncedTask("member-bitmap-rebuild", this::rebuild);
+
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * 인덱스로 구한 건수. 쓸 수 없으면(꺼짐, 적재 전, 벌크 연산 후 재적재 전, 쓰기 트랜잭션 안, 다른 쓰기 트랜잭션이 끝나기 전) 비어 있다
+	 */
+	public OptionalLong count(MemberSearchCondition condition) {
+		return count(bitmaps -> bitmaps.count(condition));
+	}
+
+	/**
+	 * {@link #usernameCandidates} 로 구한 username 결과를 다시 쓰는 count.
+	 * 후보를 구할 때 인덱스에 없는 새 회원이 있었으면 인덱스 건수도 맞지 않으므로 비어 있다
+	 */
+	public OptionalLong count(MemberSearchCondition condition, UsernameCandidates candidates) {
+
+		if ( candidates == null ) return count(condition);
+
+		if ( !candidates.isCaughtUp() ) return OptionalLong.empty();
+
+		return count(bitmaps -> bitmaps.count(condition, candidates.getUsernameMatches()));
+
+	}
+
+	private OptionalLong count(ToLongFunction<MemberBitmaps> counter) {
+
+		if ( !enabled ) return OptionalLong.empty();
+
+		if ( !usable() ) return OptionalLong.empty();
+
+		lock.readLock().lock();
+
+		try {
+			return stale || unsupported || bitmaps == null ? OptionalLong.empty() : OptionalLong.of(counter.applyAsLong(bitmaps));
+		} finally {
+			lock.readLock().unlock();
+		}
+
+	}
+
+	/**
+	 * username 포함 조건(usernameContains)을 만족하는 member id (trigram 으로 고른 뒤 확인한 값).
+	 * 포함 조건이 없거나 3 글자보다 짧거나 인덱스를 쓸 수 없거나 후보가 max-candidates 보다 많으면 비어 있다.
+	 * 후보를 member.id in (...) 으로 넘기면 앞에 % 가 붙은 like 로 전체를 훑지 않아도 된다.
+	 *
+	 * 후보는 hard filter 이므로 인덱스가 DB 보다 뒤에 있을 수 있으면 쓰지 않는다.
+	 * flush 밖의 DML 후 다시 적재하기 전, 다른 쓰기 트랜잭션이 끝나 커밋 후 이벤트를 반영하기 전에는 비어 있고 like 로만 조회한다.
+	 * 인덱스의 가장 큰 id 보다 큰 회원(이 JVM 이 모르는 새 회원)은 em 으로 조회해서 후보에 더하고 SQL 의 like 로 거른다.
+	 * 다른 인스턴스가 기존 회원의 username 을 바꾸는 것은 알 수 없으므로, 여러 인스턴스가 쓰는 배포에서는 인덱스를 켜지 않는다
+	 */
+	public Optional<UsernameCandidates> usernameCandidates(MemberSearchCondition condition, EntityManager em) {
+
+		String fragment = condition.getUsernameContains();
+
+		if ( !enabled || !StringUtils.hasText(fragment) ) return Optional.empty();
+
+		// trigram 이 없으면 사전 전체를 봐야 하므로 like 로 조회한다
+		if ( fragment.length() < MemberBitmaps.TRIGRAM_LENGTH ) return Optional.empty();
+
+		if ( !usable() ) return Optional.empty();
+
+		RoaringBitmap matches;
+		int indexedMaxId;
+
+		lock.readLock().lock();
+
+		try {
+			if ( stale || unsupported || bitmaps == null ) return Optional.empty();
+			matches = bitmaps.usernameMatches(condition, maxCandidates);
+			indexedMaxId = bitmaps.maxMemberId();
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		if ( matches == null || matches.getLongCardinality() > maxCandidates ) return Optional.empty();
+
+		List<Long> unindexed = em.createQuery("select m.id from Member m where m.id > :indexedMaxId", Long.class)
+				.setParameter("indexedMaxId", (long) indexedMaxId)
+				.setMaxResults(maxCandidates - matches.getCardinality() + 1)
+				.getResultList();
+
+		if ( matches.getCardinality() + unindexed.size() > maxCandidates ) return Optional.empty();
+
+		List<Long> memberIds = new ArrayList<>(matches.getCardinality() + unindexed.size());
+		matches.forEach((int memberId) -> memberIds.add((long) memberId));
+		memberIds.addAll(unindexed);
+
+		return Optional.of(new UsernameCandidates(memberIds, matches, unindexed.isEmpty()));
+
+	}
+
+	public boolean isReady() {
+
+		lock.readLock().lock();
+
+		try {
+			return enabled && !stale && !unsupported && bitmaps != null;
+		} finally {
+			lock.readLock().unlock();
+		}
+
+	}
+
+	@Override
+	public void memberInserted(MemberRow member) {
+
+		if ( !fitsInt(member.memberId()) ) return;
+
+		apply(bitmaps -> {
+			bitmaps.add(member.memberId().intValue(), member.username(), member.age(), member.teamId());
+			if ( member.teamName() != null ) bitmaps.team(member.teamId(), member.teamName());
+		});
+
+		// 프록시(getReference)로 연결되어 이름을 모르는 새 팀이면 다시 적재해서 채운다
+		if ( member.teamId() != null && member.teamName() == null && !hasTeamName(member.teamId()) ) markStale();
+
+	}
+
+	@Override
+	public void memberDeleted(MemberRow member) {
+
+		if ( !fitsInt(member.memberId()) ) return;
+
+		apply(bitmaps -> bitmaps.remove(member.memberId().intValue(), member.username(), member.age(), member.teamId()));
+
+	}
+
+	// 한 번에 바꿔서 count 가 중간 상태를 보지 않게 한다
+	@Override
+	public void memberUpdated(MemberRow before, MemberRow after) {
+
+		if ( !fitsInt(after.memberId()) ) return;
+
+		apply(bitmaps -> {
+			bitmaps.remove(before.memberId().intValue(), before.username(), before.age(), before.teamId());
+			bitmaps.add(after.memberId().intValue(), after.username(), after.age(), after.teamId());
+			if ( after.teamName() != null ) bitmaps.team(after.teamId(), after.teamName());
+		});
+
+		if ( after.teamId() != null && after.teamName() == null && !hasTeamName(after.teamId()) ) markStale();
+
+	}
+
+	@Override
+	public void teamSaved(Long teamId, String teamName) {
+		apply(bitmaps -> bitmaps.team(teamId, teamName));
+	}
+
+	@Override
+	public void teamDeleted(Long teamId) {
+		apply(bitmaps -> bitmaps.removeTeam(teamId));
+	}
+
+	@Override
+	public void unknownChange() {
+		markStale();
+	}
+
+	@Override
+	public void writeStarted() {
+		if ( enabled ) writesInFlight.incrementAndGet();
+	}
+
+	@Override
+	public void writeCompleted() {
+		if ( enabled ) writesInFlight.decrementAndGet();
+	}
+
+	private boolean usable() {
+
+		// 아직 커밋되지 않은 현재 트랜잭션의 쓰기는 인덱스에 없다
+		if ( TransactionSynchronizationManager.isActualTransactionActive() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly() ) return false;
+
+		// 커밋됐어도 이벤트를 반영하기 전이면 인덱스가 DB 보다 뒤에 있다
+		return writesInFlight.get() == 0;
+
+	}
+
+	/**
+	 * 증분으로 따라갈 수 없는 변경이 있었다. 다시 적재할 때까지 인덱스를 쓰지 않는다
+	 */
+	void markStale() {
+
+		if ( !enabled ) return;
+
+		lock.writeLock().lock();
+
+		try {
+			stale = true;
+			staleGeneration++;
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		rebuildTask.schedule(rebuildDelay);
+
+	}
+
+	/**
+	 * DB 에서 다시 적재한다 (StatelessSession 스크롤)
+	 */
+	public synchronized void rebuild() {
+
+		if ( !enabled ) return;
+
+		long generation;
+
+		lock.writeLock().lock();
+
+		try {
+			generation = staleGeneration;
+			journal = new ArrayList<>();
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		Instant started = Instant.now();
+		MemberBitmaps fresh = new MemberBitmaps();
+		boolean fits = true;
+
+		try ( StatelessSession session = sessionFactory.openStatelessSession() ) {
+
+			for ( Object[] row : session.createQuery("select t.id, t.name from Team t", Object[].class).getResultList() ) {
+				fresh.team((Long) row[0], (String) row[1]);
+			}
+
+			try ( ScrollableResults<Object[]> rows = session
+					.createQuery("select m.id, m.username, m.age, m.team.id from Member m", Object[].class)
+					.setFetchSize(fetchSize)
+					.setReadOnly(true)
+					.scroll(ScrollMode.FORWARD_ONLY) ) {
+
+				while ( rows.next() ) {
+
+					Object[] row = rows.get();
+					long memberId = (Long) row[0];
+
+					if ( !fitsInt(memberId) ) {
+						fits = false;
+						break;
+					}
+
+					fresh.add((int) memberId, (String) row[1], (Integer) row[2], (Long) row[3]);
+
+				}
+
+			}
+
+		} catch ( RuntimeException e ) {
+			discardJournal();
+			throw e;
+		}
+
+		lock.writeLock().lock();
+
+		try {
+
+			journal.forEach(change -> change.accept(fresh));
+			journal = null;
+			bitmaps = fresh;
+			unsupported = !fits;
+			// 적재하는 동안 벌크 연산이 있었으면 그 결과가 반영됐는지 알 수 없다
+			stale = staleGeneration != generation;
+
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		if ( !fits ) log.warn("member id exceeds int range, member bitmap index disabled");
+
+		log.info("member bitmap index rebuilt in {} ms (ready: {})", Duration.between(started, Instant.now()).toMillis(), isReady());
+
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if ( enabled ) rebuildTask.schedule(Duration.ZERO);
+	}
+
+	// 적재하는 동안에는 이전 비트맵을 그대로 쓰므로 stale 로 만들지 않는다
+	@Scheduled(initialDelayString = "${querydsl.bitmap-index.rebuild-interval:PT5M}", fixedDelayString = "${querydsl.bitmap-index.rebuild-interval:PT5M}")
+	public void scheduledRebuild() {
+		if ( enabled ) rebuildTask.schedule(Duration.ZERO);
+	}
+
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onBulkOperation(BulkOperationEvent event) {
+		if ( event.getEntityType() == Member.class || event.getEntityType() == Team.class ) markStale();
+	}
+
+	private void apply(Consumer<MemberBitmaps> change) {
+
+		if ( !enabled ) return;
+
+		lock.writeLock().lock();
+
+		try {
+			if ( bitmaps != null ) change.accept(bitmaps);
+			if ( journal != null ) journal.add(change);
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+	}
+
+	private boolean hasTeamName(Long teamId) {
+
+		lock.readLock().lock();
+
+		try {
+			return bitmaps != null && bitmaps.hasTeamName(teamId);
+		} finally {
+			lock.readLock().unlock();
+		}
+
+	}
+
+	private void discardJournal() {
+
+		lock.writeLock().lock();
+
+		try {
+			journal = null;
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+	}
+
+	private boolean fitsInt(long memberId) {
+
+		if ( memberId <= Integer.MAX_VALUE ) return true;
+
+		lock.writeLock().lock();
+
+		try {
+			unsupported = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+
+		return false;
+
+	}
+
+	@Override
+	public void destroy() {
+		rebuildTask.shutdown();
+	}
+
+}
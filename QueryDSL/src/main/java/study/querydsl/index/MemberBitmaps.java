@@ -0,0 +1,269 @@
+package study.querydsl.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.util.StringUtils;
+
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * member id 비트맵 모음 (team id -> 비트맵, 나이 -> 비트맵, username -> id, username trigram -> username).
+ * 추가/삭제는 몇 번을 다시 적용해도 결과가 같다 (재적재 중에 쌓인 변경을 다시 적용하기 위해).
+ * 동기화는 {@link MemberBitmapIndex} 가 맡는다.
+ */
+final class MemberBitmaps {
+
+	// 포함 조건 후보를 trigram 으로 고를 수 있는 최소 길이
+	static final int TRIGRAM_LENGTH = 3;
+
+	private final RoaringBitmap all = new RoaringBitmap();
+	private final Map<Long, RoaringBitmap> byTeam = new HashMap<>();
+	private final Map<Long, String> teamNames = new HashMap<>();
+	// 나이 한 살 단위. 범위 조건은 구간의 비트맵을 OR 한다
+	private final TreeMap<Integer, RoaringBitmap> byAge = new TreeMap<>();
+	// 대부분 한 명이라 비트맵 대신 id 배열. 정렬된 키라 접두어 조건은 구간 탐색
+	private final TreeMap<String, int[]> byUsername = new TreeMap<>();
+
+	// 한 번이라도 나온 username 사전과 trigram -> username 코드 (포함 조건 후보)
+	private final List<String> usernames = new ArrayList<>();
+	private final Map<String, Integer> usernameCodes = new HashMap<>();
+	private final Map<Long, RoaringBitmap> usernameTrigrams = new HashMap<>();
+
+	void add(int memberId, String username, int age, Long teamId) {
+
+		all.add(memberId);
+		byAge.computeIfAbsent(age, key -> new RoaringBitmap()).add(memberId);
+
+		if ( username != null ) {
+			byUsername.merge(username, new int[] {memberId}, (ids, added) -> contains(ids, memberId) ? ids : append(ids, memberId));
+			usernameCodes.computeIfAbsent(username, this::indexTrigrams);
+		}
+
+		if ( teamId != null ) byTeam.computeIfAbsent(teamId, key -> new RoaringBitmap()).add(memberId);
+
+	}
+
+	void remove(int memberId, String username, int age, Long teamId) {
+
+		all.remove(memberId);
+		removeFrom(byAge, age, memberId);
+		// 사전과 trigram 은 남겨 두고 조회할 때 byUsername 으로 확인한다 (다시 적재하면 정리된다)
+		if ( username != null ) byUsername.computeIfPresent(username, (key, ids) -> ids.length == 1 && ids[0] == memberId ? null : without(ids, memberId));
+
+		if ( teamId != null ) removeFrom(byTeam, teamId, memberId);
+
+	}
+
+	void team(Long teamId, String teamName) {
+		teamNames.put(teamId, teamName);
+	}
+
+	void removeTeam(Long teamId) {
+		teamNames.remove(teamId);
+		byTeam.remove(teamId);
+	}
+
+	boolean hasTeamName(Long teamId) {
+		return teamNames.containsKey(teamId);
+	}
+
+	// 인덱스에 있는 가장 큰 member id (없으면 0)
+	int maxMemberId() {
+		return all.isEmpty() ? 0 : all.last();
+	}
+
+	/**
+	 * member left join team 에 조건을 건 count 와 같은 값. 조건별 비트맵을 작은 것부터 AND 한다
+	 */
+	long count(MemberSearchCondition condition) {
+		return count(condition, usernameMatches(condition, Long.MAX_VALUE));
+	}
+
+	/**
+	 * @param usernameMatches 이미 구한 {@link #usernameMatches(MemberSearchCondition, long)} 결과
+	 */
+	long count(MemberSearchCondition condition, RoaringBitmap usernameMatches) {
+
+		List<RoaringBitmap> filters = new ArrayList<>(3);
+
+		if ( usernameMatches != null ) {
+			if ( usernameMatches.isEmpty() ) return 0;
+			filters.add(usernameMatches);
+		}
+
+		if ( StringUtils.hasText(condition.getTeamName()) ) {
+
+			List<RoaringBitmap> teams = new ArrayList<>();
+			teamNames.forEach((teamId, teamName) -> {
+				if ( condition.getTeamName().equals(teamName) && byTeam.containsKey(teamId) ) teams.add(byTeam.get(teamId));
+			});
+
+			if ( teams.isEmpty() ) return 0;
+			filters.add(or(teams));
+
+		}
+
+		if ( condition.getAgeGoe() != null || condition.getAgeLoe() != null ) {
+
+			int from = condition.getAgeGoe() != null ? condition.getAgeGoe() : Integer.MIN_VALUE;
+			int to = condition.getAgeLoe() != null ? condition.getAgeLoe() : Integer.MAX_VALUE;
+
+			if ( from > to ) return 0;
+
+			NavigableMap<Integer, RoaringBitmap> ages = byAge.subMap(from, true, to, true);
+
+			if ( ages.isEmpty() ) return 0;
+			filters.add(or(new ArrayList<>(ages.values())));
+
+		}
+
+		if ( filters.isEmpty() ) return all.getLongCardinality();
+
+		filters.sort(Comparator.comparingLong(RoaringBitmap::getLongCardinality));
+
+		RoaringBitmap result = filters.get(0);
+
+		for ( int i=1; i<filters.size()-1; i++ ) {
+			result = RoaringBitmap.and(result, filters.get(i));
+		}
+
+		return filters.size() == 1 ? result.getLongCardinality() : RoaringBitmap.andCardinality(result, filters.get(filters.size() - 1));
+
+	}
+
+	/**
+	 * username 조건(일치, 시작, 포함)을 모두 만족하는 member id. username 조건이 없으면 null.
+	 * 모으는 중에 limit 건을 넘으면 거기서 멈추므로 결과가 limit 보다 크면 일부만 들어 있다
+	 */
+	RoaringBitmap usernameMatches(MemberSearchCondition condition, long limit) {
+
+		String username = StringUtils.hasText(condition.getUsername()) ? condition.getUsername() : null;
+		String prefix = StringUtils.hasText(condition.getUsernameStartsWith()) ? condition.getUsernameStartsWith() : null;
+		String fragment = StringUtils.hasText(condition.getUsernameContains()) ? condition.getUsernameContains() : null;
+
+		if ( username == null && prefix == null && fragment == null ) return null;
+
+		Predicate<String> accept = name -> (username == null || name.equals(username))
+										&& (prefix == null || name.startsWith(prefix))
+										&& (fragment == null || name.contains(fragment));
+
+		RoaringBitmap result = new RoaringBitmap();
+
+		// 가장 좁은 조건으로 후보 username 을 고르고 나머지 조건으로 확인한다
+		if ( username != null ) {
+			addMatches(result, username, accept);
+		} else if ( prefix != null ) {
+			for ( String name : byUsername.tailMap(prefix, true).keySet() ) {
+				if ( !name.startsWith(prefix) || !addMatches(result, name, accept, limit) ) break;
+			}
+		} else if ( fragment.length() < TRIGRAM_LENGTH ) {
+			// trigram 이 없는 짧은 문자열은 사전 전체를 본다
+			for ( String name : byUsername.keySet() ) {
+				if ( !addMatches(result, name, accept, limit) ) break;
+			}
+		} else {
+			RoaringBitmap codes = trigramCandidates(fragment);
+			if ( codes != null ) {
+				IntIterator it = codes.getIntIterator();
+				while ( it.hasNext() && addMatches(result, usernames.get(it.next()), accept, limit) );
+			}
+		}
+
+		return result;
+
+	}
+
+	private void addMatches(RoaringBitmap result, String name, Predicate<String> accept) {
+
+		int[] ids = byUsername.get(name);
+
+		if ( ids != null && accept.test(name) ) result.add(ids);
+
+	}
+
+	// limit 을 넘으면 false (더 모을 필요 없음)
+	private boolean addMatches(RoaringBitmap result, String name, Predicate<String> accept, long limit) {
+		addMatches(result, name, accept);
+		return result.getLongCardinality() <= limit;
+	}
+
+	// fragment 의 trigram 을 모두 가진 username 코드 (실제로 포함하는지는 호출한 쪽에서 확인)
+	private RoaringBitmap trigramCandidates(String fragment) {
+
+		RoaringBitmap result = null;
+
+		for ( int i=0; i+3<=fragment.length(); i++ ) {
+
+			RoaringBitmap codes = usernameTrigrams.get(trigram(fragment, i));
+
+			if ( codes == null ) return null;
+
+			result = result == null ? codes.clone() : RoaringBitmap.and(result, codes);
+
+			if ( result.isEmpty() ) return null;
+
+		}
+
+		return result;
+
+	}
+
+	private int indexTrigrams(String username) {
+
+		int code = usernames.size();
+		usernames.add(username);
+
+		for ( int i=0; i+3<=username.length(); i++ ) {
+			usernameTrigrams.computeIfAbsent(trigram(username, i), key -> new RoaringBitmap()).add(code);
+		}
+
+		return code;
+
+	}
+
+	// 연속한 세 글자(char 16비트씩)를 long 하나로
+	private static long trigram(String value, int from) {
+		return ((long) value.charAt(from) << 32) | ((long) value.charAt(from + 1) << 16) | value.charAt(from + 2);
+	}
+
+	private static RoaringBitmap or(List<RoaringBitmap> bitmaps) {
+		return bitmaps.size() == 1 ? bitmaps.get(0) : FastAggregation.or(bitmaps.iterator());
+	}
+
+	private static <K> void removeFrom(Map<K, RoaringBitmap> bitmaps, K key, int memberId) {
+
+		RoaringBitmap bitmap = bitmaps.get(key);
+
+		if ( bitmap == null ) return;
+
+		bitmap.remove(memberId);
+		if ( bitmap.isEmpty() ) bitmaps.remove(key);
+
+	}
+
+	private static boolean contains(int[] ids, int id) {
+		return Arrays.stream(ids).anyMatch(value -> value == id);
+	}
+
+	private static int[] append(int[] ids, int id) {
+		int[] result = Arrays.copyOf(ids, ids.length + 1);
+		result[ids.length] = id;
+		return result;
+	}
+
+	private static int[] without(int[] ids, int id) {
+		return Arrays.stream(ids).filter(value -> value != id).toArray();
+	}
+
+}
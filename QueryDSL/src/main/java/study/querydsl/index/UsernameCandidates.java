@@ -0,0 +1,41 @@
+package study.querydsl.index;
+
+import java.util.List;
+
+import org.roaringbitmap.RoaringBitmap;
+
+/**
+ * {@link MemberBitmapIndex#usernameCandidates} 결과.
+ *
+ * memberIds 는 인덱스가 찾은 id 에 아직 인덱스에 반영되지 않은 새 회원 id 를 더한 값이다.
+ * 인덱스가 찾은 비트맵은 같은 조건의 count 에서 다시 계산하지 않도록 함께 들고 있는다
+ */
+public final class UsernameCandidates {
+
+	private final List<Long> memberIds;
+	private final RoaringBitmap usernameMatches;
+	private final boolean caughtUp;
+
+	UsernameCandidates(List<Long> memberIds, RoaringBitmap usernameMatches, boolean caughtUp) {
+		this.memberIds = memberIds;
+		this.usernameMatches = usernameMatches;
+		this.caughtUp = caughtUp;
+	}
+
+	/**
+	 * member.id in (...) 으로 넘길 id
+	 */
+	public List<Long> getMemberIds() {
+		return memberIds;
+	}
+
+	RoaringBitmap getUsernameMatches() {
+		return usernameMatches;
+	}
+
+	// 인덱스에 없는 새 회원이 없었으면 인덱스 count 를 그대로 쓸 수 있다
+	boolean isCaughtUp() {
+		return caughtUp;
+	}
+
+}
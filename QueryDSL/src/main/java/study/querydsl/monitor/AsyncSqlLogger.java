@@ -0,0 +1,152 @@
+package study.querydsl.monitor;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+
+/**
+ * 요청 스레드에서는 SQL 을 링 버퍼에 넣기만 하고 포맷, 출력은 백그라운드 스레드가 한다.
+ *
+ * 모든 SQL 을 남기지 않고 sample-rate 비율만 남기되, slow-threshold 를 넘긴 SQL 은 항상 남긴다.
+ * 버퍼가 가득 차면 요청 스레드를 막지 않고 버린다. (버린 건수는 주기적으로 출력)
+ */
+@Component
+public class AsyncSqlLogger extends JdbcEventListener implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger("study.querydsl.sql");
+
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final boolean enabled;
+	private final double sampleRate;
+	private final long slowThresholdNanos;
+	private final SqlLogRingBuffer<SqlLogEvent> buffer;
+
+	private volatile boolean running;
+	private Thread writer;
+	private long reportedDropped;
+
+	public AsyncSqlLogger(
+			@Value("${querydsl.sql-log.enabled:true}") boolean enabled,
+			@Value("${querydsl.sql-log.sample-rate:0.01}") double sampleRate,
+			@Value("${querydsl.sql-log.slow-threshold:200ms}") Duration slowThreshold,
+			@Value("${querydsl.sql-log.buffer-size:8192}") int bufferSize) {
+		this.enabled = enabled;
+		this.sampleRate = sampleRate;
+		this.slowThresholdNanos = slowThreshold.toNanos();
+		this.buffer = new SqlLogRingBuffer<>(bufferSize);
+	}
+
+	@Override
+	public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+
+		if ( !running ) return;
+
+		boolean slow = timeElapsedNanos >= slowThresholdNanos;
+		if ( !slow && e == null && ThreadLocalRandom.current().nextDouble() >= sampleRate ) return;
+
+		// 바인딩 값을 채운 SQL 은 남길 때만 만든다
+		buffer.offer(new SqlLogEvent(
+				  System.currentTimeMillis()
+				, Thread.currentThread().getName()
+				, statementInformation.getConnectionInformation().getConnectionId()
+				, timeElapsedNanos
+				, statementInformation.getSqlWithValues()
+				, slow
+				, e != null ? e.getMessage() : null
+		));
+
+	}
+
+	@Override
+	public void start() {
+
+		if ( !enabled ) return;
+
+		running = true;
+		writer = new Thread(this::drainLoop, "sql-log-writer");
+		writer.setDaemon(true);
+		writer.start();
+
+	}
+
+	@Override
+	public void stop() {
+
+		running = false;
+
+		if ( writer == null ) return;
+
+		LockSupport.unpark(writer);
+
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(5));
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	private void drainLoop() {
+
+		while ( running ) {
+			if ( drain() == 0 ) LockSupport.parkNanos(IDLE_PARK_NANOS);
+		}
+
+		// 종료 전에 남은 로그를 모두 출력한다
+		drain();
+
+	}
+
+	private int drain() {
+
+		int written = 0;
+		SqlLogEvent event;
+
+		while ( (event = buffer.poll()) != null ) {
+			write(event);
+			written++;
+		}
+
+		long dropped = buffer.dropped();
+		if ( dropped != reportedDropped ) {
+			log.warn("sql log buffer full, {} statements dropped", dropped - reportedDropped);
+			reportedDropped = dropped;
+		}
+
+		return written;
+
+	}
+
+	private void write(SqlLogEvent event) {
+
+		long elapsedMicros = TimeUnit.NANOSECONDS.toMicros(event.getElapsedNanos());
+
+		if ( event.getError() != null ) {
+			log.warn("{} [{}] connection={} {}us error={} | {}", Instant.ofEpochMilli(event.getTimestampMillis()), event.getThreadName(), event.getConnectionId(), elapsedMicros, event.getError(), event.getSqlWithValues());
+		} else if ( event.isSlow() ) {
+			log.warn("{} [{}] connection={} {}us slow | {}", Instant.ofEpochMilli(event.getTimestampMillis()), event.getThreadName(), event.getConnectionId(), elapsedMicros, event.getSqlWithValues());
+		} else {
+			log.info("{} [{}] connection={} {}us | {}", Instant.ofEpochMilli(event.getTimestampMillis()), event.getThreadName(), event.getConnectionId(), elapsedMicros, event.getSqlWithValues());
+		}
+
+	}
+
+}
@@ -0,0 +1,56 @@
+package study.querydsl.monitor;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import study.querydsl.repository.support.CountCache;
+import study.querydsl.repository.support.QueryTemplateCache;
+
+/**
+ * count 캐시, JPQL 템플릿 캐시 적중률
+ *
+ * count 캐시는 Caffeine 이므로 maximum-size 초과, ttl 만료로 밀려난 건수도 내보낸다.
+ * CaffeineCacheMetrics 로 cache.gets, cache.puts, cache.evictions 등 표준 캐시 메트릭(cache=querydsl.count)도 함께 등록한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheMetricsBinder implements MeterBinder {
+
+	private final CountCache countCache;
+	private final QueryTemplateCache queryTemplateCache;
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+
+		FunctionCounter.builder("querydsl.cache.requests", countCache, cache -> cache.stats().hitCount())
+				.tags("cache", "count", "result", "hit")
+				.register(registry);
+		FunctionCounter.builder("querydsl.cache.requests", countCache, cache -> cache.stats().missCount())
+				.tags("cache", "count", "result", "miss")
+				.register(registry);
+		FunctionCounter.builder("querydsl.cache.evictions", countCache, cache -> cache.stats().evictionCount())
+				.tags("cache", "count")
+				.register(registry);
+		Gauge.builder("querydsl.cache.size", countCache, CountCache::size)
+				.tags("cache", "count")
+				.register(registry);
+		CaffeineCacheMetrics.monitor(registry, countCache.nativeCache(), "querydsl.count");
+
+		FunctionCounter.builder("querydsl.cache.requests", queryTemplateCache, QueryTemplateCache::hitCount)
+				.tags("cache", "queryTemplate", "result", "hit")
+				.register(registry);
+		FunctionCounter.builder("querydsl.cache.requests", queryTemplateCache, QueryTemplateCache::missCount)
+				.tags("cache", "queryTemplate", "result", "miss")
+				.register(registry);
+		Gauge.builder("querydsl.cache.size", queryTemplateCache, QueryTemplateCache::size)
+				.tags("cache", "queryTemplate")
+				.register(registry);
+
+	}
+
+}
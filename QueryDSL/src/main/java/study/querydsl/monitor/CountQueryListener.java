@@ -0,0 +1,34 @@
+package study.querydsl.monitor;
+
+import java.sql.SQLException;
+import java.util.regex.Pattern;
+
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+
+/**
+ * select count(...) 가 실행되면 진행 중인 리포지토리 호출에 표시한다. (RepositoryMetricsAspect 의 count 태그)
+ */
+@Component
+public class CountQueryListener extends JdbcEventListener implements TaskDecorator {
+
+	private static final Pattern COUNT = Pattern.compile("^\\s*(?:/\\*.*?\\*/\\s*)*select\\s+count\\s*\\(", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+	@Override
+	public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+
+		String sql = statementInformation.getSql();
+		if ( sql != null && COUNT.matcher(sql).find() ) RepositoryInvocation.markCountExecuted();
+
+	}
+
+	// 다른 스레드에서 실행되는 count 도 호출한 리포지토리 메서드에 기록되도록 넘긴다
+	@Override
+	public Runnable decorate(Runnable runnable) {
+		return RepositoryInvocation.propagate(runnable);
+	}
+
+}
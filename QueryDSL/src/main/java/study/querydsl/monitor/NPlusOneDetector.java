@@ -0,0 +1,134 @@
+package study.querydsl.monitor;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 요청(또는 트랜잭션) 안에서 같은 모양의 select 가 threshold 번을 넘게 반복되면 N+1 로 본다.
+ *
+ * 지연 로딩(Member.team, Team.members)이 행마다 쿼리를 날리는 경우를 잡기 위한 것으로
+ * warn 모드는 스코프가 끝날 때 로그를 남기고, fail 모드는 그 자리에서 예외를 던진다.
+ * 스코프는 {@link NPlusOneFilter} 가 요청마다 열고, 요청 밖이면 트랜잭션 단위로 연다.
+ */
+@Slf4j
+@Component
+public class NPlusOneDetector extends JdbcEventListener {
+
+	public enum Mode { OFF, WARN, FAIL }
+
+	private static final int MAX_CALL_SITES = 5;
+
+	// 호출 위치에서 뺄 탐지기 자신의 클래스 (같은 패키지의 다른 코드가 쿼리를 일으키면 그대로 남긴다)
+	private static final Set<String> DETECTOR_CLASSES = Set.of(
+			  NPlusOneDetector.class.getName()
+			, QueryScope.class.getName()
+			, NPlusOneFilter.class.getName()
+		);
+
+	private final Mode mode;
+	private final int threshold;
+	private final ThreadLocal<QueryScope> current = new ThreadLocal<>();
+
+	public NPlusOneDetector(
+			@Value("${querydsl.n-plus-one.mode:warn}") Mode mode,
+			@Value("${querydsl.n-plus-one.threshold:10}") int threshold) {
+		this.mode = mode;
+		this.threshold = threshold;
+	}
+
+	public QueryScope open(String name) {
+
+		QueryScope scope = current.get();
+		if ( scope != null ) return scope.nested();
+
+		QueryScope opened = new QueryScope(name, () -> close(current.get()));
+		current.set(opened);
+
+		return opened;
+
+	}
+
+	@Override
+	public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+
+		if ( mode == Mode.OFF ) return;
+
+		String sql = statementInformation.getSql();
+		if ( !SqlShapes.isTableQuery(sql) ) return;
+
+		QueryScope scope = current.get();
+		if ( scope == null ) scope = openForTransaction();
+		if ( scope == null ) return;
+
+		String shape = SqlShapes.normalize(sql);
+
+		// 모양마다 threshold 를 처음 넘는 순간에만 호출 위치를 남긴다
+		if ( scope.increment(shape) != threshold + 1 ) return;
+
+		QueryScope.Detection detection = new QueryScope.Detection(scope.getName(), shape, threshold, callSites());
+		scope.addDetection(detection);
+
+		if ( mode == Mode.FAIL ) throw new NPlusOneException(detection);
+
+	}
+
+	private QueryScope openForTransaction() {
+
+		if ( !TransactionSynchronizationManager.isSynchronizationActive() ) return null;
+
+		QueryScope scope = open("transaction " + Objects.toString(TransactionSynchronizationManager.getCurrentTransactionName(), ""));
+
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				scope.close();
+			}
+		});
+
+		return scope;
+
+	}
+
+	private void close(QueryScope scope) {
+
+		current.remove();
+
+		if ( scope == null || mode != Mode.WARN ) return;
+
+		for ( QueryScope.Detection detection : scope.getDetections() ) {
+			log.warn("N+1 suspected in [{}]: executed {} times (threshold {}): {}\n\tat {}",
+					detection.getScope(), scope.count(detection.getShape()), threshold, detection.getShape(), String.join("\n\tat ", detection.getCallSites()));
+		}
+
+	}
+
+	// 애플리케이션 코드 중 쿼리를 일으킨 위치 (프록시, 탐지기 자신은 제외)
+	private static List<String> callSites() {
+		return StackWalker.getInstance().walk(frames -> frames
+				.filter(frame -> frame.getClassName().startsWith("study.querydsl.")
+						&& !frame.getClassName().contains("$$")
+						&& !isDetectorClass(frame.getClassName()))
+				.limit(MAX_CALL_SITES)
+				.map(StackWalker.StackFrame::toString)
+				.toList());
+	}
+
+	// 내부 클래스(QueryScope$Detection, 익명 클래스)는 바깥 클래스 이름으로 본다
+	static boolean isDetectorClass(String className) {
+		int inner = className.indexOf('$');
+		return DETECTOR_CLASSES.contains(inner < 0 ? className : className.substring(0, inner));
+	}
+
+}
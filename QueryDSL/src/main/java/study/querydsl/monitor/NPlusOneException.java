@@ -0,0 +1,16 @@
+package study.querydsl.monitor;
+
+import lombok.Getter;
+
+@Getter
+public class NPlusOneException extends IllegalStateException {
+
+	private final QueryScope.Detection detection;
+
+	public NPlusOneException(QueryScope.Detection detection) {
+		super("N+1 suspected in [" + detection.getScope() + "]: same query executed more than " + detection.getThreshold()
+				+ " times: " + detection.getShape() + " at " + detection.getCallSites());
+		this.detection = detection;
+	}
+
+}
@@ -0,0 +1,32 @@
+package study.querydsl.monitor;
+
+import java.io.IOException;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 요청 하나를 N+1 검사 스코프로 묶는다. (트랜잭션이 여러 번 열려도 요청 단위로 센다)
+ */
+@Component
+@RequiredArgsConstructor
+public class NPlusOneFilter extends OncePerRequestFilter {
+
+	private final NPlusOneDetector detector;
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+
+		try ( QueryScope scope = detector.open(request.getMethod() + " " + request.getRequestURI()) ) {
+			filterChain.doFilter(request, response);
+		}
+
+	}
+
+}
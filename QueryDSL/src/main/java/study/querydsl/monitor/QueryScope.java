@@ -0,0 +1,86 @@
+package study.querydsl.monitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * 요청, 트랜잭션 하나 동안 실행된 select 를 SQL 모양별로 센다. ({@link NPlusOneDetector#open(String)})
+ */
+public class QueryScope implements AutoCloseable {
+
+	private final String name;
+	private final Map<String, Integer> counts;
+	private final List<Detection> detections;
+	private final Runnable onClose;
+
+	QueryScope(String name, Runnable onClose) {
+		this.name = name;
+		this.counts = new HashMap<>();
+		this.detections = new ArrayList<>();
+		this.onClose = onClose;
+	}
+
+	// 이미 열린 스코프 안에서 다시 열면 카운트를 공유하고 닫아도 아무 일도 하지 않는다
+	private QueryScope(QueryScope parent) {
+		this.name = parent.name;
+		this.counts = parent.counts;
+		this.detections = parent.detections;
+		this.onClose = () -> {};
+	}
+
+	QueryScope nested() {
+		return new QueryScope(this);
+	}
+
+	int increment(String shape) {
+		return counts.merge(shape, 1, Integer::sum);
+	}
+
+	void addDetection(Detection detection) {
+		detections.add(detection);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int count(String shape) {
+		return counts.getOrDefault(shape, 0);
+	}
+
+	public int statementCount() {
+		return counts.values().stream().mapToInt(Integer::intValue).sum();
+	}
+
+	public List<Detection> getDetections() {
+		return Collections.unmodifiableList(detections);
+	}
+
+	@Override
+	public void close() {
+		onClose.run();
+	}
+
+	/**
+	 * 같은 모양의 select 가 threshold 를 넘긴 시점의 호출 위치
+	 */
+	@Getter
+	@ToString
+	@RequiredArgsConstructor
+	public static class Detection {
+
+		private final String scope;
+		private final String shape;
+		private final int threshold;
+		private final List<String> callSites;
+
+	}
+
+}
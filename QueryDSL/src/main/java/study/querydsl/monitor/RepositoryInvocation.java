@@ -0,0 +1,81 @@
+package study.querydsl.monitor;
+
+/**
+ * 진행 중인 리포지토리 메서드 호출 (어떤 메서드인지, count 쿼리가 실행됐는지)
+ * count 를 다른 스레드에서 실행하는 경우({@code ConcurrentPageExecutor}) {@link #propagate(Runnable)} 로 넘긴다.
+ */
+final class RepositoryInvocation {
+
+	private static final ThreadLocal<RepositoryInvocation> CURRENT = new ThreadLocal<>();
+
+	private final RepositoryInvocation parent;
+	private final String method;
+	private volatile boolean countExecuted;
+
+	private RepositoryInvocation(RepositoryInvocation parent, String method) {
+		this.parent = parent;
+		this.method = method;
+	}
+
+	static RepositoryInvocation begin(String method) {
+
+		RepositoryInvocation invocation = new RepositoryInvocation(CURRENT.get(), method);
+		CURRENT.set(invocation);
+
+		return invocation;
+
+	}
+
+	void end() {
+
+		if ( parent == null ) {
+			CURRENT.remove();
+			return;
+		}
+
+		if ( countExecuted ) parent.countExecuted = true;
+		CURRENT.set(parent);
+
+	}
+
+	boolean isCountExecuted() {
+		return countExecuted;
+	}
+
+	// 가장 안쪽에서 실행 중인 리포지토리 메서드 (Repository.method)
+	static String currentMethod() {
+
+		RepositoryInvocation invocation = CURRENT.get();
+		return invocation != null ? invocation.method : null;
+
+	}
+
+	static void markCountExecuted() {
+
+		RepositoryInvocation invocation = CURRENT.get();
+		if ( invocation != null ) invocation.countExecuted = true;
+
+	}
+
+	static Runnable propagate(Runnable task) {
+
+		RepositoryInvocation captured = CURRENT.get();
+		if ( captured == null ) return task;
+
+		return () -> {
+
+			RepositoryInvocation previous = CURRENT.get();
+			CURRENT.set(captured);
+
+			try {
+				task.run();
+			} finally {
+				if ( previous == null ) CURRENT.remove();
+				else CURRENT.set(previous);
+			}
+
+		};
+
+	}
+
+}
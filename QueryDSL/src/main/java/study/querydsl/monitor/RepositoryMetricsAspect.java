@@ -0,0 +1,122 @@
+package study.querydsl.monitor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.repository.support.KeysetSlice;
+
+/**
+ * 리포지토리 메서드별 지연 시간, 조회 건수
+ *
+ * querydsl.repository (timer), querydsl.repository.rows (summary) 로 기록하고
+ * 어떤 검색 조건이 있었는지(shape), count 쿼리가 실행됐는지(count) 로 태그를 단다.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+	private final MeterRegistry meterRegistry;
+
+	@Around("execution(public * study.querydsl.repository.MemberRepositoryImpl.*(..))"
+			+ " || execution(public * study.querydsl.repository.MemberJpaRepository.*(..))"
+			+ " || (execution(public * study.querydsl.repository.support.Querydsl4RepositorySupport+.*(..))"
+			+ " && !execution(* set*(..)) && !execution(* validate()))")
+	public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+
+		String repository = ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName();
+		String method = joinPoint.getSignature().getName();
+
+		RepositoryInvocation invocation = RepositoryInvocation.begin(repository + "." + method);
+		Timer.Sample sample = Timer.start(meterRegistry);
+		String exception = "none";
+		Object result = null;
+
+		try {
+			result = joinPoint.proceed();
+			return result;
+		} catch ( Throwable t ) {
+			exception = t.getClass().getSimpleName();
+			throw t;
+		} finally {
+
+			invocation.end();
+
+			Tags tags = Tags.of(
+					  "repository", repository
+					, "method", method
+					, "shape", shapeOf(joinPoint.getArgs())
+					, "count", String.valueOf(invocation.isCountExecuted())
+			);
+
+			sample.stop(Timer.builder("querydsl.repository")
+					.tags(tags)
+					.tag("exception", exception)
+					.publishPercentileHistogram()
+					.register(meterRegistry));
+
+			Long rows = rowsOf(result);
+			if ( rows != null ) {
+				DistributionSummary.builder("querydsl.repository.rows")
+						.tags(tags)
+						.publishPercentileHistogram()
+						.register(meterRegistry)
+						.record(rows);
+			}
+
+		}
+
+	}
+
+	// username+teamName+ageGoe+ageLoe 중 값이 있는 조건 (최대 16가지), 검색 조건이 없는 메서드는 n/a
+	static String shapeOf(Object[] args) {
+
+		for ( Object arg : args ) {
+
+			if ( !(arg instanceof MemberSearchCondition condition) ) continue;
+
+			List<String> fields = new ArrayList<>(6);
+
+			if ( StringUtils.hasText(condition.getUsername()) ) fields.add("username");
+			if ( StringUtils.hasText(condition.getUsernameStartsWith()) ) fields.add("usernameStartsWith");
+			if ( StringUtils.hasText(condition.getUsernameContains()) ) fields.add("usernameContains");
+			if ( StringUtils.hasText(condition.getTeamName()) ) fields.add("teamName");
+			if ( condition.getAgeGoe() != null ) fields.add("ageGoe");
+			if ( condition.getAgeLoe() != null ) fields.add("ageLoe");
+
+			return fields.isEmpty() ? "none" : String.join("+", fields);
+
+		}
+
+		return "n/a";
+
+	}
+
+	private static Long rowsOf(Object result) {
+
+		if ( result instanceof Collection<?> collection ) return (long) collection.size();
+		if ( result instanceof Slice<?> slice ) return (long) slice.getNumberOfElements();
+		if ( result instanceof KeysetSlice<?> slice ) return (long) slice.getContent().size();
+		if ( result instanceof Optional<?> optional ) return optional.isPresent() ? 1L : 0L;
+
+		return null;
+
+	}
+
+}
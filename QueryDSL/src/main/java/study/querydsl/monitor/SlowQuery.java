@@ -0,0 +1,43 @@
+package study.querydsl.monitor;
+
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Getter;
+
+/**
+ * 느린 SQL 한 건 (SlowQueryStore)
+ */
+@Getter
+public class SlowQuery {
+
+	private final Instant timestamp;
+	@JsonIgnore
+	private final long elapsedNanos;
+	private final String sql;
+	private final String repositoryMethod;
+	private final String route;
+	private final String thread;
+	// 결과를 다 읽은 뒤에 채워진다 (-1 이면 알 수 없음)
+	private volatile int rows;
+
+	SlowQuery(long elapsedNanos, String sql, String repositoryMethod, String route, int rows) {
+		this.timestamp = Instant.now();
+		this.elapsedNanos = elapsedNanos;
+		this.sql = sql;
+		this.repositoryMethod = repositoryMethod;
+		this.route = route;
+		this.thread = Thread.currentThread().getName();
+		this.rows = rows;
+	}
+
+	public double getDurationMillis() {
+		return elapsedNanos / 1_000_000.0;
+	}
+
+	void setRows(int rows) {
+		this.rows = rows;
+	}
+
+}
@@ -0,0 +1,32 @@
+package study.querydsl.monitor;
+
+import java.util.List;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * GET /actuator/slowqueries : 가장 느린 SQL 목록, DELETE /actuator/slowqueries : 초기화
+ */
+@Component
+@Endpoint(id = "slowqueries")
+@RequiredArgsConstructor
+public class SlowQueryEndpoint {
+
+	private final SlowQueryStore store;
+
+	@ReadOperation
+	public List<SlowQuery> slowQueries() {
+		return store.snapshot();
+	}
+
+	@DeleteOperation
+	public void reset() {
+		store.reset();
+	}
+
+}
@@ -0,0 +1,88 @@
+package study.querydsl.monitor;
+
+import java.sql.SQLException;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.ResultSetInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 느린 SQL 을 실행한 리포지토리 메서드, HTTP 경로와 함께 SlowQueryStore 에 넣는다.
+ * select 의 행 수는 결과를 다 읽고 ResultSet 을 닫을 때 채운다.
+ */
+@Component
+@RequiredArgsConstructor
+public class SlowQueryListener extends JdbcEventListener {
+
+	private final SlowQueryStore store;
+
+	// 결과를 아직 읽고 있는 마지막 select
+	private final ThreadLocal<Pending> pending = new ThreadLocal<>();
+
+	@Override
+	public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+
+		if ( !store.isCandidate(timeElapsedNanos) ) return;
+
+		SlowQuery query = record(statementInformation, timeElapsedNanos, -1);
+		pending.set(new Pending(statementInformation, query));
+
+	}
+
+	@Override
+	public void onAfterExecuteUpdate(PreparedStatementInformation statementInformation, long timeElapsedNanos, int rowCount, SQLException e) {
+		if ( store.isCandidate(timeElapsedNanos) ) record(statementInformation, timeElapsedNanos, rowCount);
+	}
+
+	@Override
+	public void onAfterExecuteUpdate(StatementInformation statementInformation, long timeElapsedNanos, String sql, int rowCount, SQLException e) {
+		if ( store.isCandidate(timeElapsedNanos) ) record(statementInformation, timeElapsedNanos, rowCount);
+	}
+
+	@Override
+	public void onAfterResultSetClose(ResultSetInformation resultSetInformation, SQLException e) {
+
+		Pending last = pending.get();
+		if ( last == null || last.statement != resultSetInformation.getStatementInformation() ) return;
+
+		last.query.setRows(resultSetInformation.getCurrRow() + 1);
+		pending.remove();
+
+	}
+
+	private SlowQuery record(StatementInformation statementInformation, long timeElapsedNanos, int rows) {
+
+		SlowQuery query = new SlowQuery(timeElapsedNanos, statementInformation.getSqlWithValues(), RepositoryInvocation.currentMethod(), currentRoute(), rows);
+		store.offer(query);
+
+		return query;
+
+	}
+
+	// GET /v3/members 처럼 매핑된 URL 패턴 (요청 스레드가 아니면 null)
+	private static String currentRoute() {
+
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if ( !(attributes instanceof ServletRequestAttributes servletAttributes) ) return null;
+
+		HttpServletRequest request = servletAttributes.getRequest();
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+		return request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+
+	}
+
+	private record Pending(StatementInformation statement, SlowQuery query) {
+	}
+
+}
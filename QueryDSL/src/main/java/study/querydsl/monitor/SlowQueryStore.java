@@ -0,0 +1,68 @@
+package study.querydsl.monitor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 실행 시간이 가장 긴 SQL N 건을 메모리에 보관한다.
+ *
+ * 가득 찬 뒤에는 보관 중인 가장 빠른 SQL 보다 느린 것만 락을 잡고 넣으므로
+ * 대부분의 SQL 은 volatile 읽기 한 번으로 걸러진다.
+ */
+@Component
+public class SlowQueryStore {
+
+	private static final Comparator<SlowQuery> FASTEST_FIRST = Comparator.comparingLong(SlowQuery::getElapsedNanos);
+
+	private final int capacity;
+	private final long thresholdNanos;
+	private final PriorityQueue<SlowQuery> slowest;
+
+	// 보관 기준 (가득 찼을 때 보관 중인 가장 빠른 SQL 의 실행 시간)
+	private volatile long admissionNanos;
+
+	public SlowQueryStore(
+			@Value("${querydsl.slow-query.capacity:50}") int capacity,
+			@Value("${querydsl.slow-query.threshold:10ms}") Duration threshold) {
+		this.capacity = capacity;
+		this.thresholdNanos = threshold.toNanos();
+		this.slowest = new PriorityQueue<>(capacity + 1, FASTEST_FIRST);
+	}
+
+	public boolean isCandidate(long elapsedNanos) {
+		return elapsedNanos >= thresholdNanos && elapsedNanos > admissionNanos;
+	}
+
+	public synchronized void offer(SlowQuery query) {
+
+		if ( !isCandidate(query.getElapsedNanos()) ) return;
+
+		slowest.add(query);
+		if ( slowest.size() > capacity ) slowest.poll();
+
+		admissionNanos = slowest.size() == capacity ? slowest.peek().getElapsedNanos() : 0L;
+
+	}
+
+	// 느린 순서
+	public synchronized List<SlowQuery> snapshot() {
+
+		List<SlowQuery> queries = new ArrayList<>(slowest);
+		queries.sort(FASTEST_FIRST.reversed());
+
+		return queries;
+
+	}
+
+	public synchronized void reset() {
+		slowest.clear();
+		admissionNanos = 0L;
+	}
+
+}
@@ -0,0 +1,21 @@
+package study.querydsl.monitor;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 비동기 SQL 로그 한 건 (바인딩 값이 들어간 SQL)
+ */
+@Getter
+@RequiredArgsConstructor
+class SqlLogEvent {
+
+	private final long timestampMillis;
+	private final String threadName;
+	private final int connectionId;
+	private final long elapsedNanos;
+	private final String sqlWithValues;
+	private final boolean slow;
+	private final String error;
+
+}
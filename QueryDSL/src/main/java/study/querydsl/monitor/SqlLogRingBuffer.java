@@ -0,0 +1,73 @@
+package study.querydsl.monitor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 락 없는 고정 크기 링 버퍼 (생산자 여럿, 소비자 하나)
+ *
+ * 생산자는 tail 을 CAS 로 한 칸 예약하고 슬롯에 쓴다. 가득 차 있으면 기다리지 않고 버린다.
+ * 소비자는 예약만 되고 아직 쓰이지 않은 슬롯을 만나면 다음 poll 에서 다시 읽는다.
+ */
+class SqlLogRingBuffer<E> {
+
+	private final AtomicReferenceArray<E> slots;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+	private final AtomicLong head = new AtomicLong();
+	private final LongAdder dropped = new LongAdder();
+
+	SqlLogRingBuffer(int capacity) {
+
+		if ( capacity <= 0 || Integer.bitCount(capacity) != 1 ) throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+
+		this.slots = new AtomicReferenceArray<>(capacity);
+		this.mask = capacity - 1;
+
+	}
+
+	boolean offer(E element) {
+
+		long claimed;
+
+		do {
+			claimed = tail.get();
+			if ( claimed - head.get() >= slots.length() ) {
+				dropped.increment();
+				return false;
+			}
+		} while ( !tail.compareAndSet(claimed, claimed + 1) );
+
+		slots.lazySet((int) claimed & mask, element);
+
+		return true;
+
+	}
+
+	// 소비자 스레드 하나에서만 호출한다
+	E poll() {
+
+		long current = head.get();
+		int index = (int) current & mask;
+
+		E element = slots.get(index);
+		if ( element == null ) return null;
+
+		// 슬롯을 비운 뒤에 head 를 옮겨야 생산자가 비워진 슬롯에만 쓴다
+		slots.lazySet(index, null);
+		head.lazySet(current + 1);
+
+		return element;
+
+	}
+
+	int size() {
+		return (int) Math.max(0, tail.get() - head.get());
+	}
+
+	long dropped() {
+		return dropped.sum();
+	}
+
+}
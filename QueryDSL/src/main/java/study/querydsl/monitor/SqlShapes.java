@@ -0,0 +1,41 @@
+package study.querydsl.monitor;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * 바인딩 값, 주석, 공백 차이를 없앤 SQL 모양 (같은 쿼리를 값만 바꿔 반복 실행했는지 비교하는 키)
+ */
+public final class SqlShapes {
+
+	private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])\\d+(?:\\.\\d+)?\\b");
+	// batch fetch 의 in (?,?,?...) 는 개수와 상관없이 같은 모양으로 본다
+	private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	private static final Pattern QUERY = Pattern.compile("^\\s*(?:/\\*.*?\\*/\\s*)*(?:select|with)\\s", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+	private SqlShapes() {
+	}
+
+	public static String normalize(String sql) {
+
+		String shape = COMMENT.matcher(sql).replaceAll(" ");
+		shape = STRING_LITERAL.matcher(shape).replaceAll("?");
+		shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+		shape = IN_LIST.matcher(shape).replaceAll("(?)");
+		shape = WHITESPACE.matcher(shape).replaceAll(" ");
+
+		return shape.trim().toLowerCase(Locale.ROOT);
+
+	}
+
+	/**
+	 * 테이블을 읽는 select 인지 (select next value for ... 같은 시퀀스 조회는 제외)
+	 */
+	public static boolean isTableQuery(String sql) {
+		return sql != null && QUERY.matcher(sql).find() && sql.toLowerCase(Locale.ROOT).contains(" from ");
+	}
+
+}
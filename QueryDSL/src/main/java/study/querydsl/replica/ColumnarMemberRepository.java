@@ -0,0 +1,97 @@
+package study.querydsl.replica;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.RequiredArgsConstructor;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.MemberRepositoryCustom;
+import study.querydsl.repository.MemberRepositoryImpl;
+import study.querydsl.repository.support.KeysetSlice;
+
+/**
+ * search, searchPageComplex 를 {@link MemberReplica} 에서 응답하는 MemberRepositoryCustom.
+ * 복제본이 꺼져 있거나 최신이 아니면, 또는 쓰기 트랜잭션 안이면(아직 커밋되지 않은 쓰기를 봐야 하므로) {@link MemberRepositoryImpl} 로 조회한다.
+ * 결과는 member id 순이다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ColumnarMemberRepository implements MemberRepositoryCustom {
+
+	private final MemberReplica replica;
+	private final MemberRepositoryImpl memberRepositoryImpl;
+
+	@Override
+	public List<MemberTeamDto> search(MemberSearchCondition condition) {
+
+		// 복제본과 DB 가 같은 조건으로 거르도록 공백, 빈 문자열을 먼저 정리한다
+		MemberSearchCondition normalized = condition.normalize();
+		MemberColumns columns = columns();
+
+		if ( columns == null ) return memberRepositoryImpl.search(normalized);
+
+		long[] memberIds = columns.match(normalized);
+		List<MemberTeamDto> result = new ArrayList<>(memberIds.length);
+
+		for ( long memberId : memberIds ) {
+			result.add(columns.toDto(memberId));
+		}
+
+		return result;
+
+	}
+
+	@Override
+	public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+
+		MemberSearchCondition normalized = condition.normalize();
+		MemberColumns columns = columns();
+
+		if ( columns == null ) return memberRepositoryImpl.searchPageComplex(normalized, pageable);
+
+		// 건수는 일치하는 행 수 그대로이므로 count 쿼리가 따로 없다
+		long[] memberIds = columns.match(normalized);
+
+		int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), memberIds.length) : 0;
+		int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), memberIds.length) : memberIds.length;
+		List<MemberTeamDto> content = new ArrayList<>(to - from);
+
+		for ( int i=from; i<to; i++ ) {
+			content.add(columns.toDto(memberIds[i]));
+		}
+
+		return new PageImpl<>(content, pageable, memberIds.length);
+
+	}
+
+	@Override
+	public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+		return memberRepositoryImpl.searchPageSimple(condition, pageable);
+	}
+
+	@Override
+	public Page<MemberTeamDto> searchPageWindow(MemberSearchCondition condition, Pageable pageable) {
+		return memberRepositoryImpl.searchPageWindow(condition, pageable);
+	}
+
+	@Override
+	public KeysetSlice<MemberTeamDto> searchKeyset(MemberSearchCondition condition, String cursor, int size) {
+		return memberRepositoryImpl.searchKeyset(condition, cursor, size);
+	}
+
+	private MemberColumns columns() {
+
+		if ( TransactionSynchronizationManager.isActualTransactionActive() && !TransactionSynchronizationManager.isCurrentTransactionReadOnly() ) return null;
+
+		return replica.current();
+
+	}
+
+}
@@ -0,0 +1,463 @@
+package study.querydsl.replica;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.springframework.util.StringUtils;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+
+/**
+ * member left join team 결과를 컬럼별 배열로 들고 있는 읽기 전용 스냅샷.
+ *
+ * 행은 member id 순서이고, username 과 team 은 사전(dictionary) 코드로 바꿔 int 비교로 거른다.
+ * username 시작/포함 조건은 행 대신 사전을 한 번 훑어 허용할 코드를 표시해 둔다.
+ * 나이 범위 조건은 (age, id) 순으로 정렬한 행 번호(ageOrder)에서 이진 탐색한 구간만 본다.
+ *
+ * 적재 후의 변경은 배열을 그대로 두고 바뀐 회원, 팀 이름만 따로 들고 있는 새 스냅샷으로 만든다 ({@link #withMember}, {@link #withoutMember}, {@link #withTeam}).
+ * 조회는 배열의 결과에서 바뀐 회원을 빼고 바뀐 회원 중 조건에 맞는 것을 id 순으로 합친다.
+ * 바뀐 회원이 많아지면 {@link #compact()} 로 배열을 다시 만든다.
+ */
+final class MemberColumns {
+
+	private static final int NO_TEAM = -1;
+	private static final int[] EMPTY = new int[0];
+
+	private final int size;
+
+	private final long[] ids;
+	private final int[] ages;
+	private final int[] usernameCodes;
+	private final int[] teamCodes;
+
+	private final String[] usernames;
+	private final Map<String, Integer> usernameDictionary;
+	private final long[] teamIds;
+	private final String[] teamNames;
+	private final Map<Long, Integer> teamDictionary;
+	// 팀 이름은 유일하지 않다
+	private final Map<String, int[]> teamCodesByName;
+
+	private final int[] ageOrder;
+	private final int[] sortedAges;
+
+	// 적재 후 바뀐 회원 (member id 순, 값이 null 이면 삭제)과 팀 이름. 배열의 같은 id 행은 가린다
+	private final NavigableMap<Long, Row> changedMembers;
+	private final Map<Long, String> changedTeamNames;
+
+	private MemberColumns(Builder builder) {
+
+		this.size = builder.size;
+		this.ids = Arrays.copyOf(builder.ids, size);
+		this.ages = Arrays.copyOf(builder.ages, size);
+		this.usernameCodes = Arrays.copyOf(builder.usernameCodes, size);
+		this.teamCodes = Arrays.copyOf(builder.teamCodes, size);
+
+		this.usernames = builder.usernames.toArray(String[]::new);
+		this.usernameDictionary = builder.usernameDictionary;
+		this.teamIds = builder.teamIds.stream().mapToLong(Long::longValue).toArray();
+		this.teamNames = builder.teamNames.toArray(String[]::new);
+		this.teamDictionary = builder.teamDictionary;
+
+		Map<String, List<Integer>> byName = new HashMap<>();
+		for ( int code=0; code<teamNames.length; code++ ) {
+			byName.computeIfAbsent(teamNames[code], name -> new ArrayList<>()).add(code);
+		}
+		this.teamCodesByName = new HashMap<>();
+		byName.forEach((name, codes) -> teamCodesByName.put(name, codes.stream().mapToInt(Integer::intValue).toArray()));
+
+		// (age, 행 번호) 를 long 하나로 묶어 박싱 없이 정렬한다. 행 번호가 id 순이므로 (age, id) 순이 된다
+		long[] keys = new long[size];
+		for ( int row=0; row<size; row++ ) {
+			keys[row] = ((long) ages[row] << 32) | row;
+		}
+		Arrays.sort(keys);
+
+		this.ageOrder = new int[size];
+		this.sortedAges = new int[size];
+		for ( int i=0; i<size; i++ ) {
+			ageOrder[i] = (int) keys[i];
+			sortedAges[i] = (int) (keys[i] >> 32);
+		}
+
+		this.changedMembers = Collections.emptyNavigableMap();
+		this.changedTeamNames = Map.of();
+
+	}
+
+	// 배열은 공유하고 바뀐 값만 새로
+	private MemberColumns(MemberColumns base, NavigableMap<Long, Row> changedMembers, Map<Long, String> changedTeamNames) {
+
+		this.size = base.size;
+		this.ids = base.ids;
+		this.ages = base.ages;
+		this.usernameCodes = base.usernameCodes;
+		this.teamCodes = base.teamCodes;
+		this.usernames = base.usernames;
+		this.usernameDictionary = base.usernameDictionary;
+		this.teamIds = base.teamIds;
+		this.teamNames = base.teamNames;
+		this.teamDictionary = base.teamDictionary;
+		this.teamCodesByName = base.teamCodesByName;
+		this.ageOrder = base.ageOrder;
+		this.sortedAges = base.sortedAges;
+
+		this.changedMembers = changedMembers;
+		this.changedTeamNames = changedTeamNames;
+
+	}
+
+	int size() {
+		return size;
+	}
+
+	// 적재 후 바뀐 회원 수 (MemberReplica 가 compact 시점 판단에 사용)
+	int changeCount() {
+		return changedMembers.size();
+	}
+
+	boolean hasTeam(Long teamId) {
+		return changedTeamNames.containsKey(teamId) || teamDictionary.containsKey(teamId);
+	}
+
+	MemberColumns withMember(long memberId, String username, int age, Long teamId) {
+
+		NavigableMap<Long, Row> members = new TreeMap<>(changedMembers);
+		members.put(memberId, new Row(memberId, username, age, teamId));
+
+		return new MemberColumns(this, members, changedTeamNames);
+
+	}
+
+	MemberColumns withoutMember(long memberId) {
+
+		NavigableMap<Long, Row> members = new TreeMap<>(changedMembers);
+		members.put(memberId, null);
+
+		return new MemberColumns(this, members, changedTeamNames);
+
+	}
+
+	MemberColumns withTeam(Long teamId, String teamName) {
+
+		if ( Objects.equals(teamName(teamId), teamName) && hasTeam(teamId) ) return this;
+
+		Map<Long, String> teams = new HashMap<>(changedTeamNames);
+		teams.put(teamId, teamName);
+
+		return new MemberColumns(this, changedMembers, teams);
+
+	}
+
+	/**
+	 * 바뀐 값을 반영해서 배열을 다시 만든다
+	 */
+	MemberColumns compact() {
+
+		Builder builder = new Builder();
+		Iterator<Row> changed = changedMembers.values().stream().filter(Objects::nonNull).iterator();
+		Row next = changed.hasNext() ? changed.next() : null;
+
+		for ( int row=0; row<size; row++ ) {
+
+			long id = ids[row];
+
+			while ( next != null && next.id() < id ) {
+				add(builder, next);
+				next = changed.hasNext() ? changed.next() : null;
+			}
+
+			if ( changedMembers.containsKey(id) ) continue;
+
+			Long teamId = teamCodes[row] == NO_TEAM ? null : teamIds[teamCodes[row]];
+			builder.add(id, usernames[usernameCodes[row]], ages[row], teamId, teamName(teamId));
+
+		}
+
+		while ( next != null ) {
+			add(builder, next);
+			next = changed.hasNext() ? changed.next() : null;
+		}
+
+		return builder.build();
+
+	}
+
+	private void add(Builder builder, Row row) {
+		builder.add(row.id(), row.username(), row.age(), row.teamId(), teamName(row.teamId()));
+	}
+
+	/**
+	 * 조건에 맞는 member id (id 순). MemberSearchShape 와 같은 기준으로 조건 존재 여부를 판단한다.
+	 */
+	long[] match(MemberSearchCondition condition) {
+
+		int[] rows = matchRows(condition);
+
+		if ( changedMembers.isEmpty() ) {
+			long[] result = new long[rows.length];
+			for ( int i=0; i<rows.length; i++ ) result[i] = ids[rows[i]];
+			return result;
+		}
+
+		// 배열의 결과(바뀐 회원은 뺀다)와 바뀐 회원 중 맞는 것을 id 순으로 합친다
+		long[] result = new long[rows.length + changedMembers.size()];
+		int count = 0;
+		int i = 0;
+
+		for ( Row changed : changedMembers.values() ) {
+
+			if ( changed == null || !accept(changed, condition) ) continue;
+
+			for ( ; i<rows.length && ids[rows[i]] < changed.id(); i++ ) {
+				if ( !changedMembers.containsKey(ids[rows[i]]) ) result[count++] = ids[rows[i]];
+			}
+
+			result[count++] = changed.id();
+
+		}
+
+		for ( ; i<rows.length; i++ ) {
+			if ( !changedMembers.containsKey(ids[rows[i]]) ) result[count++] = ids[rows[i]];
+		}
+
+		return Arrays.copyOf(result, count);
+
+	}
+
+	// 배열에서 조건에 맞는 행 번호 (id 순)
+	private int[] matchRows(MemberSearchCondition condition) {
+
+		boolean[] acceptedUsernames = null;
+
+		if ( StringUtils.hasText(condition.getUsername()) ) {
+			Integer code = usernameDictionary.get(condition.getUsername());
+			if ( code == null || !matchesPattern(usernames[code], condition) ) return EMPTY;
+			acceptedUsernames = new boolean[usernames.length];
+			acceptedUsernames[code] = true;
+		} else if ( StringUtils.hasText(condition.getUsernameStartsWith()) || StringUtils.hasText(condition.getUsernameContains()) ) {
+			acceptedUsernames = new boolean[usernames.length];
+			for ( int code=0; code<usernames.length; code++ ) {
+				acceptedUsernames[code] = matchesPattern(usernames[code], condition);
+			}
+		}
+
+		boolean[] acceptedTeams = null;
+
+		// teamName 조건이 있으면 inner join 과 같이 팀이 없는 회원은 빠진다
+		if ( StringUtils.hasText(condition.getTeamName()) ) {
+			if ( changedTeamNames.isEmpty() ) {
+				int[] codes = teamCodesByName.get(condition.getTeamName());
+				if ( codes == null ) return EMPTY;
+				acceptedTeams = new boolean[teamNames.length];
+				for ( int code : codes ) acceptedTeams[code] = true;
+			} else {
+				// 이름이 바뀐 팀이 있으면 팀마다 지금 이름으로 비교한다
+				acceptedTeams = new boolean[teamNames.length];
+				for ( int code=0; code<teamNames.length; code++ ) {
+					acceptedTeams[code] = condition.getTeamName().equals(teamName(teamIds[code]));
+				}
+			}
+		}
+
+		boolean ageBounded = condition.getAgeGoe() != null || condition.getAgeLoe() != null;
+
+		if ( !ageBounded ) {
+
+			int[] result = new int[size];
+			int count = 0;
+
+			for ( int row=0; row<size; row++ ) {
+				if ( accept(row, acceptedUsernames, acceptedTeams) ) result[count++] = row;
+			}
+
+			return Arrays.copyOf(result, count);
+
+		}
+
+		int from = condition.getAgeGoe() != null ? lowerBound(condition.getAgeGoe()) : 0;
+		int to = condition.getAgeLoe() != null ? upperBound(condition.getAgeLoe()) : size;
+
+		if ( from >= to ) return EMPTY;
+
+		int[] result = new int[to - from];
+		int count = 0;
+
+		for ( int i=from; i<to; i++ ) {
+			int row = ageOrder[i];
+			if ( accept(row, acceptedUsernames, acceptedTeams) ) result[count++] = row;
+		}
+
+		// 행 번호 순 = id 순으로 되돌린다
+		int[] rows = Arrays.copyOf(result, count);
+		Arrays.sort(rows);
+
+		return rows;
+
+	}
+
+	/**
+	 * {@link #match} 가 돌려준 id 의 행
+	 */
+	MemberTeamDto toDto(long memberId) {
+
+		Row changed = changedMembers.get(memberId);
+
+		if ( changed != null ) return new MemberTeamDto(changed.id(), changed.username(), changed.age(), changed.teamId(), teamName(changed.teamId()));
+
+		int row = Arrays.binarySearch(ids, 0, size, memberId);
+		Long teamId = teamCodes[row] == NO_TEAM ? null : teamIds[teamCodes[row]];
+
+		return new MemberTeamDto(
+								  ids[row]
+								, usernames[usernameCodes[row]]
+								, ages[row]
+								, teamId
+								, teamName(teamId)
+								);
+
+	}
+
+	// 바뀐 이름이 있으면 그 이름
+	private String teamName(Long teamId) {
+
+		if ( teamId == null ) return null;
+		if ( changedTeamNames.containsKey(teamId) ) return changedTeamNames.get(teamId);
+
+		Integer code = teamDictionary.get(teamId);
+
+		return code == null ? null : teamNames[code];
+
+	}
+
+	// 바뀐 회원 한 건을 matchRows 와 같은 기준으로 확인한다
+	private boolean accept(Row row, MemberSearchCondition condition) {
+
+		if ( StringUtils.hasText(condition.getUsername()) && !condition.getUsername().equals(row.username()) ) return false;
+		if ( !matchesPattern(row.username(), condition) ) return false;
+		if ( StringUtils.hasText(condition.getTeamName()) && (row.teamId() == null || !condition.getTeamName().equals(teamName(row.teamId()))) ) return false;
+		if ( condition.getAgeGoe() != null && row.age() < condition.getAgeGoe() ) return false;
+		if ( condition.getAgeLoe() != null && row.age() > condition.getAgeLoe() ) return false;
+
+		return true;
+
+	}
+
+	private boolean accept(int row, boolean[] acceptedUsernames, boolean[] acceptedTeams) {
+
+		if ( acceptedUsernames != null && !acceptedUsernames[usernameCodes[row]] ) return false;
+		if ( acceptedTeams != null && (teamCodes[row] == NO_TEAM || !acceptedTeams[teamCodes[row]]) ) return false;
+
+		return true;
+
+	}
+
+	// like 'x%' / like '%x%' 와 같은 기준 (대소문자 구분)
+	private static boolean matchesPattern(String username, MemberSearchCondition condition) {
+
+		if ( username == null ) return false;
+		if ( StringUtils.hasText(condition.getUsernameStartsWith()) && !username.startsWith(condition.getUsernameStartsWith()) ) return false;
+		if ( StringUtils.hasText(condition.getUsernameContains()) && !username.contains(condition.getUsernameContains()) ) return false;
+
+		return true;
+
+	}
+
+	// age 이상인 첫 위치
+	private int lowerBound(int age) {
+
+		int low = 0;
+		int high = size;
+
+		while ( low < high ) {
+			int mid = (low + high) >>> 1;
+			if ( sortedAges[mid] < age ) low = mid + 1;
+			else high = mid;
+		}
+
+		return low;
+
+	}
+
+	// age 초과인 첫 위치
+	private int upperBound(int age) {
+
+		int low = 0;
+		int high = size;
+
+		while ( low < high ) {
+			int mid = (low + high) >>> 1;
+			if ( sortedAges[mid] <= age ) low = mid + 1;
+			else high = mid;
+		}
+
+		return low;
+
+	}
+
+	/**
+	 * id 순으로 행을 받아 컬럼을 채운다. 전체 건수를 미리 알 수 없으므로 배열을 늘려가며 쓴다.
+	 */
+	static class Builder {
+
+		private int size;
+
+		private long[] ids = new long[1024];
+		private int[] ages = new int[1024];
+		private int[] usernameCodes = new int[1024];
+		private int[] teamCodes = new int[1024];
+
+		private final List<String> usernames = new ArrayList<>();
+		private final Map<String, Integer> usernameDictionary = new HashMap<>();
+		private final List<Long> teamIds = new ArrayList<>();
+		private final List<String> teamNames = new ArrayList<>();
+		private final Map<Long, Integer> teamDictionary = new HashMap<>();
+
+		Builder add(long id, String username, int age, Long teamId, String teamName) {
+
+			if ( size == ids.length ) {
+				int capacity = size * 2;
+				ids = Arrays.copyOf(ids, capacity);
+				ages = Arrays.copyOf(ages, capacity);
+				usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+				teamCodes = Arrays.copyOf(teamCodes, capacity);
+			}
+
+			ids[size] = id;
+			ages[size] = age;
+			usernameCodes[size] = usernameDictionary.computeIfAbsent(username, name -> {
+				usernames.add(name);
+				return usernames.size() - 1;
+			});
+			teamCodes[size] = teamId == null ? NO_TEAM : teamDictionary.computeIfAbsent(teamId, key -> {
+				teamIds.add(key);
+				teamNames.add(teamName);
+				return teamIds.size() - 1;
+			});
+
+			size++;
+
+			return this;
+
+		}
+
+		MemberColumns build() {
+			return new MemberColumns(this);
+		}
+
+	}
+
+	// 적재 후 바뀐 회원 (팀 이름은 읽을 때 찾는다)
+	private record Row(long id, String username, int age, Long teamId) {
+	}
+
+}
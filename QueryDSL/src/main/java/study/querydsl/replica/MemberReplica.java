@@ -0,0 +1,284 @@
+package study.querydsl.replica;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.repository.support.DebouncedTask;
+import study.querydsl.repository.support.MemberChangeHandler;
+import study.querydsl.repository.support.MemberRow;
+
+/**
+ * Member/Team 의 메모리 읽기 복제본 ({@link MemberColumns}).
+ *
+ * 커밋된 Member/Team 변경({@link MemberChangeHandler})은 바뀐 회원만 스냅샷에 더해서 바로 반영하고,
+ * 바뀐 회원이 compact-threshold 를 넘으면 메모리에서 배열을 다시 만든다.
+ * 어떤 행이 바뀌었는지 모르는 DML (벌크 연산, JPQL/네이티브 executeUpdate) 후에는 refresh-delay 뒤에 DB 에서 다시 적재하고,
+ * 그때까지 {@link #current()} 는 null 이라 호출하는 쪽은 DB 로 조회한다.
+ * 적재하거나 배열을 다시 만드는 동안 들어온 변경은 모아 두었다가 새 스냅샷에 다시 적용한다 (같은 변경을 두 번 적용해도 결과가 같다).
+ * 다른 인스턴스의 쓰기는 알 수 없으므로 refresh-interval 마다 다시 적재한다 (그만큼 늦게 반영될 수 있다).
+ */
+@Slf4j
+@Component
+public class MemberReplica implements MemberChangeHandler, DisposableBean {
+
+	private final SessionFactory sessionFactory;
+	private final boolean enabled;
+	private final Duration refreshDelay;
+	private final int fetchSize;
+	private final int compactThreshold;
+	private final DebouncedTask refreshTask;
+	private final DebouncedTask compactTask;
+
+	// 아래는 changeLock 으로 보호 (columns 는 읽을 때 잠그지 않는다)
+	private final Object changeLock = new Object();
+	private volatile MemberColumns columns;
+	private volatile boolean stale = true;
+	private List<UnaryOperator<MemberColumns>> journal;
+	private long staleGeneration;
+
+	public MemberReplica(
+			EntityManagerFactory emf,
+			@Value("${querydsl.replica.enabled:false}") boolean enabled,
+			@Value("${querydsl.replica.refresh-delay:1s}") Duration refreshDelay,
+			@Value("${querydsl.stream.fetch-size:500}") int fetchSize,
+			@Value("${querydsl.replica.compact-threshold:1000}") int compactThreshold) {
+
+		this.sessionFactory = emf.unwrap(SessionFactory.class);
+		this.enabled = enabled;
+		this.refreshDelay = refreshDelay;
+		this.fetchSize = fetchSize;
+		this.compactThreshold = compactThreshold;
+
+		this.refreshTask = new DebouncedTask("member-replica-refresh", this::refresh);
+		this.compactTask = new DebouncedTask("member-replica-compact", this::compact);
+
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * 최신 스냅샷. 꺼져 있거나, 아직 적재 전이거나, 바뀐 행을 모르는 쓰기 후 다시 적재하기 전이면 null
+	 */
+	MemberColumns current() {
+		return stale ? null : columns;
+	}
+
+	public boolean isFresh() {
+		return current() != null;
+	}
+
+	/**
+	 * DB 에서 다시 적재한다 (StatelessSession 스크롤, member id 순)
+	 */
+	public synchronized void refresh() {
+
+		if ( !enabled ) return;
+
+		long generation;
+
+		synchronized ( changeLock ) {
+			generation = staleGeneration;
+			journal = new ArrayList<>();
+		}
+
+		Instant started = Instant.now();
+		MemberColumns.Builder builder = new MemberColumns.Builder();
+
+		try ( StatelessSession session = sessionFactory.openStatelessSession();
+			  ScrollableResults<Object[]> rows = session
+					.createQuery("select m.id, m.username, m.age, t.id, t.name from Member m left join m.team t order by m.id", Object[].class)
+					.setFetchSize(fetchSize)
+					.setReadOnly(true)
+					.scroll(ScrollMode.FORWARD_ONLY) ) {
+
+			while ( rows.next() ) {
+				Object[] row = rows.get();
+				builder.add((Long) row[0], (String) row[1], (Integer) row[2], (Long) row[3], (String) row[4]);
+			}
+
+		} catch ( RuntimeException e ) {
+			discardJournal();
+			throw e;
+		}
+
+		MemberColumns loaded = builder.build();
+
+		synchronized ( changeLock ) {
+			columns = replayJournal(loaded);
+			// 적재하는 동안 바뀐 행을 모르는 쓰기가 있었으면 그 결과가 반영됐는지 알 수 없다
+			stale = staleGeneration != generation;
+		}
+
+		log.info("member replica loaded {} rows in {} ms (fresh: {})", loaded.size(), Duration.between(started, Instant.now()).toMillis(), isFresh());
+
+	}
+
+	/**
+	 * 바뀐 회원을 배열에 합쳐 스냅샷을 다시 만든다 (DB 를 읽지 않는다)
+	 */
+	public synchronized void compact() {
+
+		MemberColumns base;
+
+		synchronized ( changeLock ) {
+			if ( columns == null || columns.changeCount() == 0 ) return;
+			base = columns;
+			journal = new ArrayList<>();
+		}
+
+		MemberColumns compacted;
+
+		try {
+			compacted = base.compact();
+		} catch ( RuntimeException e ) {
+			discardJournal();
+			throw e;
+		}
+
+		synchronized ( changeLock ) {
+			columns = replayJournal(compacted);
+		}
+
+	}
+
+	@Override
+	public void memberInserted(MemberRow member) {
+		saveMember(member);
+	}
+
+	@Override
+	public void memberUpdated(MemberRow before, MemberRow after) {
+		saveMember(after);
+	}
+
+	@Override
+	public void memberDeleted(MemberRow member) {
+		apply(columns -> columns.withoutMember(member.memberId()));
+	}
+
+	@Override
+	public void teamSaved(Long teamId, String teamName) {
+		apply(columns -> columns.withTeam(teamId, teamName));
+	}
+
+	// 팀을 지우기 전에 회원의 팀이 먼저 바뀌므로 (외래 키) 따로 할 일이 없다
+	@Override
+	public void teamDeleted(Long teamId) {
+	}
+
+	@Override
+	public void unknownChange() {
+		markStale();
+	}
+
+	/**
+	 * 바뀐 행을 모르는 쓰기가 있었다. 현재 스냅샷은 바로 최신이 아니게 되고 refresh-delay 뒤에 다시 적재한다.
+	 * 그 사이의 쓰기는 한 번의 적재로 묶인다.
+	 */
+	void markStale() {
+
+		if ( !enabled ) return;
+
+		synchronized ( changeLock ) {
+			stale = true;
+			staleGeneration++;
+		}
+
+		refreshTask.schedule(refreshDelay);
+
+	}
+
+	private void saveMember(MemberRow member) {
+
+		// 프록시(getReference)로 연결되어 이름을 모르는 새 팀이면 다시 적재해서 채운다
+		if ( member.teamId() != null && member.teamName() == null && !hasTeam(member.teamId()) ) {
+			markStale();
+			return;
+		}
+
+		apply(columns -> {
+			MemberColumns changed = member.teamName() != null ? columns.withTeam(member.teamId(), member.teamName()) : columns;
+			return changed.withMember(member.memberId(), member.username(), member.age(), member.teamId());
+		});
+
+	}
+
+	private void apply(UnaryOperator<MemberColumns> change) {
+
+		if ( !enabled ) return;
+
+		boolean compactNeeded;
+
+		synchronized ( changeLock ) {
+			if ( columns != null ) columns = change.apply(columns);
+			if ( journal != null ) journal.add(change);
+			compactNeeded = columns != null && columns.changeCount() > compactThreshold;
+		}
+
+		if ( compactNeeded ) compactTask.schedule(Duration.ZERO);
+
+	}
+
+	private boolean hasTeam(Long teamId) {
+		MemberColumns current = columns;
+		return current != null && current.hasTeam(teamId);
+	}
+
+	// changeLock 안에서 호출
+	private MemberColumns replayJournal(MemberColumns fresh) {
+
+		MemberColumns replayed = fresh;
+
+		for ( UnaryOperator<MemberColumns> change : journal ) {
+			replayed = change.apply(replayed);
+		}
+
+		journal = null;
+
+		return replayed;
+
+	}
+
+	private void discardJournal() {
+		synchronized ( changeLock ) {
+			journal = null;
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		if ( enabled ) refreshTask.schedule(Duration.ZERO);
+	}
+
+	// 적재하는 동안에는 이전 스냅샷을 그대로 쓴다
+	@Scheduled(initialDelayString = "${querydsl.replica.refresh-interval:PT1M}", fixedDelayString = "${querydsl.replica.refresh-interval:PT1M}")
+	public void scheduledRefresh() {
+		if ( enabled ) refreshTask.schedule(Duration.ZERO);
+	}
+
+	@Override
+	public void destroy() {
+		refreshTask.shutdown();
+		compactTask.shutdown();
+	}
+
+}
@@ -3,14 +3,26 @@ package study.querydsl.repository;
 import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 
 import jakarta.persistence.EntityManager;
@@ -18,18 +30,41 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
+import study.querydsl.index.MemberBitmapIndex;
+import study.querydsl.index.UsernameCandidates;
+import study.querydsl.repository.support.InClauseChunks;
+import study.querydsl.repository.support.QueryTemplateCache;
 
+// 조회 메서드는 읽기 전용 트랜잭션 (FlushMode.MANUAL, 스냅샷 없음), 쓰기 메서드만 따로 @Transactional
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
 
 	private final EntityManager em;
 	private final JPAQueryFactory queryFactory;
+	private final QueryTemplateCache queryTemplateCache;
+	private final MemberBitmapIndex bitmapIndex;
+	private final int streamFetchSize;
+	private final int multiKeyChunkSize;
+	private final boolean queryCacheEnabled;
 	
-	public MemberJpaRepository(EntityManager em) {
+	public MemberJpaRepository(
+			EntityManager em,
+			QueryTemplateCache queryTemplateCache,
+			MemberBitmapIndex bitmapIndex,
+			@Value("${querydsl.stream.fetch-size:500}") int streamFetchSize,
+			@Value("${querydsl.multi-key.chunk-size:512}") int multiKeyChunkSize,
+			@Value("${querydsl.query-cache.enabled:false}") boolean queryCacheEnabled) {
 		this.em = em;
 		this.queryFactory = new JPAQueryFactory(em);
+		this.queryTemplateCache = queryTemplateCache;
+		this.bitmapIndex = bitmapIndex;
+		this.streamFetchSize = streamFetchSize;
+		this.multiKeyChunkSize = multiKeyChunkSize;
+		this.queryCacheEnabled = queryCacheEnabled;
 	}
 	
+	@Transactional
 	public void save(Member member) {
 		em.persist(member);
 	}
@@ -39,20 +74,27 @@ public class MemberJpaRepository {
 		return Optional.ofNullable(findMember);
 	}
 	
+	// 읽기 전용 트랜잭션에서만 읽기 전용 힌트를 준다. 호출한 쪽의 쓰기 트랜잭션에 참여하면 findById 처럼 관리되는 엔티티를 돌려준다
 	public List<Member> findAll() {
-		return em.createQuery("select m from Member m", Member.class).getResultList();
+		return em.createQuery("select m from Member m", Member.class)
+				.setHint(HibernateHints.HINT_READ_ONLY, readOnlyTransaction())
+				.getResultList();
 	}
 	
 	public List<Member> findAll_QueryDsl() {
 		return queryFactory
 				.select(member)
 				.from(member)
+				.setHint(HibernateHints.HINT_READ_ONLY, readOnlyTransaction())
 				.fetch();
 	}
 	
+	// querydsl.query-cache.enabled 일 때만 query cache 를 쓴다 (벌크 update/delete 가 member 테이블의 캐시된 결과를 무효화한다)
 	public List<Member> findByUsername(String username) {
 		return em.createQuery("select m from Member m where m.username = :username", Member.class)
 				.setParameter("username", username)
+				.setHint(HibernateHints.HINT_CACHEABLE, queryCacheEnabled)
+				.setHint(HibernateHints.HINT_READ_ONLY, readOnlyTransaction())
 				.getResultList();
 	}
 	
@@ -61,9 +103,61 @@ public class MemberJpaRepository {
 				.select(member)
 				.from(member)
 				.where(member.username.eq(username))
+				.setHint(HibernateHints.HINT_CACHEABLE, queryCacheEnabled)
+				.setHint(HibernateHints.HINT_READ_ONLY, readOnlyTransaction())
 				.fetch();
 	}
 	
+	// findById 를 키마다 반복하는 대신 in 절 묶음으로 조회. 입력 순서대로, 없는 id 는 빠진다
+	// findById 처럼 관리되는 엔티티를 돌려주므로 읽기 전용 힌트를 주지 않는다 (쓰기 트랜잭션에서 변경하면 반영된다)
+	public Map<Long, Member> findAllByIds(Collection<Long> ids) {
+		
+		Map<Long, Member> found = new HashMap<>();
+		
+		for ( List<Long> chunk : InClauseChunks.split(ids, multiKeyChunkSize) ) {
+			queryFactory
+				.selectFrom(member)
+				.where(member.id.in(chunk))
+				.fetch()
+				.forEach(findMember -> found.put(findMember.getId(), findMember));
+		}
+		
+		Map<Long, Member> result = new LinkedHashMap<>();
+		
+		for ( Long id : ids ) {
+			Member findMember = found.get(id);
+			if ( findMember != null ) result.put(id, findMember);
+		}
+		
+		return result;
+		
+	}
+	
+	// username 은 유일하지 않으므로 username 별 목록. 입력 순서대로, 없는 username 은 빠진다 (findAllByIds 처럼 관리되는 엔티티)
+	public Map<String, List<Member>> findAllByUsernames(Collection<String> usernames) {
+		
+		Map<String, List<Member>> found = new HashMap<>();
+		
+		for ( List<String> chunk : InClauseChunks.split(usernames, multiKeyChunkSize) ) {
+			queryFactory
+				.selectFrom(member)
+				.where(member.username.in(chunk))
+				.orderBy(member.id.asc())
+				.fetch()
+				.forEach(findMember -> found.computeIfAbsent(findMember.getUsername(), key -> new ArrayList<>()).add(findMember));
+		}
+		
+		Map<String, List<Member>> result = new LinkedHashMap<>();
+		
+		for ( String username : usernames ) {
+			List<Member> members = found.get(username);
+			if ( members != null ) result.put(username, members);
+		}
+		
+		return result;
+		
+	}
+	
 	// Booleanbuilder를 통해 동적쿼리 생성 
 	public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
 		
@@ -71,6 +165,12 @@ public class MemberJpaRepository {
 		
 		if ( StringUtils.hasText(condition.getUsername()) )
 			builder.and(member.username.eq(condition.getUsername()));
+		
+		if ( StringUtils.hasText(condition.getUsernameStartsWith()) )
+			builder.and(member.username.startsWith(condition.getUsernameStartsWith()));
+		
+		if ( StringUtils.hasText(condition.getUsernameContains()) )
+			builder.and(member.username.contains(condition.getUsernameContains()));
 			
 		if ( StringUtils.hasText(condition.getTeamName()) )
 			builder.and(team.name.eq(condition.getTeamName()));
@@ -98,9 +198,46 @@ public class MemberJpaRepository {
 		
 	}
 	
+	// 조건 조합별로 직렬화해 둔 JPQL 을 재사용하고 파라미터만 바인딩
 	public List<MemberTeamDto> searchByWhereParam(MemberSearchCondition condition) {
 		
-		return queryFactory
+		// usernameContains 는 trigram 색인에서 찾은 후보 id 로 먼저 좁힌다
+		List<Long> memberIds = bitmapIndex.usernameCandidates(condition, em).map(UsernameCandidates::getMemberIds).orElse(null);
+		
+		if ( memberIds != null && memberIds.isEmpty() ) return List.of();
+		
+		int shape = MemberSearchShape.of(condition, memberIds);
+		
+		return queryTemplateCache
+				.get("MemberJpaRepository.searchByWhereParam", shape, em, () -> searchByWhereParamTemplate(shape))
+				.fetch(em, MemberSearchShape.params(condition, memberIds));
+		
+	}
+	
+	private JPAQuery<MemberTeamDto> searchByWhereParamTemplate(int shape) {
+		
+		JPAQuery<MemberTeamDto> query = queryFactory
+				.select(
+							new QMemberTeamDto(
+												  member.id.as("memberId")
+												, member.username
+												, member.age
+												, team.id.as("teamId")
+												, team.name.as("teamName")
+											  )
+						)
+				.from(member);
+		
+		return MemberSearchShape.joinTeam(query, shape)
+				.where(MemberSearchShape.where(shape));
+		
+	}
+
+	// 결과를 메모리에 모으지 않고 fetch size 단위로 커서를 넘기며 한 건씩 전달
+	// DTO 프로젝션이라 영속성 컨텍스트에 엔티티가 쌓이지 않는다
+	public void streamByWhereParam(MemberSearchCondition condition, Consumer<MemberTeamDto> action) {
+		
+		try ( Stream<MemberTeamDto> stream = queryFactory
 				.select(
 							new QMemberTeamDto(
 												  member.id.as("memberId")
@@ -114,18 +251,38 @@ public class MemberJpaRepository {
 				.leftJoin(member.team, team)
 				.where(
 						  usernameEq(condition.getUsername())
+						, usernameStartsWith(condition.getUsernameStartsWith())
+						, usernameContains(condition.getUsernameContains())
 						, teamNameEq(condition.getTeamName())
 						, ageGoe(condition.getAgeGoe())
 						, ageLoe(condition.getAgeLoe())
 					  )
-				.fetch();
+				.setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize)
+				.setHint(HibernateHints.HINT_READ_ONLY, true)
+				.stream() ) {
+			
+			stream.forEach(action);
+			
+		}
 		
 	}
-
+	
+	private static boolean readOnlyTransaction() {
+		return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+	
 	private BooleanExpression usernameEq(String username) {
 		return StringUtils.hasText(username) ? member.username.eq(username) : null;
 	}
 
+	private BooleanExpression usernameStartsWith(String prefix) {
+		return StringUtils.hasText(prefix) ? member.username.startsWith(prefix) : null;
+	}
+
+	private BooleanExpression usernameContains(String fragment) {
+		return StringUtils.hasText(fragment) ? member.username.contains(fragment) : null;
+	}
+
 	private BooleanExpression teamNameEq(String teamName) {
 		return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
 	}
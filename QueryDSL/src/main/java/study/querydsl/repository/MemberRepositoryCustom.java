@@ -7,6 +7,7 @@ import org.springframework.data.domain.Pageable;
 
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.KeysetSlice;
 
 public interface MemberRepositoryCustom {
 
@@ -16,4 +17,8 @@ public interface MemberRepositoryCustom {
 	
 	Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
 	
+	Page<MemberTeamDto> searchPageWindow(MemberSearchCondition condition, Pageable pageable);
+	
+	KeysetSlice<MemberTeamDto> searchKeyset(MemberSearchCondition condition, String cursor, int size);
+	
 }
@@ -4,6 +4,8 @@ import static study.querydsl.entity.QMember.member;
 import static study.querydsl.entity.QTeam.team;
 
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
@@ -12,7 +14,11 @@ import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.util.StringUtils;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.ParamExpression;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 
@@ -20,38 +26,46 @@ import jakarta.persistence.EntityManager;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
-import study.querydsl.entity.Member;
+import study.querydsl.index.MemberBitmapIndex;
+import study.querydsl.index.UsernameCandidates;
+import study.querydsl.repository.support.ConcurrentPageExecutor;
+import study.querydsl.repository.support.CountCache;
+import study.querydsl.repository.support.KeysetCursor;
+import study.querydsl.repository.support.KeysetSlice;
+import study.querydsl.repository.support.QueryTemplate;
+import study.querydsl.repository.support.QueryTemplateCache;
 
 public class MemberRepositoryImpl implements MemberRepositoryCustom {
 
+	// 페이징 전 전체 건수를 컨텐츠 행마다 함께 돌려주는 윈도우 함수
+	private static final NumberExpression<Long> TOTAL_COUNT = Expressions.numberTemplate(Long.class, "count(*) over()");
+	
+	private final EntityManager em;
 	private final JPAQueryFactory queryFactory;
+	private final CountCache countCache;
+	private final QueryTemplateCache queryTemplateCache;
+	private final ConcurrentPageExecutor pageExecutor;
+	private final MemberBitmapIndex bitmapIndex;
 	
-	public MemberRepositoryImpl(EntityManager em) {
+	public MemberRepositoryImpl(EntityManager em, CountCache countCache, QueryTemplateCache queryTemplateCache, ConcurrentPageExecutor pageExecutor, MemberBitmapIndex bitmapIndex) {
+		this.em = em;
 		this.queryFactory = new JPAQueryFactory(em);
+		this.countCache = countCache;
+		this.queryTemplateCache = queryTemplateCache;
+		this.pageExecutor = pageExecutor;
+		this.bitmapIndex = bitmapIndex;
 	}
 	
+	// 조건 조합별로 직렬화해 둔 JPQL 을 재사용하고 파라미터만 바인딩
 	@Override
 	public List<MemberTeamDto> search(MemberSearchCondition condition) {
 		
-		return queryFactory
-				.select(
-							new QMemberTeamDto(
-												  member.id.as("memberId")
-												, member.username
-												, member.age
-												, team.id.as("teamId")
-												, team.name.as("teamName")
-											  )
-						)
-				.from(member)
-				.leftJoin(member.team, team)
-				.where(
-						  usernameEq(condition.getUsername())
-						, teamNameEq(condition.getTeamName())
-						, ageGoe(condition.getAgeGoe())
-						, ageLoe(condition.getAgeLoe())
-					  )
-				.fetch();
+		// usernameContains 는 trigram 색인에서 찾은 후보 id 로 먼저 좁힌다
+		List<Long> memberIds = bitmapIndex.usernameCandidates(condition, em).map(UsernameCandidates::getMemberIds).orElse(null);
+		
+		if ( memberIds != null && memberIds.isEmpty() ) return List.of();
+		
+		return searchTemplate(MemberSearchShape.of(condition, memberIds)).fetch(em, MemberSearchShape.params(condition, memberIds));
 		
 	}
 
@@ -72,6 +86,8 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
 				.leftJoin(member.team, team)
 				.where(
 						  usernameEq(condition.getUsername())
+						, usernameStartsWith(condition.getUsernameStartsWith())
+						, usernameContains(condition.getUsernameContains())
 						, teamNameEq(condition.getTeamName())
 						, ageGoe(condition.getAgeGoe())
 						, ageLoe(condition.getAgeLoe())
@@ -90,6 +106,102 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
 	@Override
 	public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
 		
+		// 같은 조건으로 페이지를 넘길 때 count 쿼리를 반복하지 않도록 정규화한 조건을 캐시 키로 사용
+		MemberSearchCondition normalized = condition.normalize();
+		
+		UsernameCandidates candidates = bitmapIndex.usernameCandidates(normalized, em).orElse(null);
+		List<Long> memberIds = candidates != null ? candidates.getMemberIds() : null;
+		
+		if ( memberIds != null && memberIds.isEmpty() ) return PageableExecutionUtils.getPage(List.of(), pageable, () -> 0L);
+		
+		// offset, limit 은 JPQL 에 포함되지 않으므로 search() 와 같은 템플릿을 쓴다
+		QueryTemplate<MemberTeamDto> contentTemplate = searchTemplate(MemberSearchShape.of(normalized, memberIds));
+		Map<ParamExpression<?>, Object> params = MemberSearchShape.params(normalized, memberIds);
+		
+//		long total = queryFactory
+//				.select(member)
+//				.from(member)
+//				.leftJoin(member.team, team)
+//				.where(
+//						  usernameEq(condition.getUsername())
+//						, teamNameEq(condition.getTeamName())
+//						, ageGoe(condition.getAgeGoe())
+//						, ageLoe(condition.getAgeLoe())
+//					  )
+//				.fetchCount();
+		
+		JPAQuery<Long> countQuery = MemberSearchShape.joinTeam(queryFactory
+				.select(member.count())
+				.from(member), MemberSearchShape.of(normalized))
+				.where(
+						  usernameEq(normalized.getUsername())
+						, usernameStartsWith(normalized.getUsernameStartsWith())
+						, usernameContains(normalized.getUsernameContains())
+						, teamNameEq(normalized.getTeamName())
+						, ageGoe(normalized.getAgeGoe())
+						, ageLoe(normalized.getAgeLoe())
+					  );
+		
+		// 비트맵 인덱스를 쓸 수 있으면 count 쿼리 없이 비트맵 교집합으로 건수를 구한다 (후보를 구할 때 찾은 username 결과를 다시 쓴다)
+		OptionalLong indexedCount = bitmapIndex.count(normalized, candidates);
+		
+		if ( indexedCount.isPresent() ) {
+			List<MemberTeamDto> content = contentTemplate.fetch(em, params, pageable.getOffset(), pageable.getPageSize());
+			return PageableExecutionUtils.getPage(content, pageable, indexedCount::getAsLong);
+		}
+		
+		// 컨텐츠와 count 를 동시에 실행 (count 는 별도 EntityManager)
+		return pageExecutor.getPage(
+									  pageable
+									, () -> contentTemplate.fetch(em, params, pageable.getOffset(), pageable.getPageSize())
+									, countEm -> countCache.get(normalized, countEm, () -> fetchTotal(countQuery.clone(countEm)))
+									, em
+								   );
+//		return new PageImpl<MemberTeamDto>(result, pageable, total);
+		
+	}
+	
+	// count(*) over() 로 컨텐츠와 전체 건수를 한 번의 쿼리로 조회
+	@Override
+	public Page<MemberTeamDto> searchPageWindow(MemberSearchCondition condition, Pageable pageable) {
+		
+		QMemberTeamDto memberTeamDto = new QMemberTeamDto(
+															  member.id.as("memberId")
+															, member.username
+															, member.age
+															, team.id.as("teamId")
+															, team.name.as("teamName")
+														 );
+		
+		List<Tuple> result = queryFactory
+				.select(memberTeamDto, TOTAL_COUNT)
+				.from(member)
+				.leftJoin(member.team, team)
+				.where(
+						  usernameEq(condition.getUsername())
+						, usernameStartsWith(condition.getUsernameStartsWith())
+						, usernameContains(condition.getUsernameContains())
+						, teamNameEq(condition.getTeamName())
+						, ageGoe(condition.getAgeGoe())
+						, ageLoe(condition.getAgeLoe())
+					  )
+				.offset(pageable.getOffset())
+				.limit(pageable.getPageSize())
+				.fetch();
+		
+		List<MemberTeamDto> content = result.stream().map(tuple -> tuple.get(memberTeamDto)).toList();
+		
+		// 마지막 페이지를 넘어선 요청이면 행이 없어 건수를 알 수 없으므로 count 쿼리로 대체
+		return PageableExecutionUtils.getPage(content, pageable, () -> result.isEmpty() ? countByCondition(condition) : result.get(0).get(TOTAL_COUNT));
+		
+	}
+	
+	// offset 없이 (age, memberId) 커서 이후만 조회
+	@Override
+	public KeysetSlice<MemberTeamDto> searchKeyset(MemberSearchCondition condition, String cursor, int size) {
+		
+		KeysetSlice.checkSize(size);
+		
 		List<MemberTeamDto> result = queryFactory
 				.select(
 							new QMemberTeamDto(
@@ -104,46 +216,75 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
 				.leftJoin(member.team, team)
 				.where(
 						  usernameEq(condition.getUsername())
+						, usernameStartsWith(condition.getUsernameStartsWith())
+						, usernameContains(condition.getUsernameContains())
 						, teamNameEq(condition.getTeamName())
 						, ageGoe(condition.getAgeGoe())
 						, ageLoe(condition.getAgeLoe())
+						, keysetAfter(KeysetCursor.decode(cursor))
 					  )
-				.offset(pageable.getOffset())
-				.limit(pageable.getPageSize())
+				.orderBy(member.age.asc(), member.id.asc())
+				.limit(size + 1L)
 				.fetch();
 		
-//		long total = queryFactory
-//				.select(member)
-//				.from(member)
-//				.leftJoin(member.team, team)
-//				.where(
-//						  usernameEq(condition.getUsername())
-//						, teamNameEq(condition.getTeamName())
-//						, ageGoe(condition.getAgeGoe())
-//						, ageLoe(condition.getAgeLoe())
-//					  )
-//				.fetchCount();
+		return KeysetSlice.of(result, size, MemberTeamDto::getAge, MemberTeamDto::getMemberId);
 		
-		JPAQuery<Member> countQuery = queryFactory
-				.select(member)
+	}
+	
+	private QueryTemplate<MemberTeamDto> searchTemplate(int shape) {
+		
+		return queryTemplateCache.get("MemberRepositoryImpl.search", shape, em, () -> MemberSearchShape.joinTeam(queryFactory
+				.select(
+							new QMemberTeamDto(
+												  member.id.as("memberId")
+												, member.username
+												, member.age
+												, team.id.as("teamId")
+												, team.name.as("teamName")
+											  )
+						)
+				.from(member), shape)
+				.where(MemberSearchShape.where(shape)));
+		
+	}
+	
+	private long countByCondition(MemberSearchCondition condition) {
+		
+		Long count = queryFactory
+				.select(member.count())
 				.from(member)
 				.leftJoin(member.team, team)
 				.where(
 						  usernameEq(condition.getUsername())
+						, usernameStartsWith(condition.getUsernameStartsWith())
+						, usernameContains(condition.getUsernameContains())
 						, teamNameEq(condition.getTeamName())
 						, ageGoe(condition.getAgeGoe())
 						, ageLoe(condition.getAgeLoe())
-					  );
+					  )
+				.fetchOne();
 		
-		return PageableExecutionUtils.getPage(result, pageable, () -> countQuery.fetchCount());
-//		return new PageImpl<MemberTeamDto>(result, pageable, total);
+		return count != null ? count : 0L;
 		
 	}
 	
+	private static long fetchTotal(JPAQuery<Long> countQuery) {
+		Long total = countQuery.fetchOne();
+		return total != null ? total : 0L;
+	}
+	
 	private BooleanExpression usernameEq(String username) {
 		return StringUtils.hasText(username) ? member.username.eq(username) : null;
 	}
 
+	private BooleanExpression usernameStartsWith(String prefix) {
+		return StringUtils.hasText(prefix) ? member.username.startsWith(prefix) : null;
+	}
+
+	private BooleanExpression usernameContains(String fragment) {
+		return StringUtils.hasText(fragment) ? member.username.contains(fragment) : null;
+	}
+
 	private BooleanExpression teamNameEq(String teamName) {
 		return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
 	}
@@ -155,5 +296,9 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom {
 	private BooleanExpression ageLoe(Integer ageLoe) {
 		return ageLoe != null ? member.age.loe(ageLoe) : null;
 	}
+
+	private BooleanExpression keysetAfter(KeysetCursor cursor) {
+		return cursor != null ? cursor.after(member.age, member.id) : null;
+	}
 	
 }
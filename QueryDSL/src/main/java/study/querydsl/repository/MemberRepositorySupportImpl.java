@@ -14,16 +14,23 @@ import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.util.StringUtils;
 
 import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
+import study.querydsl.repository.support.KeysetCursor;
+import study.querydsl.repository.support.KeysetSlice;
 
 public class MemberRepositorySupportImpl extends QuerydslRepositorySupport implements MemberRepositoryCustom {
 
+	private static final NumberExpression<Long> TOTAL_COUNT = Expressions.numberTemplate(Long.class, "count(*) over()");
+	
 	public MemberRepositorySupportImpl() {
 		super(Member.class);
 	}
@@ -35,6 +42,8 @@ public class MemberRepositorySupportImpl extends QuerydslRepositorySupport imple
 									.leftJoin(member.team, team)
 									.where(
 											  usernameEq(condition.getUsername())
+											, usernameStartsWith(condition.getUsernameStartsWith())
+											, usernameContains(condition.getUsernameContains())
 											, teamNameEq(condition.getTeamName())
 											, ageGoe(condition.getAgeGoe())
 											, ageLoe(condition.getAgeLoe())
@@ -61,6 +70,8 @@ public class MemberRepositorySupportImpl extends QuerydslRepositorySupport imple
 										.leftJoin(member.team, team)
 										.where(
 												  usernameEq(condition.getUsername())
+												, usernameStartsWith(condition.getUsernameStartsWith())
+												, usernameContains(condition.getUsernameContains())
 												, teamNameEq(condition.getTeamName())
 												, ageGoe(condition.getAgeGoe())
 												, ageLoe(condition.getAgeLoe())
@@ -77,10 +88,9 @@ public class MemberRepositorySupportImpl extends QuerydslRepositorySupport imple
 		
 		JPQLQuery<MemberTeamDto> query = getQuerydsl().applyPagination(pageable, jpqlQuery);
 		
-		List<MemberTeamDto> content = query.fetchResults().getResults();
-		long total = query.fetchResults().getTotal();
+		QueryResults<MemberTeamDto> result = query.fetchResults();
 		
-		return new PageImpl<MemberTeamDto>(content, pageable, total);
+		return new PageImpl<MemberTeamDto>(result.getResults(), pageable, result.getTotal());
 		
 	}
 	
@@ -91,6 +101,8 @@ public class MemberRepositorySupportImpl extends QuerydslRepositorySupport imple
 				.leftJoin(member.team, team)
 				.where(
 						  usernameEq(condition.getUsername())
+						, usernameStartsWith(condition.getUsernameStartsWith())
+						, usernameContains(condition.getUsernameContains())
 						, teamNameEq(condition.getTeamName())
 						, ageGoe(condition.getAgeGoe())
 						, ageLoe(condition.getAgeLoe())
@@ -111,6 +123,8 @@ public class MemberRepositorySupportImpl extends QuerydslRepositorySupport imple
 		long count = from(member)
 		.where(
 				  usernameEq(condition.getUsername())
+				, usernameStartsWith(condition.getUsernameStartsWith())
+				, usernameContains(condition.getUsernameContains())
 				, teamNameEq(condition.getTeamName())
 				, ageGoe(condition.getAgeGoe())
 				, ageLoe(condition.getAgeLoe())
@@ -122,10 +136,100 @@ public class MemberRepositorySupportImpl extends QuerydslRepositorySupport imple
 		
 	}
 	
+	@Override
+	public Page<MemberTeamDto> searchPageWindow(MemberSearchCondition condition, Pageable pageable) {
+		
+		QMemberTeamDto memberTeamDto = new QMemberTeamDto(
+															  member.id.as("memberId")
+															, member.username
+															, member.age
+															, team.id.as("teamId")
+															, team.name.as("teamName")
+														 );
+		
+		JPQLQuery<Tuple> jpqlQuery = from(member)
+										.leftJoin(member.team, team)
+										.where(
+												  usernameEq(condition.getUsername())
+												, usernameStartsWith(condition.getUsernameStartsWith())
+												, usernameContains(condition.getUsernameContains())
+												, teamNameEq(condition.getTeamName())
+												, ageGoe(condition.getAgeGoe())
+												, ageLoe(condition.getAgeLoe())
+											  )
+										.select(memberTeamDto, TOTAL_COUNT);
+		
+		List<Tuple> result = getQuerydsl().applyPagination(pageable, jpqlQuery).fetch();
+		List<MemberTeamDto> content = result.stream().map(tuple -> tuple.get(memberTeamDto)).toList();
+		
+		return PageableExecutionUtils.getPage(content, pageable, () -> result.isEmpty() ? countByCondition(condition) : result.get(0).get(TOTAL_COUNT));
+		
+	}
+	
+	@Override
+	public KeysetSlice<MemberTeamDto> searchKeyset(MemberSearchCondition condition, String cursor, int size) {
+		
+		KeysetSlice.checkSize(size);
+		
+		List<MemberTeamDto> result = from(member)
+									.leftJoin(member.team, team)
+									.where(
+											  usernameEq(condition.getUsername())
+											, usernameStartsWith(condition.getUsernameStartsWith())
+											, usernameContains(condition.getUsernameContains())
+											, teamNameEq(condition.getTeamName())
+											, ageGoe(condition.getAgeGoe())
+											, ageLoe(condition.getAgeLoe())
+											, keysetAfter(KeysetCursor.decode(cursor))
+										  )
+									.select(
+											new QMemberTeamDto(
+																  member.id.as("memberId")
+																, member.username
+																, member.age
+																, team.id.as("teamId")
+																, team.name.as("teamName")
+															  )
+										)
+									.orderBy(member.age.asc(), member.id.asc())
+									.limit(size + 1L)
+									.fetch();
+		
+		return KeysetSlice.of(result, size, MemberTeamDto::getAge, MemberTeamDto::getMemberId);
+		
+	}
+	
+	private long countByCondition(MemberSearchCondition condition) {
+		
+		Long count = from(member)
+					.leftJoin(member.team, team)
+					.where(
+							  usernameEq(condition.getUsername())
+							, usernameStartsWith(condition.getUsernameStartsWith())
+							, usernameContains(condition.getUsernameContains())
+							, teamNameEq(condition.getTeamName())
+							, ageGoe(condition.getAgeGoe())
+							, ageLoe(condition.getAgeLoe())
+						  )
+					.select(member.count())
+					.fetchOne();
+		
+		return count != null ? count : 0L;
+		
+	}
+	
 	private BooleanExpression usernameEq(String username) {
 		return StringUtils.hasText(username) ? member.username.eq(username) : null;
 	}
 
+	private BooleanExpression usernameStartsWith(String prefix) {
+		return StringUtils.hasText(prefix) ? member.username.startsWith(prefix) : null;
+	}
+
+	private BooleanExpression usernameContains(String fragment) {
+		return StringUtils.hasText(fragment) ? member.username.contains(fragment) : null;
+	}
+
 	private BooleanExpression teamNameEq(String teamName) {
 		return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
 	}
@@ -137,5 +241,9 @@ public class MemberRepositorySupportImpl extends QuerydslRepositorySupport imple
 	private BooleanExpression ageLoe(Integer ageLoe) {
 		return ageLoe != null ? member.age.loe(ageLoe) : null;
 	}
+
+	private BooleanExpression keysetAfter(KeysetCursor cursor) {
+		return cursor != null ? cursor.after(member.age, member.id) : null;
+	}
 	
 }
@@ -0,0 +1,125 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.util.StringUtils;
+
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import study.querydsl.dto.MemberSearchCondition;
+
+/**
+ * MemberSearchCondition 중 어떤 조건이 있는지를 비트로 나타낸 값 (QueryTemplateCache 의 키)
+ * 조건 값은 Param 으로 두고 실행할 때 {@link #params(MemberSearchCondition)} 로 바인딩한다.
+ */
+final class MemberSearchShape {
+
+	static final int USERNAME = 1;
+	static final int TEAM_NAME = 1 << 1;
+	static final int AGE_GOE = 1 << 2;
+	static final int AGE_LOE = 1 << 3;
+	static final int USERNAME_STARTS_WITH = 1 << 4;
+	static final int USERNAME_CONTAINS = 1 << 5;
+	// usernameContains 후보 member id (MemberBitmapIndex 의 trigram 색인). 조건 값이 아니라 실행 시점에 정해진다
+	static final int MEMBER_IDS = 1 << 6;
+
+	// JPQLTemplates 의 like escape 문자와 같다
+	private static final char LIKE_ESCAPE = '!';
+
+	private static final Param<String> USERNAME_PARAM = new Param<>(String.class, "username");
+	private static final Param<String> USERNAME_STARTS_WITH_PARAM = new Param<>(String.class, "usernameStartsWith");
+	private static final Param<String> USERNAME_CONTAINS_PARAM = new Param<>(String.class, "usernameContains");
+	@SuppressWarnings("rawtypes")
+	private static final Param<Collection> MEMBER_IDS_PARAM = new Param<>(Collection.class, "memberIds");
+	private static final Param<String> TEAM_NAME_PARAM = new Param<>(String.class, "teamName");
+	private static final Param<Integer> AGE_GOE_PARAM = new Param<>(Integer.class, "ageGoe");
+	private static final Param<Integer> AGE_LOE_PARAM = new Param<>(Integer.class, "ageLoe");
+
+	private MemberSearchShape() {
+	}
+
+	// usernameEq, usernameStartsWith, usernameContains, teamNameEq, ageGoe, ageLoe 와 같은 기준으로 조건 존재 여부를 판단
+	static int of(MemberSearchCondition condition) {
+
+		int shape = 0;
+
+		if ( StringUtils.hasText(condition.getUsername()) ) shape |= USERNAME;
+		if ( StringUtils.hasText(condition.getTeamName()) ) shape |= TEAM_NAME;
+		if ( condition.getAgeGoe() != null ) shape |= AGE_GOE;
+		if ( condition.getAgeLoe() != null ) shape |= AGE_LOE;
+		if ( StringUtils.hasText(condition.getUsernameStartsWith()) ) shape |= USERNAME_STARTS_WITH;
+		if ( StringUtils.hasText(condition.getUsernameContains()) ) shape |= USERNAME_CONTAINS;
+
+		return shape;
+
+	}
+
+	/**
+	 * @param memberIds usernameContains 후보 id. 없으면(null) like 만으로 거른다
+	 */
+	static int of(MemberSearchCondition condition, Collection<Long> memberIds) {
+		return memberIds != null ? of(condition) | MEMBER_IDS : of(condition);
+	}
+
+	// team.name 조건이 있으면 team 이 없는 member 는 어차피 걸러지므로 inner join 으로 바꿔
+	// team 의 name 인덱스에서 시작하는 조인 순서를 DB 가 고를 수 있게 한다
+	static <T> JPAQuery<T> joinTeam(JPAQuery<T> query, int shape) {
+		return has(shape, TEAM_NAME) ? query.join(member.team, team) : query.leftJoin(member.team, team);
+	}
+
+	static BooleanExpression[] where(int shape) {
+		return new BooleanExpression[] {
+				  has(shape, USERNAME) ? member.username.eq(USERNAME_PARAM) : null
+				, has(shape, TEAM_NAME) ? team.name.eq(TEAM_NAME_PARAM) : null
+				, has(shape, AGE_GOE) ? member.age.goe(AGE_GOE_PARAM) : null
+				, has(shape, AGE_LOE) ? member.age.loe(AGE_LOE_PARAM) : null
+				// 접두어 like 는 username 인덱스 범위 탐색이 된다
+				, has(shape, USERNAME_STARTS_WITH) ? member.username.like(USERNAME_STARTS_WITH_PARAM, LIKE_ESCAPE) : null
+				, has(shape, USERNAME_CONTAINS) ? member.username.like(USERNAME_CONTAINS_PARAM, LIKE_ESCAPE) : null
+				// 후보 id 가 있으면 pk 로 먼저 좁히고 like 는 후보 행에서만 확인한다
+				, has(shape, MEMBER_IDS) ? Expressions.booleanTemplate("{0} in ({1})", member.id, MEMBER_IDS_PARAM) : null
+		};
+	}
+
+	static Map<ParamExpression<?>, Object> params(MemberSearchCondition condition) {
+		return params(condition, null);
+	}
+
+	static Map<ParamExpression<?>, Object> params(MemberSearchCondition condition, Collection<Long> memberIds) {
+
+		int shape = of(condition, memberIds);
+		Map<ParamExpression<?>, Object> params = new HashMap<>();
+
+		if ( has(shape, USERNAME) ) params.put(USERNAME_PARAM, condition.getUsername());
+		if ( has(shape, TEAM_NAME) ) params.put(TEAM_NAME_PARAM, condition.getTeamName());
+		if ( has(shape, AGE_GOE) ) params.put(AGE_GOE_PARAM, condition.getAgeGoe());
+		if ( has(shape, AGE_LOE) ) params.put(AGE_LOE_PARAM, condition.getAgeLoe());
+		if ( has(shape, USERNAME_STARTS_WITH) ) params.put(USERNAME_STARTS_WITH_PARAM, escapeLike(condition.getUsernameStartsWith()) + "%");
+		if ( has(shape, USERNAME_CONTAINS) ) params.put(USERNAME_CONTAINS_PARAM, "%" + escapeLike(condition.getUsernameContains()) + "%");
+		if ( has(shape, MEMBER_IDS) ) params.put(MEMBER_IDS_PARAM, memberIds);
+
+		return params;
+
+	}
+
+	// 입력값의 %, _ 는 와일드카드가 아니라 문자로 찾는다
+	private static String escapeLike(String value) {
+		return value.replace(String.valueOf(LIKE_ESCAPE), String.valueOf(LIKE_ESCAPE) + LIKE_ESCAPE)
+					.replace("%", LIKE_ESCAPE + "%")
+					.replace("_", LIKE_ESCAPE + "_");
+	}
+
+	private static boolean has(int shape, int flag) {
+		return (shape & flag) != 0;
+	}
+
+}
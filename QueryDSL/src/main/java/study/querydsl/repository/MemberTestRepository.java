@@ -8,6 +8,8 @@ import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import com.querydsl.core.types.dsl.BooleanExpression;
@@ -15,74 +17,92 @@ import com.querydsl.jpa.impl.JPAQuery;
 
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.entity.Member;
+import study.querydsl.repository.support.BulkOperationResult;
+import study.querydsl.repository.support.KeysetCursor;
+import study.querydsl.repository.support.KeysetSlice;
 import study.querydsl.repository.support.Querydsl4RepositorySupport;
 
+@Repository
 public class MemberTestRepository extends Querydsl4RepositorySupport {
 
 	public MemberTestRepository() {
 		super(Member.class);
 	}
 	
+	// 조회만 하는 메서드는 읽기 전용 트랜잭션 (flush, 변경 감지, 스냅샷 생략)
+	@Transactional(readOnly = true)
 	public List<Member> basicSelect() {
-		return select(member)
-				.from(member)
+		return readOnly(select(member)
+				.from(member))
 				.fetch();
 	}
 	
+	@Transactional(readOnly = true)
 	public List<Member> basicSelectFrom() {
-		return selectFrom(member)
+		return readOnly(selectFrom(member))
 				.fetch();
 	}
 	
+	@Transactional(readOnly = true)
 	public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable) {
-		JPAQuery<Member> query = selectFrom(member)
+		JPAQuery<Member> query = readOnly(selectFrom(member)
 								.leftJoin(member.team, team)
 								.where(
 										  usernameEq(condition.getUsername())
+										, usernameStartsWith(condition.getUsernameStartsWith())
+										, usernameContains(condition.getUsernameContains())
 										, teamNameEq(condition.getTeamName())
 										, ageGoe(condition.getAgeGoe())
 										, ageLoe(condition.getAgeLoe())
-									  );
+									  ));
 		
 		List<Member> content = getQuerydsl().applyPagination(pageable, query).fetch();
 		
-		return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
+		return PageableExecutionUtils.getPage(content, pageable, () -> fetchCount(query));
 		
 	}
 	
+	@Transactional(readOnly = true)
 	public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable) {
 		
 		Page<Member> result = applyPagination(pageable, query -> 
-					query.selectFrom(member)
+					readOnly(query.selectFrom(member)
 					.leftJoin(member.team, team)
 					.where(
 							  usernameEq(condition.getUsername())
+							, usernameStartsWith(condition.getUsernameStartsWith())
+							, usernameContains(condition.getUsernameContains())
 							, teamNameEq(condition.getTeamName())
 							, ageGoe(condition.getAgeGoe())
 							, ageLoe(condition.getAgeLoe())
-						  )
+						  ))
 				);
 		
 		return result;
 		
 	}
 	
+	@Transactional(readOnly = true)
 	public Page<Member> applyPagination2(MemberSearchCondition condition, Pageable pageable) {
 		
 		Page<Member> result = applyPagination(pageable, contentQuery -> 
-					contentQuery.selectFrom(member)
+					readOnly(contentQuery.selectFrom(member)
 								.leftJoin(member.team, team)
 								.where(
 										  usernameEq(condition.getUsername())
+										, usernameStartsWith(condition.getUsernameStartsWith())
+										, usernameContains(condition.getUsernameContains())
 										, teamNameEq(condition.getTeamName())
 										, ageGoe(condition.getAgeGoe())
 										, ageLoe(condition.getAgeLoe())
-									  )
+									  ))
 					, countQuery ->
 					countQuery.selectFrom(member)
 								.leftJoin(member.team, team)
 								.where(
 										  usernameEq(condition.getUsername())
+										, usernameStartsWith(condition.getUsernameStartsWith())
+										, usernameContains(condition.getUsernameContains())
 										, teamNameEq(condition.getTeamName())
 										, ageGoe(condition.getAgeGoe())
 										, ageLoe(condition.getAgeLoe())
@@ -93,10 +113,62 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
 		
 	}
 	
+	@Transactional(readOnly = true)
+	public KeysetSlice<Member> applyKeyset(MemberSearchCondition condition, String cursor, int size) {
+		
+		KeysetSlice<Member> result = applyKeyset(KeysetCursor.decode(cursor), size, member.age, member.id, Member::getAge, Member::getId, query -> 
+					readOnly(query.selectFrom(member)
+					.leftJoin(member.team, team)
+					.where(
+							  usernameEq(condition.getUsername())
+							, usernameStartsWith(condition.getUsernameStartsWith())
+							, usernameContains(condition.getUsernameContains())
+							, teamNameEq(condition.getTeamName())
+							, ageGoe(condition.getAgeGoe())
+							, ageLoe(condition.getAgeLoe())
+						  ))
+				);
+		
+		return result;
+		
+	}
+	
+	// 벌크 연산 후 영속성 컨텍스트에 남은 Member 는 detach 되므로 flush, clear 를 직접 하지 않아도 된다
+	public long bulkAddAge(int ageGoe) {
+		
+		return execute(member, query -> 
+					query.update(member)
+					.set(member.age, member.age.add(1))
+					.where(member.age.goe(ageGoe))
+				);
+		
+	}
+	
+	// id 범위 chunkSize 씩 나눠서 삭제하고 범위마다 커밋
+	public BulkOperationResult bulkDeleteByAgeGoe(int ageGoe, long chunkSize) {
+		
+		return executeInChunks(member, member.id, chunkSize, (query, idRange) -> 
+					query.delete(member)
+					.where(
+							  member.age.goe(ageGoe)
+							, idRange
+						  )
+				);
+		
+	}
+	
 	private BooleanExpression usernameEq(String username) {
 		return StringUtils.hasText(username) ? member.username.eq(username) : null;
 	}
 
+	private BooleanExpression usernameStartsWith(String prefix) {
+		return StringUtils.hasText(prefix) ? member.username.startsWith(prefix) : null;
+	}
+
+	private BooleanExpression usernameContains(String fragment) {
+		return StringUtils.hasText(fragment) ? member.username.contains(fragment) : null;
+	}
+
 	private BooleanExpression teamNameEq(String teamName) {
 		return StringUtils.hasText(teamName) ? team.name.eq(teamName) : null;
 	}
@@ -0,0 +1,148 @@
+package study.querydsl.repository;
+
+import static study.querydsl.entity.QTeam.team;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceUnitUtil;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.InClauseChunks;
+
+/**
+ * 요청 하나 동안 필요한 team id 를 모았다가 team.id in (...) 한 번으로 읽는 로더 (DataLoader 방식).
+ *
+ * {@link #load(Long)} 는 id 만 등록하고 {@link #dispatch()} 에서 모인 id 를 한꺼번에 조회한다.
+ * 같은 영속성 컨텍스트의 Member.team 프록시는 이 조회로 초기화되므로, findAllByIds() 등으로 읽은 회원은
+ * {@link #loadTeams(Collection)} 후에 getTeam().getName() 을 호출해도 팀마다 쿼리가 나가지 않는다.
+ * 이미 읽은 팀은 요청이 끝날 때까지 다시 조회하지 않는다.
+ *
+ * default_batch_fetch_size 는 프록시를 건드릴 때 그 영속성 컨텍스트에 있는 프록시를 batch 크기씩 읽는다.
+ * 이 로더는 프록시가 없는 team id (MemberTeamDto.teamId 등) 도 받고, 요청 안에서 미리 multi-key.chunk-size 씩 읽어 둔다.
+ *
+ * 모은 id 와 읽은 팀은 요청마다 따로 두므로 MVC 요청 스레드에서만 쓴다 (open-in-view 의 영속성 컨텍스트와 수명이 같다).
+ * 조회하지 않은 id 는 getReference 로 프록시를 만들지 않으므로 없는 팀의 프록시가 영속성 컨텍스트에 남지 않는다.
+ */
+@Component
+@RequestScope(proxyMode = ScopedProxyMode.TARGET_CLASS)
+public class TeamBatchLoader {
+
+	private final EntityManager em;
+	private final JPAQueryFactory queryFactory;
+	private final PersistenceUnitUtil persistenceUnitUtil;
+	private final int chunkSize;
+
+	// 이 요청에서 읽은 팀 (없는 id 는 null)
+	private final Map<Long, Team> loaded = new HashMap<>();
+	private final Map<Long, CompletableFuture<Team>> pending = new LinkedHashMap<>();
+
+	public TeamBatchLoader(EntityManager em, @Value("${querydsl.multi-key.chunk-size:512}") int chunkSize) {
+		this.em = em;
+		this.queryFactory = new JPAQueryFactory(em);
+		this.persistenceUnitUtil = em.getEntityManagerFactory().getPersistenceUnitUtil();
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * team id 를 등록한다. 결과는 {@link #dispatch()} 후에 채워진다 (없는 팀이면 null)
+	 */
+	public CompletableFuture<Team> load(Long teamId) {
+
+		if ( loaded.containsKey(teamId) ) {
+
+			Team loadedTeam = loaded.get(teamId);
+
+			// 영속성 컨텍스트가 비워졌으면 (clear, 트랜잭션 범위 EntityManager) 다시 조회한다
+			if ( loadedTeam == null || em.contains(loadedTeam) ) return CompletableFuture.completedFuture(loadedTeam);
+
+		}
+
+		return pending.computeIfAbsent(teamId, key -> new CompletableFuture<>());
+
+	}
+
+	/**
+	 * 등록된 team id 를 in 절 묶음으로 조회한다
+	 */
+	public void dispatch() {
+
+		if ( pending.isEmpty() ) return;
+
+		Map<Long, CompletableFuture<Team>> dispatching = new LinkedHashMap<>(pending);
+		pending.clear();
+
+		Map<Long, Team> found = new HashMap<>();
+
+		try {
+
+			for ( List<Long> chunk : InClauseChunks.split(dispatching.keySet(), chunkSize) ) {
+				queryFactory
+					.selectFrom(team)
+					.where(team.id.in(chunk))
+					.fetch()
+					.forEach(findTeam -> found.put(findTeam.getId(), findTeam));
+			}
+
+		} catch ( RuntimeException e ) {
+			dispatching.values().forEach(future -> future.completeExceptionally(e));
+			throw e;
+		}
+
+		dispatching.forEach((teamId, future) -> {
+			loaded.put(teamId, found.get(teamId));
+			future.complete(found.get(teamId));
+		});
+
+	}
+
+	/**
+	 * 회원들의 팀을 한 번에 읽는다. 초기화되지 않은 프록시만 조회 대상이다
+	 */
+	public Map<Long, Team> loadTeams(Collection<Member> members) {
+
+		Map<Long, CompletableFuture<Team>> futures = new LinkedHashMap<>();
+
+		for ( Member member : members ) {
+
+			Team memberTeam = member.getTeam();
+			if ( memberTeam == null ) continue;
+
+			// 프록시의 getId() 는 필드 접근이면 초기화를 일으키므로 PersistenceUnitUtil 로 id 만 꺼낸다
+			Long teamId = (Long) persistenceUnitUtil.getIdentifier(memberTeam);
+
+			if ( Hibernate.isInitialized(memberTeam) ) {
+				futures.putIfAbsent(teamId, CompletableFuture.completedFuture(memberTeam));
+			} else {
+				futures.putIfAbsent(teamId, load(teamId));
+			}
+
+		}
+
+		dispatch();
+
+		Map<Long, Team> teams = new LinkedHashMap<>();
+
+		futures.forEach((teamId, future) -> {
+			Team loadedTeam = future.join();
+			if ( loadedTeam != null ) teams.put(teamId, loadedTeam);
+		});
+
+		return teams;
+
+	}
+
+}
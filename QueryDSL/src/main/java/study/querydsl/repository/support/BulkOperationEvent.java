@@ -0,0 +1,23 @@
+package study.querydsl.repository.support;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * {@link Querydsl4RepositorySupport} 의 벌크 update/delete 가 실행된 뒤 발행된다.
+ * 벌크 연산은 엔티티 이벤트를 거치지 않으므로 엔티티 단위로 유지하는 파생 데이터는 이 이벤트로 다시 맞춘다.
+ * 트랜잭션 안에서 실행됐으면 @TransactionalEventListener 로 커밋 후에 받는다.
+ */
+@Getter
+@ToString
+public class BulkOperationEvent {
+
+	private final Class<?> entityType;
+	private final long affectedRows;
+
+	public BulkOperationEvent(Class<?> entityType, long affectedRows) {
+		this.entityType = entityType;
+		this.affectedRows = affectedRows;
+	}
+
+}
@@ -0,0 +1,46 @@
+package study.querydsl.repository.support;
+
+import java.time.Duration;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * id 범위로 나눠 실행한 벌크 update/delete 결과
+ */
+@Getter
+@ToString
+public class BulkOperationResult {
+
+	private final List<Chunk> chunks;
+	private final long affectedRows;
+
+	public BulkOperationResult(List<Chunk> chunks) {
+		this.chunks = List.copyOf(chunks);
+		this.affectedRows = chunks.stream().mapToLong(Chunk::getAffectedRows).sum();
+	}
+
+	/**
+	 * [fromId, toId) 범위 한 트랜잭션의 결과.
+	 * lockHoldTime 은 벌크 문장 실행부터 커밋까지, 즉 행 잠금을 쥐고 있던 시간이다.
+	 */
+	@Getter
+	@ToString
+	public static class Chunk {
+
+		private final long fromId;
+		private final long toId;
+		private final long affectedRows;
+		private final Duration lockHoldTime;
+
+		public Chunk(long fromId, long toId, long affectedRows, Duration lockHoldTime) {
+			this.fromId = fromId;
+			this.toId = toId;
+			this.affectedRows = affectedRows;
+			this.lockHoldTime = lockHoldTime;
+		}
+
+	}
+
+}
@@ -0,0 +1,173 @@
+package study.querydsl.repository.support;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.hibernate.FlushMode;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 페이징 컨텐츠 쿼리와 count 쿼리를 동시에 실행한다.
+ *
+ * count 는 별도 스레드에서 새로 만든 읽기 전용 EntityManager(별도 커넥션)로 실행하므로
+ * 응답 시간이 (컨텐츠 + count) 가 아니라 max(컨텐츠, count) 가 된다.
+ * 다른 커넥션은 현재 트랜잭션의 쓰기를 볼 수 없으므로 쓰기 트랜잭션 안에서는 순서대로 실행한다.
+ * count 스레드가 모두 사용 중이면 커넥션을 더 잡지 않고 호출 스레드에서 순서대로 실행하므로
+ * count 용 커넥션은 pool-size 개를 넘지 않는다 ({@link study.querydsl.controller.DatabaseBulkhead} 는 그만큼 뺀 수로 제한).
+ */
+@Slf4j
+@Component
+public class ConcurrentPageExecutor implements DisposableBean {
+
+	private final EntityManagerFactory emf;
+	private final boolean enabled;
+	private final ThreadPoolTaskExecutor executor;
+
+	public ConcurrentPageExecutor(
+			EntityManagerFactory emf,
+			ObjectProvider<TaskDecorator> taskDecorator,
+			@Value("${querydsl.pagination.concurrent-count:true}") boolean enabled,
+			@Value("${querydsl.pagination.count-pool-size:4}") int poolSize) {
+
+		this.emf = emf;
+		this.enabled = enabled;
+
+		// 애플리케이션 공용 TaskExecutor 를 대체하지 않도록 빈으로 등록하지 않는다
+		this.executor = new ThreadPoolTaskExecutor();
+		this.executor.setThreadNamePrefix("page-count-");
+		this.executor.setCorePoolSize(poolSize);
+		this.executor.setMaxPoolSize(poolSize);
+		// 스레드가 모두 사용 중이면 거절하고 getPage 가 순차 실행으로 바꾼다
+		this.executor.setQueueCapacity(0);
+		// 호출 스레드의 컨텍스트(메트릭 등)를 count 스레드로 넘긴다
+		taskDecorator.ifUnique(this.executor::setTaskDecorator);
+		this.executor.initialize();
+
+	}
+
+	/**
+	 * @param content 호출 스레드에서 실행
+	 * @param count count 전용 EntityManager 를 받아 전체 건수를 반환
+	 */
+	public <T> Page<T> getPage(Pageable pageable, Supplier<List<T>> content, Function<EntityManager, Long> count, EntityManager em) {
+
+		if ( !isConcurrent() ) return PageableExecutionUtils.getPage(content.get(), pageable, () -> count.apply(em));
+
+		CountTask task = new CountTask(count);
+		CompletableFuture<Long> total;
+
+		try {
+			total = CompletableFuture.supplyAsync(task, executor);
+		} catch ( RejectedExecutionException e ) {
+			return PageableExecutionUtils.getPage(content.get(), pageable, () -> count.apply(em));
+		}
+
+		try {
+
+			return PageableExecutionUtils.getPage(content.get(), pageable, () -> join(total));
+
+		} finally {
+			// 첫 페이지가 size 보다 적게 조회됐거나 컨텐츠 조회가 실패하면 count 결과는 쓰지 않는다
+			if ( !total.isDone() ) task.cancel();
+		}
+
+	}
+
+	private boolean isConcurrent() {
+		return enabled
+				&& (!TransactionSynchronizationManager.isActualTransactionActive() || TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+	}
+
+	/**
+	 * count 전용 EntityManager 로 실행하는 작업. 결과가 필요 없어지면 실행 중인 문장을
+	 * JDBC Statement.cancel() 로 중단해 count 커넥션을 바로 돌려받는다 (Future.cancel 은 실행 중인 쿼리를 멈추지 못한다)
+	 */
+	private final class CountTask implements Supplier<Long> {
+
+		private final Function<EntityManager, Long> count;
+		private volatile SessionImplementor session;
+		private volatile boolean cancelled;
+
+		CountTask(Function<EntityManager, Long> count) {
+			this.count = count;
+		}
+
+		@Override
+		public Long get() {
+
+			if ( cancelled ) return null;
+
+			EntityManager countEm = emf.createEntityManager();
+
+			try {
+
+				SessionImplementor countSession = countEm.unwrap(SessionImplementor.class);
+				countSession.setDefaultReadOnly(true);
+				countSession.setHibernateFlushMode(FlushMode.MANUAL);
+
+				session = countSession;
+				if ( cancelled ) return null;
+
+				return count.apply(countEm);
+
+			} finally {
+				session = null;
+				countEm.close();
+			}
+
+		}
+
+		void cancel() {
+
+			cancelled = true;
+
+			SessionImplementor countSession = session;
+			if ( countSession == null ) return;
+
+			try {
+				countSession.getJdbcCoordinator().cancelLastQuery();
+			} catch ( RuntimeException e ) {
+				// 그 사이 count 가 끝나 세션이 닫혔으면 취소할 문장이 없다
+				log.debug("count query cancel skipped", e);
+			}
+
+		}
+
+	}
+
+	private static long join(CompletableFuture<Long> total) {
+
+		try {
+			Long count = total.join();
+			return count != null ? count : 0L;
+		} catch ( CompletionException e ) {
+			if ( e.getCause() instanceof RuntimeException cause ) throw cause;
+			throw e;
+		}
+
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdown();
+	}
+
+}
@@ -0,0 +1,108 @@
+package study.querydsl.repository.support;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * 페이징 count 결과 캐시
+ *
+ * member, team 테이블에 쓰기가 일어나면 {@link CountCacheInvalidationListener} 가 전체를 비운다.
+ * 아직 커밋되지 않은 쓰기가 있는 트랜잭션에서는 캐시를 읽지도 쓰지도 않는다.
+ */
+@Component
+public class CountCache {
+
+	private final boolean enabled;
+	private final Cache<Object, Long> cache;
+
+	public CountCache(
+			@Value("${querydsl.count-cache.enabled:true}") boolean enabled,
+			@Value("${querydsl.count-cache.maximum-size:10000}") long maximumSize,
+			@Value("${querydsl.count-cache.ttl:30s}") Duration ttl) {
+		this.enabled = enabled;
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(ttl)
+				.recordStats()
+				.build();
+	}
+
+	public long get(Object key, EntityManager entityManager, LongSupplier countQuery) {
+
+		if ( !enabled || hasPendingWrites(entityManager) ) return countQuery.getAsLong();
+
+		Long cached = cache.getIfPresent(key);
+		if ( cached != null ) return cached;
+
+		long count = countQuery.getAsLong();
+
+		// count 쿼리 직전 auto flush 로 이 트랜잭션의 쓰기가 나갔을 수 있다
+		if ( !TransactionSynchronizationManager.hasResource(this) ) cache.put(key, count);
+
+		return count;
+
+	}
+
+	/**
+	 * 쓰기 직후 비우고, 트랜잭션 안이라면 커밋/롤백 후에 한 번 더 비운다.
+	 * 그 사이에 다른 트랜잭션이 이전 값을 다시 캐시할 수 있기 때문이다.
+	 */
+	public void invalidateOnWrite() {
+
+		cache.invalidateAll();
+
+		if ( !TransactionSynchronizationManager.isSynchronizationActive() || TransactionSynchronizationManager.hasResource(this) ) return;
+
+		TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				TransactionSynchronizationManager.unbindResourceIfPossible(CountCache.this);
+				cache.invalidateAll();
+			}
+		});
+
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	public long size() {
+		return cache.estimatedSize();
+	}
+
+	public CacheStats stats() {
+		return cache.stats();
+	}
+
+	/**
+	 * 메트릭 바인딩용 (CaffeineCacheMetrics)
+	 */
+	public Cache<Object, Long> nativeCache() {
+		return cache;
+	}
+
+	private boolean hasPendingWrites(EntityManager entityManager) {
+
+		if ( TransactionSynchronizationManager.hasResource(this) ) return true;
+
+		// flush 되지 않은 변경이 있으면 count 쿼리의 auto flush 결과를 캐시와 비교할 수 없다
+		return TransactionSynchronizationManager.isActualTransactionActive()
+				&& entityManager.unwrap(Session.class).isDirty();
+
+	}
+
+}
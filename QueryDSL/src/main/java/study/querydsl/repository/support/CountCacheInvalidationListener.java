@@ -0,0 +1,45 @@
+package study.querydsl.repository.support;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.stereotype.Component;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * P6Spy 로 실행되는 모든 DML 을 보고 member, team 테이블에 쓰기가 있으면 count 캐시를 비운다.
+ * 엔티티 저장뿐 아니라 queryFactory.update/delete 벌크 연산도 같은 경로로 잡힌다.
+ */
+@Component
+@RequiredArgsConstructor
+public class CountCacheInvalidationListener extends JdbcEventListener {
+
+	private static final Set<String> TABLES = Set.of("member", "team");
+
+	// use_sql_comments 로 붙는 /* ... */ 주석은 건너뛴다
+	private static final Pattern DML = Pattern.compile("^\\s*(?:/\\*.*?\\*/\\s*)*(?:insert\\s+into|update|delete\\s+from)\\s+(\\w+)", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+	private final CountCache countCache;
+
+	@Override
+	public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+		if ( touchesCountedTable(statementInformation.getSql()) ) countCache.invalidateOnWrite();
+	}
+
+	public static boolean touchesCountedTable(String sql) {
+
+		if ( sql == null ) return false;
+
+		Matcher matcher = DML.matcher(sql);
+		return matcher.find() && TABLES.contains(matcher.group(1).toLowerCase(Locale.ROOT));
+
+	}
+
+}
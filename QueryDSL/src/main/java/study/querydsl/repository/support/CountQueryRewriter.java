@@ -0,0 +1,198 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.metamodel.EntityType;
+
+/**
+ * 컨텐츠 쿼리로부터 count 쿼리를 만든다.
+ *
+ * - order by, offset/limit 제거
+ * - where, group by, having 에서 참조하지 않는 to-one left join 제거
+ * - fetch join 플래그 제거
+ * - 프로젝션을 count(root.id) 로 교체
+ *
+ * group by, distinct 쿼리는 건수 의미가 달라지므로 변환하지 않는다.
+ */
+final class CountQueryRewriter {
+
+	private CountQueryRewriter() {
+	}
+
+	/**
+	 * @return 변환한 count 쿼리, 변환할 수 없는 쿼리면 null
+	 */
+	static JPAQuery<Long> rewrite(JPAQuery<?> query, EntityManager entityManager) {
+
+		QueryMetadata metadata = query.getMetadata();
+		List<JoinExpression> joins = metadata.getJoins();
+
+		if ( joins.isEmpty() || !(joins.get(0).getTarget() instanceof EntityPath<?> root) ) return null;
+		if ( metadata.isDistinct() || !metadata.getGroupBy().isEmpty() ) return null;
+
+		Set<Path<?>> referenced = new HashSet<>();
+		collect(metadata.getWhere(), referenced);
+		collect(metadata.getHaving(), referenced);
+
+		// 뒤쪽 join 이 앞쪽 join 의 alias 를 참조할 수 있으므로 뒤에서부터 결정한다
+		List<JoinExpression> kept = new ArrayList<>();
+
+		for ( int i = joins.size() - 1; i >= 0; i-- ) {
+
+			JoinExpression join = joins.get(i);
+
+			if ( isRemovable(join, referenced) ) continue;
+
+			kept.add(0, join);
+			collect(join.getTarget(), referenced);
+			collect(join.getCondition(), referenced);
+
+		}
+
+		DefaultQueryMetadata countMetadata = new DefaultQueryMetadata();
+
+		// fetch join 플래그는 count 쿼리에서 허용되지 않으므로 복사하지 않는다
+		for ( JoinExpression join : kept ) {
+			countMetadata.addJoin(join.getType(), join.getTarget());
+			if ( join.getCondition() != null ) countMetadata.addJoinCondition(join.getCondition());
+		}
+
+		countMetadata.addWhere(metadata.getWhere());
+		countMetadata.addHaving(metadata.getHaving());
+		copyParams(metadata, countMetadata);
+		countMetadata.setProjection(Expressions.numberOperation(Long.class, Ops.AggOps.COUNT_AGG, idOf(root, entityManager)));
+
+		return new JPAQuery<>(entityManager, JPAProvider.getTemplates(entityManager), countMetadata);
+
+	}
+
+	// count(member.id), 복합키 엔티티는 count(member)
+	private static Expression<?> idOf(EntityPath<?> root, EntityManager entityManager) {
+
+		EntityType<?> entityType = entityManager.getMetamodel().entity(root.getType());
+
+		if ( !entityType.hasSingleIdAttribute() ) return root;
+
+		Class<?> idType = entityType.getIdType().getJavaType();
+		String idName = entityType.getId(idType).getName();
+
+		return Expressions.path(idType, root, idName);
+
+	}
+
+	// 결과 건수에 영향을 주지 않는 join: 조건절에서 참조하지 않는 to-one 연관관계 left join
+	private static boolean isRemovable(JoinExpression join, Set<Path<?>> referenced) {
+
+		if ( join.getType() != JoinType.LEFTJOIN ) return false;
+		if ( !(join.getTarget() instanceof Operation<?> alias) || alias.getOperator() != Ops.ALIAS ) return false;
+		if ( !(alias.getArg(0) instanceof Path<?> association) || !(alias.getArg(1) instanceof Path<?> aliasPath) ) return false;
+
+		Class<?> associationType = association.getType();
+		if ( Collection.class.isAssignableFrom(associationType) || Map.class.isAssignableFrom(associationType) ) return false;
+
+		return !referenced.contains(aliasPath);
+
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static void copyParams(QueryMetadata source, DefaultQueryMetadata target) {
+		for ( Map.Entry<ParamExpression<?>, Object> param : source.getParams().entrySet() ) {
+			target.setParam((ParamExpression) param.getKey(), param.getValue());
+		}
+	}
+
+	private static void collect(Expression<?> expression, Set<Path<?>> referenced) {
+		if ( expression != null ) expression.accept(PathCollector.INSTANCE, referenced);
+	}
+
+	/**
+	 * 식에서 참조하는 path 의 root(alias) 를 모은다.
+	 */
+	private static final class PathCollector implements Visitor<Void, Set<Path<?>>> {
+
+		private static final PathCollector INSTANCE = new PathCollector();
+
+		@Override
+		public Void visit(Constant<?> expr, Set<Path<?>> context) {
+			return null;
+		}
+
+		@Override
+		public Void visit(FactoryExpression<?> expr, Set<Path<?>> context) {
+			for ( Expression<?> arg : expr.getArgs() ) arg.accept(this, context);
+			return null;
+		}
+
+		@Override
+		public Void visit(Operation<?> expr, Set<Path<?>> context) {
+			for ( Expression<?> arg : expr.getArgs() ) arg.accept(this, context);
+			return null;
+		}
+
+		@Override
+		public Void visit(ParamExpression<?> expr, Set<Path<?>> context) {
+			return null;
+		}
+
+		@Override
+		public Void visit(Path<?> expr, Set<Path<?>> context) {
+			context.add(expr.getRoot());
+			return null;
+		}
+
+		// 서브쿼리에서 바깥 alias 를 참조하는 경우
+		@Override
+		public Void visit(SubQueryExpression<?> expr, Set<Path<?>> context) {
+
+			QueryMetadata metadata = expr.getMetadata();
+
+			for ( JoinExpression join : metadata.getJoins() ) {
+				collect(join.getTarget(), context);
+				collect(join.getCondition(), context);
+			}
+
+			collect(metadata.getWhere(), context);
+			collect(metadata.getHaving(), context);
+			collect(metadata.getProjection(), context);
+			for ( Expression<?> groupBy : metadata.getGroupBy() ) collect(groupBy, context);
+
+			return null;
+
+		}
+
+		@Override
+		public Void visit(TemplateExpression<?> expr, Set<Path<?>> context) {
+			for ( Object arg : expr.getArgs() ) {
+				if ( arg instanceof Expression<?> argExpr ) argExpr.accept(this, context);
+			}
+			return null;
+		}
+
+	}
+
+}
@@ -0,0 +1,57 @@
+package study.querydsl.repository.support;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 전용 스레드 하나에서 실행하는 재적재 작업. 예약된 실행이 시작되기 전까지의 요청은 한 번의 실행으로 묶인다.
+ * 실행을 시작하면서 다시 예약을 받으므로, 실행하는 동안 들어온 요청은 다음 실행을 예약한다.
+ */
+@Slf4j
+public class DebouncedTask {
+
+	private final String name;
+	private final Runnable task;
+	private final ThreadPoolTaskScheduler scheduler;
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+
+	public DebouncedTask(String name, Runnable task) {
+
+		this.name = name;
+		this.task = task;
+
+		this.scheduler = new ThreadPoolTaskScheduler();
+		this.scheduler.setThreadNamePrefix(name + "-");
+		this.scheduler.setPoolSize(1);
+		this.scheduler.initialize();
+
+	}
+
+	public void schedule(Duration delay) {
+
+		if ( !scheduled.compareAndSet(false, true) ) return;
+
+		scheduler.schedule(() -> {
+
+			scheduled.set(false);
+
+			try {
+				task.run();
+			} catch ( Exception e ) {
+				log.error("{} failed", name, e);
+			}
+
+		}, Instant.now().plus(delay));
+
+	}
+
+	public void shutdown() {
+		scheduler.shutdown();
+	}
+
+}
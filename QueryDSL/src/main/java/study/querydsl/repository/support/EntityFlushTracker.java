@@ -0,0 +1,64 @@
+package study.querydsl.repository.support;
+
+import java.util.Map;
+
+import org.hibernate.SessionEventListener;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * 현재 스레드가 Hibernate flush 중인지 (영속성 컨텍스트의 엔티티 insert/update/delete 를 실행하는 중인지) 기록한다.
+ *
+ * flush 로 실행된 DML 은 커밋 후 엔티티 이벤트({@link MemberChangeListener})로 내용이 오고,
+ * flush 밖에서 실행된 DML (JPQL/네이티브 executeUpdate, StatelessSession) 은 어떤 행이 바뀌었는지 알 수 없다.
+ * Hibernate 가 세션마다 새로 만드므로 상태는 스레드별로 둔다.
+ */
+public class EntityFlushTracker implements SessionEventListener {
+
+	private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+	public static boolean isFlushing() {
+		return DEPTH.get()[0] > 0;
+	}
+
+	@Override
+	public void flushStart() {
+		DEPTH.get()[0]++;
+	}
+
+	@Override
+	public void flushEnd(int numberOfEntities, int numberOfCollections) {
+		end();
+	}
+
+	// 쿼리 실행 전 auto flush
+	@Override
+	public void partialFlushStart() {
+		DEPTH.get()[0]++;
+	}
+
+	@Override
+	public void partialFlushEnd(int numberOfEntities, int numberOfCollections) {
+		end();
+	}
+
+	private static void end() {
+		int[] depth = DEPTH.get();
+		if ( depth[0] > 0 ) depth[0]--;
+	}
+
+	/**
+	 * 모든 세션에 등록한다 (hibernate.session.events.auto)
+	 */
+	@Component
+	static class Registration implements HibernatePropertiesCustomizer {
+
+		@Override
+		public void customize(Map<String, Object> hibernateProperties) {
+			hibernateProperties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, EntityFlushTracker.class.getName());
+		}
+
+	}
+
+}
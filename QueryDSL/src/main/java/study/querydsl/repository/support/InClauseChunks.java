@@ -0,0 +1,38 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 여러 키 조회를 in 절 크기가 제한된 묶음으로 나눈다 (null, 중복 제외, 입력 순서 유지).
+ *
+ * 묶음 안의 키 개수는 hibernate.query.in_clause_parameter_padding 이 2의 거듭제곱으로 채우므로
+ * 키 개수가 달라도 같은 SQL(H2 prepared statement)을 다시 쓴다. chunkSize 도 2의 거듭제곱이어야
+ * 꽉 찬 묶음이 채워지면서 더 커지지 않는다.
+ */
+public final class InClauseChunks {
+
+	private InClauseChunks() {
+	}
+
+	public static <T> List<List<T>> split(Collection<T> keys, int chunkSize) {
+
+		if ( chunkSize <= 0 || Integer.bitCount(chunkSize) != 1 ) throw new IllegalArgumentException("chunkSize must be a power of two: " + chunkSize);
+
+		List<T> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+		distinct.removeIf(Objects::isNull);
+
+		List<List<T>> chunks = new ArrayList<>((distinct.size() + chunkSize - 1) / chunkSize);
+
+		for ( int from = 0; from < distinct.size(); from += chunkSize ) {
+			chunks.add(distinct.subList(from, Math.min(from + chunkSize, distinct.size())));
+		}
+
+		return chunks;
+
+	}
+
+}
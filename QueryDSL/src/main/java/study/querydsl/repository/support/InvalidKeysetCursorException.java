@@ -0,0 +1,17 @@
+package study.querydsl.repository.support;
+
+/**
+ * 해석할 수 없거나 정렬키와 타입이 맞지 않는 keyset 커서.
+ * 클라이언트가 보낸 값이 잘못된 것이므로 컨트롤러에서 400 으로 돌려준다.
+ */
+public class InvalidKeysetCursorException extends IllegalArgumentException {
+
+	public InvalidKeysetCursorException(String message) {
+		super(message);
+	}
+
+	public InvalidKeysetCursorException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,99 @@
+package study.querydsl.repository.support;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Keyset(seek) 페이징에서 마지막으로 조회한 (정렬키, id) 위치
+ *
+ * 클라이언트에는 {@link #encode()} 로 만든 불투명한 문자열로만 전달한다.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class KeysetCursor {
+
+	private final Comparable<?> key;
+	private final Long id;
+
+	private KeysetCursor(Comparable<?> key, Long id) {
+		this.key = key;
+		this.id = id;
+	}
+
+	public static KeysetCursor of(Comparable<?> key, Long id) {
+		Assert.notNull(key, "Keyset sort key must not be null!");
+		Assert.notNull(id, "Keyset id must not be null!");
+		Assert.isTrue(key instanceof Integer || key instanceof Long || key instanceof String, "Unsupported keyset sort key type: " + key.getClass().getName());
+		return new KeysetCursor(key, id);
+	}
+
+	// 첫 페이지 요청이면 null. 해석할 수 없으면 InvalidKeysetCursorException
+	public static KeysetCursor decode(String cursor) {
+
+		if ( !StringUtils.hasText(cursor) ) return null;
+
+		try {
+
+			String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] parts = raw.split(":", 3);
+
+			if ( parts.length != 3 ) throw new IllegalArgumentException("Malformed keyset cursor");
+
+			Long id = Long.valueOf(parts[1]);
+			Comparable<?> key = switch ( parts[0] ) {
+				case "i" -> Integer.valueOf(parts[2]);
+				case "l" -> Long.valueOf(parts[2]);
+				case "s" -> parts[2];
+				default -> throw new IllegalArgumentException("Unknown keyset sort key type: " + parts[0]);
+			};
+
+			return new KeysetCursor(key, id);
+
+		} catch ( IllegalArgumentException e ) {
+			throw new InvalidKeysetCursorException("Invalid keyset cursor: " + cursor, e);
+		}
+
+	}
+
+	public String encode() {
+		// 문자열 정렬키에 ':' 가 들어있을 수 있으므로 키를 맨 뒤에 둔다
+		String raw = typeOf(key) + ":" + id + ":" + key;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	// sortKey > key or (sortKey = key and id > lastId)
+	// 다른 정렬키로 만든 커서(age 정렬에 문자열 키 등)는 쿼리 전에 InvalidKeysetCursorException
+	public BooleanExpression after(ComparableExpressionBase<?> sortKey, NumberPath<Long> idPath) {
+
+		if ( !sortKey.getType().isInstance(key) ) {
+			throw new InvalidKeysetCursorException("Keyset cursor key " + key.getClass().getSimpleName() + " does not match sort key type " + sortKey.getType().getSimpleName());
+		}
+
+		Expression<?> value = Expressions.constant(key);
+		return Expressions.booleanOperation(Ops.GT, sortKey, value)
+				.or(Expressions.booleanOperation(Ops.EQ, sortKey, value).and(idPath.gt(id)));
+
+	}
+
+	private static String typeOf(Comparable<?> key) {
+		if ( key instanceof Integer ) return "i";
+		if ( key instanceof Long ) return "l";
+		return "s";
+	}
+
+}
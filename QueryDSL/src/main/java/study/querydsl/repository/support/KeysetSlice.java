@@ -0,0 +1,60 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.util.Assert;
+
+import lombok.Getter;
+
+/**
+ * Keyset 페이징 결과
+ *
+ * 전체 건수는 구하지 않고 다음 페이지 존재 여부와 다음 커서만 돌려준다.
+ */
+@Getter
+public class KeysetSlice<T> {
+
+	// 한 페이지 최대 건수 (size + 1 건을 조회한다)
+	public static final int MAX_SIZE = 1000;
+
+	private final List<T> content;
+	private final boolean hasNext;
+	private final String nextCursor;
+
+	public KeysetSlice(List<T> content, boolean hasNext, String nextCursor) {
+		this.content = content;
+		this.hasNext = hasNext;
+		this.nextCursor = nextCursor;
+	}
+
+	/**
+	 * size + 1 건으로 조회한 결과를 잘라 다음 페이지 여부를 판단한다.
+	 */
+	public static <T> KeysetSlice<T> of(List<T> rows, int size, Function<T, ? extends Comparable<?>> sortKeyOf, Function<T, Long> idOf) {
+
+		checkSize(size);
+
+		boolean hasNext = rows.size() > size;
+		List<T> content = new ArrayList<>(hasNext ? rows.subList(0, size) : rows);
+
+		String nextCursor = null;
+
+		if ( hasNext ) {
+			T last = content.get(content.size() - 1);
+			nextCursor = KeysetCursor.of(sortKeyOf.apply(last), idOf.apply(last)).encode();
+		}
+
+		return new KeysetSlice<>(content, hasNext, nextCursor);
+
+	}
+
+	/**
+	 * 쿼리를 실행하기 전에 페이지 크기를 확인한다
+	 */
+	public static void checkSize(int size) {
+		Assert.isTrue(size > 0 && size <= MAX_SIZE, "Keyset page size must be between 1 and " + MAX_SIZE + "!");
+	}
+
+}
@@ -0,0 +1,45 @@
+package study.querydsl.repository.support;
+
+/**
+ * 커밋된 Member/Team 변경을 받는 쪽 ({@link MemberChangeListener} 가 호출한다).
+ * 롤백된 변경은 오지 않는다. 엔티티 이벤트가 없는 DML (벌크 연산, JPQL/네이티브 executeUpdate) 은
+ * {@link MemberWriteListener} 가 {@link #unknownChange()} 로 알린다.
+ */
+public interface MemberChangeHandler {
+
+	/**
+	 * false 면 이벤트를 보내지 않는다 (모두 꺼져 있으면 Hibernate 리스너도 등록하지 않는다)
+	 */
+	default boolean isEnabled() {
+		return true;
+	}
+
+	void memberInserted(MemberRow member);
+
+	void memberUpdated(MemberRow before, MemberRow after);
+
+	void memberDeleted(MemberRow member);
+
+	// insert, update 모두
+	void teamSaved(Long teamId, String teamName);
+
+	void teamDeleted(Long teamId);
+
+	/**
+	 * 이전 상태나 바뀐 행을 몰라 증분으로 따라갈 수 없는 변경 (분리된 엔티티를 merge 없이 update, flush 밖의 DML 등)
+	 */
+	void unknownChange();
+
+	/**
+	 * member, team 에 쓰는 트랜잭션이 첫 DML 을 실행했다. {@link #writeCompleted()} 까지는 커밋 후 이벤트가 아직 오지 않았을 수 있다
+	 */
+	default void writeStarted() {
+	}
+
+	/**
+	 * {@link #writeStarted()} 의 트랜잭션이 끝났다 (커밋이면 커밋 후 이벤트를 모두 보낸 뒤)
+	 */
+	default void writeCompleted() {
+	}
+
+}
@@ -0,0 +1,158 @@
+package study.querydsl.repository.support;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 커밋된 Member/Team 의 insert, update, delete 를 {@link MemberChangeHandler} 들에 나눠준다.
+ * Hibernate 이벤트의 상태 배열은 여기서 한 번만 {@link MemberRow} 로 바꾼다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberChangeListener implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+	private final EntityManagerFactory emf;
+	private final List<MemberChangeHandler> handlers;
+
+	private List<MemberChangeHandler> enabledHandlers = List.of();
+
+	@PostConstruct
+	public void register() {
+
+		enabledHandlers = handlers.stream().filter(MemberChangeHandler::isEnabled).toList();
+
+		if ( enabledHandlers.isEmpty() ) return;
+
+		EventListenerRegistry registry = emf.unwrap(SessionFactoryImplementor.class)
+											.getServiceRegistry()
+											.getService(EventListenerRegistry.class);
+
+		registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+		registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+		registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+
+	}
+
+	@Override
+	public boolean requiresPostCommitHandling(EntityPersister persister) {
+		return persister.getMappedClass() == Member.class || persister.getMappedClass() == Team.class;
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+
+		if ( event.getEntity() instanceof Member member ) {
+			MemberRow row = MemberRow.of(member);
+			dispatch(handler -> handler.memberInserted(row));
+		} else if ( event.getEntity() instanceof Team team ) {
+			dispatch(handler -> handler.teamSaved(team.getId(), team.getName()));
+		}
+
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+
+		if ( event.getEntity() instanceof Team team ) {
+			dispatch(handler -> handler.teamSaved(team.getId(), team.getName()));
+			return;
+		}
+
+		if ( !(event.getEntity() instanceof Member member) ) return;
+
+		// 분리된 엔티티를 merge 없이 update 하면 이전 상태가 없다
+		if ( event.getOldState() == null ) {
+			dispatch(MemberChangeHandler::unknownChange);
+			return;
+		}
+
+		MemberRow before = rowOf(member.getId(), event.getPersister(), event.getOldState());
+		MemberRow after = MemberRow.of(member);
+
+		dispatch(handler -> handler.memberUpdated(before, after));
+
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+
+		if ( event.getEntity() instanceof Team team ) {
+			dispatch(handler -> handler.teamDeleted(team.getId()));
+			return;
+		}
+
+		if ( !(event.getEntity() instanceof Member member) ) return;
+
+		if ( event.getDeletedState() == null ) {
+			dispatch(MemberChangeHandler::unknownChange);
+			return;
+		}
+
+		MemberRow deleted = rowOf(member.getId(), event.getPersister(), event.getDeletedState());
+
+		dispatch(handler -> handler.memberDeleted(deleted));
+
+	}
+
+	// 커밋이 실패한 변경은 DB 에도 없으므로 반영하지 않는다
+	@Override
+	public void onPostInsertCommitFailed(PostInsertEvent event) {
+	}
+
+	@Override
+	public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+	}
+
+	@Override
+	public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+	}
+
+	// 한 곳에서 실패해도 나머지는 반영하고, 실패한 쪽은 다시 적재하도록 표시한다
+	private void dispatch(Consumer<MemberChangeHandler> change) {
+
+		for ( MemberChangeHandler handler : enabledHandlers ) {
+			try {
+				change.accept(handler);
+			} catch ( RuntimeException e ) {
+				log.error("member change handler {} failed", handler.getClass().getSimpleName(), e);
+				handler.unknownChange();
+			}
+		}
+
+	}
+
+	private static MemberRow rowOf(Long memberId, EntityPersister persister, Object[] state) {
+		return MemberRow.of(
+							  memberId
+							, (String) state[indexOf(persister, "username")]
+							, (Integer) state[indexOf(persister, "age")]
+							, (Team) state[indexOf(persister, "team")]
+						   );
+	}
+
+	private static int indexOf(EntityPersister persister, String propertyName) {
+		return Arrays.asList(persister.getPropertyNames()).indexOf(propertyName);
+	}
+
+}
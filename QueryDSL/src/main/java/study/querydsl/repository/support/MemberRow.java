@@ -0,0 +1,31 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.Hibernate;
+
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 변경 이벤트로 넘기는 회원 한 건의 값 (팀이 초기화되지 않은 프록시면 teamName 은 null)
+ */
+public record MemberRow(Long memberId, String username, int age, Long teamId, String teamName) {
+
+	static MemberRow of(Member member) {
+		return new MemberRow(member.getId(), member.getUsername(), member.getAge(), idOf(member.getTeam()), nameOf(member.getTeam()));
+	}
+
+	static MemberRow of(Long memberId, String username, Integer age, Team team) {
+		return new MemberRow(memberId, username, age, idOf(team), nameOf(team));
+	}
+
+	// 프록시여도 id 조회는 초기화하지 않는다
+	private static Long idOf(Team team) {
+		return team != null ? team.getId() : null;
+	}
+
+	// 초기화되지 않은 프록시(getReference)면 이름을 모른다
+	private static String nameOf(Team team) {
+		return team != null && Hibernate.isInitialized(team) ? team.getName() : null;
+	}
+
+}
@@ -0,0 +1,107 @@
+package study.querydsl.repository.support;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * P6Spy 로 실행되는 member, team DML 을 {@link MemberChangeHandler} 들에 알린다.
+ *
+ * flush 중에 실행된 DML 은 커밋 후 {@link MemberChangeListener} 가 바뀐 내용을 보내므로, 트랜잭션이 끝날 때까지
+ * (커밋 후 이벤트를 반영할 때까지) 쓰기 중이라는 것만 알린다.
+ * flush 밖의 DML (JPQL/네이티브 executeUpdate, StatelessSession, 벌크 연산) 은 어떤 행이 바뀌었는지 모르므로
+ * 실행한 순간과 트랜잭션이 끝난 뒤에 unknownChange 로 알린다. 뒤의 것은 커밋 전에 시작한 재적재가 이전 데이터를 최신으로 잡지 않게 한다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MemberWriteListener extends JdbcEventListener {
+
+	// DataSource 를 만들 때 리스너가 필요하므로 EntityManagerFactory 를 쓰는 핸들러는 처음 쓸 때 찾는다
+	private final ObjectProvider<MemberChangeHandler> handlers;
+
+	private volatile List<MemberChangeHandler> enabledHandlers;
+
+	@Override
+	public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+
+		if ( !CountCacheInvalidationListener.touchesCountedTable(statementInformation.getSql()) || enabledHandlers().isEmpty() ) return;
+
+		boolean flushing = EntityFlushTracker.isFlushing();
+
+		if ( !flushing ) dispatch(MemberChangeHandler::unknownChange);
+
+		if ( !TransactionSynchronizationManager.isSynchronizationActive() ) {
+			// 끝을 알 수 없는 flush 쓰기는 커밋 후 이벤트를 기다리지 않고 다시 적재한다
+			if ( flushing ) dispatch(MemberChangeHandler::unknownChange);
+			return;
+		}
+
+		TransactionWrites writes = (TransactionWrites) TransactionSynchronizationManager.getResource(this);
+
+		// 트랜잭션마다 한 번만 등록한다
+		if ( writes == null ) {
+
+			TransactionWrites registered = new TransactionWrites();
+			writes = registered;
+
+			TransactionSynchronizationManager.bindResource(this, registered);
+			dispatch(MemberChangeHandler::writeStarted);
+
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(MemberWriteListener.this);
+					if ( registered.unknown ) dispatch(MemberChangeHandler::unknownChange);
+					dispatch(MemberChangeHandler::writeCompleted);
+				}
+			});
+
+		}
+
+		if ( !flushing ) writes.unknown = true;
+
+	}
+
+	private List<MemberChangeHandler> enabledHandlers() {
+
+		List<MemberChangeHandler> enabled = enabledHandlers;
+
+		if ( enabled == null ) {
+			enabled = handlers.orderedStream().filter(MemberChangeHandler::isEnabled).toList();
+			enabledHandlers = enabled;
+		}
+
+		return enabled;
+
+	}
+
+	private void dispatch(Consumer<MemberChangeHandler> change) {
+
+		for ( MemberChangeHandler handler : enabledHandlers() ) {
+			try {
+				change.accept(handler);
+			} catch ( RuntimeException e ) {
+				log.error("member change handler {} failed", handler.getClass().getSimpleName(), e);
+			}
+		}
+
+	}
+
+	// 트랜잭션 하나의 member, team 쓰기
+	private static class TransactionWrites {
+		private boolean unknown;
+	}
+
+}
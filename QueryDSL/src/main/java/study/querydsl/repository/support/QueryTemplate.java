@@ -0,0 +1,85 @@
+package study.querydsl.repository.support;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUtil;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+/**
+ * Param 으로 만든 Querydsl 쿼리를 한 번 직렬화해 둔 JPQL 템플릿
+ *
+ * 실행할 때는 메타데이터 트리를 다시 만들거나 직렬화하지 않고 파라미터만 바인딩한다.
+ * JPQL 문자열이 항상 같으므로 Hibernate 쿼리 플랜 캐시도 그대로 재사용된다.
+ */
+public class QueryTemplate<T> {
+
+	private final String jpql;
+	private final List<Object> constants;
+	private final FactoryExpression<T> projection;
+
+	@SuppressWarnings("unchecked")
+	QueryTemplate(JPAQuery<T> query, JPQLSerializer serializer) {
+
+		serializer.serialize(query.getMetadata(), false, null);
+
+		Expression<?> projection = query.getMetadata().getProjection();
+
+		this.jpql = serializer.toString();
+		this.constants = List.copyOf(serializer.getConstants());
+		this.projection = projection instanceof FactoryExpression ? (FactoryExpression<T>) projection : null;
+
+	}
+
+	public String getJpql() {
+		return jpql;
+	}
+
+	public List<T> fetch(EntityManager em, Map<ParamExpression<?>, Object> params) {
+		return fetch(em, params, null, null);
+	}
+
+	public List<T> fetch(EntityManager em, Map<ParamExpression<?>, Object> params, Long offset, Integer limit) {
+
+		Query query = em.createQuery(jpql);
+		JPAUtil.setConstants(query, constants, params);
+
+		if ( offset != null ) query.setFirstResult(Math.toIntExact(offset));
+		if ( limit != null ) query.setMaxResults(limit);
+
+		return toResult(query.getResultList());
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<T> toResult(List<?> rows) {
+
+		if ( projection == null ) return (List<T>) rows;
+
+		// AbstractJPAQuery 와 같은 방식으로 DTO 를 만든다
+		List<T> result = new ArrayList<>(rows.size());
+
+		for ( Object row : rows ) {
+
+			if ( row == null ) {
+				result.add(null);
+				continue;
+			}
+
+			result.add(projection.newInstance(row instanceof Object[] ? (Object[]) row : new Object[] { row }));
+
+		}
+
+		return result;
+
+	}
+
+}
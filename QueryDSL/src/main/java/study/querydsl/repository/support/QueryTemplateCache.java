@@ -0,0 +1,70 @@
+package study.querydsl.repository.support;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * 동적 쿼리의 조건 조합(shape)별 JPQL 템플릿 캐시
+ *
+ * 조건 값은 Param 으로 두고 어떤 조건이 있는지만 키로 쓰므로
+ * 조합 수만큼만 템플릿이 만들어진다. (MemberSearchCondition 은 16가지)
+ */
+@Component
+public class QueryTemplateCache {
+
+	private final Map<List<Object>, QueryTemplate<?>> templates = new ConcurrentHashMap<>();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * @param name 쿼리 이름 (같은 shape 라도 쿼리가 다르면 이름으로 구분)
+	 * @param shape 조건 존재 여부, 정렬 등 JPQL 문자열을 바꾸는 값
+	 * @param query 캐시에 없을 때만 호출된다
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> QueryTemplate<T> get(String name, Object shape, EntityManager em, Supplier<JPAQuery<T>> query) {
+
+		List<Object> key = List.of(name, shape);
+
+		QueryTemplate<?> template = templates.get(key);
+
+		if ( template != null ) {
+			hits.increment();
+			return (QueryTemplate<T>) template;
+		}
+
+		return (QueryTemplate<T>) templates.computeIfAbsent(key, k -> {
+			misses.increment();
+			return new QueryTemplate<>(query.get(), new JPQLSerializer(JPAProvider.getTemplates(em), em));
+		});
+
+	}
+
+	public long hitCount() {
+		return hits.sum();
+	}
+
+	public long missCount() {
+		return misses.sum();
+	}
+
+	public int size() {
+		return templates.size();
+	}
+
+	public void clear() {
+		templates.clear();
+	}
+
+}
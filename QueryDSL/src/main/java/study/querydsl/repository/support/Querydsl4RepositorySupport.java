@@ -1,9 +1,18 @@
 package study.querydsl.repository.support;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
@@ -12,11 +21,21 @@ import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.SimpleEntityPathResolver;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.Assert;
 
+import com.querydsl.core.dml.DMLClause;
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.JPAProvider;
+import com.querydsl.jpa.JPQLSerializer;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 
@@ -35,6 +54,10 @@ public abstract class Querydsl4RepositorySupport {
 	private Querydsl querydsl;
 	private EntityManager entityManager;
 	private JPAQueryFactory queryFactory;
+	private CountCache countCache;
+	private TransactionTemplate chunkTransactionTemplate;
+	private ConcurrentPageExecutor pageExecutor;
+	private ApplicationEventPublisher eventPublisher;
 
 	public Querydsl4RepositorySupport(Class<?> domainClass) {
 		Assert.notNull(domainClass, "Domain class must not be null!");
@@ -52,6 +75,27 @@ public abstract class Querydsl4RepositorySupport {
 		this.queryFactory = new JPAQueryFactory(entityManager);
 	}
 
+	@Autowired(required = false)
+	public void setCountCache(CountCache countCache) {
+		this.countCache = countCache;
+	}
+
+	@Autowired(required = false)
+	public void setPageExecutor(ConcurrentPageExecutor pageExecutor) {
+		this.pageExecutor = pageExecutor;
+	}
+
+	@Autowired(required = false)
+	public void setEventPublisher(ApplicationEventPublisher eventPublisher) {
+		this.eventPublisher = eventPublisher;
+	}
+
+	@Autowired(required = false)
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.chunkTransactionTemplate = new TransactionTemplate(transactionManager);
+		this.chunkTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
 	@PostConstruct
 	public void validate() {
 		Assert.notNull(entityManager, "EntityManager must not be null!");
@@ -79,16 +123,191 @@ public abstract class Querydsl4RepositorySupport {
 		return getQueryFactory().selectFrom(from);
 	}
 
+	/**
+	 * 쿼리 결과 캐시 사용. 조회 대상 테이블에 쓰기(벌크 연산 포함)가 일어나면 Hibernate 가 무효화한다.
+	 */
+	protected <T> JPAQuery<T> cacheable(JPAQuery<T> query) {
+		return query.setHint(HibernateHints.HINT_CACHEABLE, true);
+	}
+
+	/**
+	 * 읽기 전용 조회. 조회한 엔티티의 스냅샷을 만들지 않고 flush 때 변경 감지 대상에서도 빠진다.
+	 * 현재 트랜잭션이 읽기 전용일 때만 힌트를 준다. 호출한 쪽의 쓰기 트랜잭션에 참여했다면 돌려준 엔티티의 변경이 반영되어야 하기 때문이다.
+	 * flush 모드도 바꾸지 않는다. 쓰기 트랜잭션 안에서는 아직 flush 되지 않은 변경이 조회에 반영되어야 한다.
+	 * (readOnly = true 트랜잭션으로 시작하면 Spring 이 세션을 FlushMode.MANUAL, 기본 읽기 전용으로 연다)
+	 */
+	protected <T> JPAQuery<T> readOnly(JPAQuery<T> query) {
+		return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? query.setHint(HibernateHints.HINT_READ_ONLY, true) : query;
+	}
+
+	/**
+	 * 컨텐츠 쿼리에서 정렬, 페이징, 불필요한 to-one left join 을 걷어낸 count(id) 쿼리.
+	 * 변환할 수 없는 쿼리(group by, distinct)면 null
+	 */
+	protected JPAQuery<Long> countQuery(JPAQuery<?> query) {
+		return CountQueryRewriter.rewrite(query, getEntityManager());
+	}
+
+	/**
+	 * 변환한 count 쿼리를 실행한다. {@link CountCache} 가 있으면 JPQL 과 바인딩 값을 키로 캐시한다.
+	 */
+	protected long fetchCount(JPAQuery<?> query) {
+		return fetchCount(query, getEntityManager());
+	}
+
+	// query 를 만든 EntityManager 가 아니라 entityManager 로 실행한다 (동시 count 용)
+	private long fetchCount(JPAQuery<?> query, EntityManager entityManager) {
+		JPAQuery<Long> countQuery = CountQueryRewriter.rewrite(query, entityManager);
+		if (countQuery == null) {
+			return query.clone(entityManager).fetchCount();
+		}
+		if (countCache == null) {
+			return fetchCountResult(countQuery);
+		}
+		return countCache.get(countCacheKey(countQuery, entityManager), entityManager, () -> fetchCountResult(countQuery));
+	}
+
+	private long fetchCountResult(JPAQuery<Long> countQuery) {
+		Long count = countQuery.fetchOne();
+		return count != null ? count : 0L;
+	}
+
+	private Object countCacheKey(JPAQuery<Long> countQuery, EntityManager entityManager) {
+		JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(entityManager), entityManager);
+		serializer.serialize(countQuery.getMetadata(), false, null);
+		return List.of(serializer.toString(), serializer.getConstants(), countQuery.getMetadata().getParams());
+	}
+
+	/**
+	 * {@link ConcurrentPageExecutor} 가 있으면 count 를 별도 EntityManager 로 컨텐츠 조회와 동시에 실행한다.
+	 */
 	protected <T> Page<T> applyPagination(Pageable pageable, Function<JPAQueryFactory, JPAQuery> contentQuery) {
 		JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-		List<T> content = getQuerydsl().applyPagination(pageable, jpaQuery).fetch();
-		return PageableExecutionUtils.getPage(content, pageable, jpaQuery::fetchCount);
+		// 페이징을 적용하기 전의 쿼리로 count 를 만든다 (다른 스레드에서 읽으므로 복사본 사용)
+		JPAQuery countResult = jpaQuery.clone();
+		return getPage(pageable, () -> getQuerydsl().applyPagination(pageable, jpaQuery).fetch(), countResult);
 	}
 
 	protected <T> Page<T> applyPagination(Pageable pageable, Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory, JPAQuery> countQuery) {
 		JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-		List<T> content = getQuerydsl().applyPagination(pageable, jpaContentQuery).fetch();
 		JPAQuery countResult = countQuery.apply(getQueryFactory());
-		return PageableExecutionUtils.getPage(content, pageable, countResult::fetchCount);
+		return getPage(pageable, () -> getQuerydsl().applyPagination(pageable, jpaContentQuery).fetch(), countResult);
+	}
+
+	private <T> Page<T> getPage(Pageable pageable, Supplier<List<T>> content, JPAQuery<?> countQuery) {
+		if (pageExecutor == null) {
+			return PageableExecutionUtils.getPage(content.get(), pageable, () -> fetchCount(countQuery));
+		}
+		return pageExecutor.getPage(pageable, content, entityManager -> fetchCount(countQuery, entityManager), getEntityManager());
+	}
+
+	/**
+	 * offset 대신 마지막으로 본 (sortKey, id) 이후의 행만 조회하는 keyset 페이징.
+	 * 페이지 깊이와 상관없이 (sortKey, id) 인덱스 범위 탐색 한 번으로 끝난다.
+	 */
+	protected <T> KeysetSlice<T> applyKeyset(KeysetCursor cursor, int size, ComparableExpressionBase<?> sortKey, NumberPath<Long> idPath,
+			Function<T, ? extends Comparable<?>> sortKeyOf, Function<T, Long> idOf, Function<JPAQueryFactory, JPAQuery<T>> contentQuery) {
+		KeysetSlice.checkSize(size);
+		JPAQuery<T> jpaQuery = contentQuery.apply(getQueryFactory());
+		if (cursor != null) {
+			jpaQuery.where(cursor.after(sortKey, idPath));
+		}
+		List<T> rows = jpaQuery.orderBy(sortKey.asc(), idPath.asc()).limit(size + 1L).fetch();
+		return KeysetSlice.of(rows, size, sortKeyOf, idOf);
+	}
+
+	/**
+	 * 벌크 update/delete 실행.
+	 * 실행 전에 flush 하고, 실행 후에는 영속성 컨텍스트에 남아 있는 대상 엔티티를 detach 해서
+	 * 이후 조회가 DB 의 변경된 값을 다시 읽도록 한다.
+	 * 실행 후 {@link BulkOperationEvent} 를 발행한다.
+	 */
+	protected long execute(EntityPath<?> target, Function<JPAQueryFactory, DMLClause<?>> clause) {
+		getEntityManager().flush();
+		long affectedRows = clause.apply(getQueryFactory()).execute();
+		detachAll(target.getType());
+		publishBulkOperation(target.getType(), affectedRows);
+		return affectedRows;
+	}
+
+	/**
+	 * id 범위를 chunkSize 씩 나눠 범위마다 별도 트랜잭션으로 실행하고 커밋한다.
+	 * clause 에는 해당 범위 조건이 넘어오므로 where 절에 반드시 포함해야 한다.
+	 * 한 번에 잡는 행 잠금을 범위 하나로 제한하기 위한 것이라 바깥 트랜잭션 안에서는 호출할 수 없다.
+	 * 모든 범위가 끝나면 {@link BulkOperationEvent} 를 한 번 발행한다.
+	 */
+	protected BulkOperationResult executeInChunks(EntityPath<?> target, NumberPath<Long> idPath, long chunkSize,
+			BiFunction<JPAQueryFactory, Predicate, DMLClause<?>> clause) {
+		return executeInChunks(target, idPath, chunkSize, (query, idRange, fromId, toId) -> clause.apply(query, idRange));
+	}
+
+	/**
+	 * 범위마다 [fromId, toId) 를 함께 받는 {@link #executeInChunks(EntityPath, NumberPath, long, BiFunction)}.
+	 * 범위는 아직 처리하지 않은 가장 작은 id 부터 시작하므로 id 가 듬성듬성해도 행이 없는 범위의 트랜잭션은 열지 않는다.
+	 */
+	protected BulkOperationResult executeInChunks(EntityPath<?> target, NumberPath<Long> idPath, long chunkSize, ChunkClause clause) {
+		Assert.isTrue(chunkSize > 0, "Chunk size must be greater than zero!");
+		Assert.state(!TransactionSynchronizationManager.isActualTransactionActive(), "Chunked bulk operations commit per chunk and must not run inside a transaction!");
+		Assert.notNull(chunkTransactionTemplate, "PlatformTransactionManager must not be null!");
+
+		List<BulkOperationResult.Chunk> chunks = new ArrayList<>();
+		Long nextId = Long.MIN_VALUE;
+
+		while (nextId != null) {
+			long seekFrom = nextId;
+			// 범위를 정하는 조회와 범위의 DML 을 같은 트랜잭션에서 실행한다 (where id >= ? order by id limit 1)
+			BulkOperationResult.Chunk chunk = chunkTransactionTemplate.execute(status -> {
+				Long fromId = getQueryFactory()
+						.select(idPath)
+						.from(target)
+						.where(idPath.goe(seekFrom))
+						.orderBy(idPath.asc())
+						.fetchFirst();
+				if (fromId == null) {
+					return null;
+				}
+				long toId = fromId + chunkSize;
+				Predicate range = idPath.goe(fromId).and(idPath.lt(toId));
+				long started = System.nanoTime();
+				long affectedRows = clause.apply(getQueryFactory(), range, fromId, toId).execute();
+				return new BulkOperationResult.Chunk(fromId, toId, affectedRows, Duration.ofNanos(System.nanoTime() - started));
+			});
+			if (chunk != null) {
+				chunks.add(chunk);
+			}
+			nextId = chunk != null ? chunk.getToId() : null;
+		}
+
+		// OSIV 등으로 열려 있는 영속성 컨텍스트가 있으면 오래된 엔티티를 비운다
+		if (TransactionSynchronizationManager.hasResource(getEntityManager().getEntityManagerFactory())) {
+			detachAll(target.getType());
+		}
+
+		BulkOperationResult result = new BulkOperationResult(chunks);
+		publishBulkOperation(target.getType(), result.getAffectedRows());
+		return result;
+	}
+
+	private void publishBulkOperation(Class<?> entityType, long affectedRows) {
+		if (eventPublisher != null && affectedRows > 0) {
+			eventPublisher.publishEvent(new BulkOperationEvent(entityType, affectedRows));
+		}
+	}
+
+	private void detachAll(Class<?> entityType) {
+		SessionImplementor session = getEntityManager().unwrap(SessionImplementor.class);
+		for (Map.Entry<Object, EntityEntry> entry : session.getPersistenceContextInternal().reentrantSafeEntityEntries()) {
+			if (entityType.isInstance(entry.getKey())) {
+				getEntityManager().detach(entry.getKey());
+			}
+		}
+	}
+
+	/**
+	 * 범위 하나에 실행할 벌크 update/delete. idRange 는 [fromId, toId) 조건이다
+	 */
+	@FunctionalInterface
+	protected interface ChunkClause {
+		DMLClause<?> apply(JPAQueryFactory query, Predicate idRange, long fromId, long toId);
 	}
 }
@@ -0,0 +1,74 @@
+package study.querydsl.service;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import lombok.Getter;
+
+/**
+ * 백그라운드 export 작업 상태 (export 스레드 하나만 값을 바꾸고 요청 스레드는 읽기만 한다)
+ */
+@Getter
+public class ExportJob {
+
+	public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+	private final String id;
+	@JsonIgnore
+	private final Path file;
+	private final Instant requestedAt = Instant.now();
+
+	private volatile Status status = Status.QUEUED;
+	private volatile long total = -1;
+	private volatile long exported;
+	private volatile Instant finishedAt;
+	private volatile String error;
+	@JsonIgnore
+	private volatile boolean discarded;
+
+	ExportJob(String id, Path file) {
+		this.id = id;
+		this.file = file;
+	}
+
+	public int getProgressPercent() {
+
+		if ( status == Status.COMPLETED ) return 100;
+		if ( total <= 0 ) return 0;
+
+		return (int) Math.min(99, exported * 100 / total);
+
+	}
+
+	public boolean isDone() {
+		return status == Status.COMPLETED || status == Status.FAILED;
+	}
+
+	void running(long total) {
+		this.total = total;
+		this.status = Status.RUNNING;
+	}
+
+	void exported(long exported) {
+		this.exported = exported;
+	}
+
+	void completed() {
+		this.finishedAt = Instant.now();
+		this.status = Status.COMPLETED;
+	}
+
+	// 예외 메시지에는 경로, SQL 이 들어 있을 수 있으므로 응답에는 일반 메시지만 두고 자세한 내용은 로그로 남긴다
+	void failed() {
+		this.error = "export failed, see server log for job " + id;
+		this.finishedAt = Instant.now();
+		this.status = Status.FAILED;
+	}
+
+	void discard() {
+		this.discarded = true;
+	}
+
+}
@@ -0,0 +1,285 @@
+package study.querydsl.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 회원 전체를 CSV 파일로 내보낸다.
+ *
+ * StatelessSession 으로 스크롤하므로 영속성 컨텍스트에 엔티티가 쌓이지 않고,
+ * 고정 크기 버퍼에 모아서 FileChannel 로 쓰므로 테이블 크기와 상관없이 힙 사용량이 일정하다.
+ * 작업은 export 전용 스레드 하나에서 순서대로 실행되고 진행 상황은 {@link #find(String)} 로 조회한다.
+ * 끝난 작업은 ttl 이 지나거나 최근 작업 목록에서 밀려나면 CSV 파일과 함께 지운다.
+ */
+@Slf4j
+@Service
+public class MemberExportService implements DisposableBean {
+
+	private static final String HEADER = "member_id,username,age,team_id,team_name\n";
+	private static final int MAX_JOBS = 100;
+	private static final int PROGRESS_INTERVAL = 1000;
+
+	private final SessionFactory sessionFactory;
+	private final Path exportDir;
+	private final int fetchSize;
+	private final int bufferSize;
+	private final Duration ttl;
+	private final ThreadPoolTaskExecutor executor;
+
+	// 최근 작업만 보관 (밀려난 작업의 파일은 지운다)
+	private final Map<String, ExportJob> jobs = new LinkedHashMap<>() {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ExportJob> eldest) {
+
+			if ( size() <= MAX_JOBS ) return false;
+
+			discard(eldest.getValue());
+			return true;
+
+		}
+	};
+
+	public MemberExportService(
+			EntityManagerFactory emf,
+			@Value("${querydsl.export.dir:${java.io.tmpdir}/querydsl-export}") Path exportDir,
+			@Value("${querydsl.export.fetch-size:1000}") int fetchSize,
+			@Value("${querydsl.export.buffer-size:65536}") int bufferSize,
+			@Value("${querydsl.export.queue-capacity:10}") int queueCapacity,
+			@Value("${querydsl.export.ttl:1h}") Duration ttl) {
+
+		this.sessionFactory = emf.unwrap(SessionFactory.class);
+		this.exportDir = exportDir;
+		this.fetchSize = fetchSize;
+		this.bufferSize = bufferSize;
+		this.ttl = ttl;
+
+		this.executor = new ThreadPoolTaskExecutor();
+		this.executor.setThreadNamePrefix("member-export-");
+		this.executor.setCorePoolSize(1);
+		this.executor.setMaxPoolSize(1);
+		this.executor.setQueueCapacity(queueCapacity);
+		this.executor.initialize();
+
+	}
+
+	/**
+	 * 작업을 등록하고 바로 반환한다. 대기열이 가득 차면 TaskRejectedException
+	 */
+	public ExportJob start() {
+
+		String id = UUID.randomUUID().toString();
+		ExportJob job = new ExportJob(id, exportDir.resolve("members-" + id + ".csv"));
+
+		executor.execute(() -> run(job));
+
+		synchronized ( jobs ) {
+			jobs.put(id, job);
+		}
+
+		return job;
+
+	}
+
+	public Optional<ExportJob> find(String id) {
+		synchronized ( jobs ) {
+			return Optional.ofNullable(jobs.get(id));
+		}
+	}
+
+	/**
+	 * ttl 이 지난 작업을 목록과 디스크에서 지운다
+	 */
+	@Scheduled(initialDelayString = "${querydsl.export.cleanup-interval:PT10M}", fixedDelayString = "${querydsl.export.cleanup-interval:PT10M}")
+	public void removeExpired() {
+		removeFinishedBefore(Instant.now().minus(ttl));
+	}
+
+	int removeFinishedBefore(Instant cutoff) {
+
+		List<ExportJob> expired = new ArrayList<>();
+
+		synchronized ( jobs ) {
+
+			Iterator<ExportJob> it = jobs.values().iterator();
+
+			while ( it.hasNext() ) {
+
+				ExportJob job = it.next();
+
+				if ( job.isDone() && job.getFinishedAt().isBefore(cutoff) ) {
+					expired.add(job);
+					it.remove();
+				}
+
+			}
+
+		}
+
+		expired.forEach(MemberExportService::discard);
+
+		return expired.size();
+
+	}
+
+	private void run(ExportJob job) {
+
+		Path temp = job.getFile().resolveSibling(job.getFile().getFileName() + ".part");
+
+		try {
+
+			Files.createDirectories(exportDir);
+			export(job, temp);
+			Files.move(temp, job.getFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			job.completed();
+			log.info("member export {} completed: {} rows -> {}", job.getId(), job.getExported(), job.getFile());
+
+			if ( job.isDiscarded() ) deleteQuietly(job.getFile());
+
+		} catch ( Exception e ) {
+
+			job.failed();
+			log.error("member export {} failed", job.getId(), e);
+			deleteQuietly(temp);
+
+		}
+
+	}
+
+	private void export(ExportJob job, Path temp) throws IOException {
+
+		try ( StatelessSession session = sessionFactory.openStatelessSession();
+			  FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING) ) {
+
+			job.running(session.createQuery("select count(m) from Member m", Long.class).getSingleResult());
+
+			ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+			write(channel, buffer, HEADER);
+
+			long exported = 0;
+
+			// 엔티티 대신 필요한 컬럼만 조회한다 (StatelessSession 이라도 엔티티를 만들면 행마다 객체가 늘어난다)
+			try ( ScrollableResults<Object[]> rows = session
+					.createQuery("select m.id, m.username, m.age, t.id, t.name from Member m left join m.team t order by m.id", Object[].class)
+					.setFetchSize(fetchSize)
+					.setReadOnly(true)
+					.scroll(ScrollMode.FORWARD_ONLY) ) {
+
+				while ( rows.next() ) {
+
+					write(channel, buffer, toCsvLine(rows.get()));
+
+					if ( ++exported % PROGRESS_INTERVAL == 0 ) job.exported(exported);
+
+				}
+
+			}
+
+			flush(channel, buffer);
+			channel.force(false);
+			job.exported(exported);
+
+		}
+
+	}
+
+	private static String toCsvLine(Object[] row) {
+
+		StringBuilder line = new StringBuilder(64);
+
+		for ( int i=0; i<row.length; i++ ) {
+			if ( i > 0 ) line.append(',');
+			if ( row[i] != null ) line.append(escape(row[i].toString()));
+		}
+
+		return line.append('\n').toString();
+
+	}
+
+	private static String escape(String value) {
+
+		if ( value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0 ) return value;
+
+		return '"' + value.replace("\"", "\"\"") + '"';
+
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer, String text) throws IOException {
+
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+		if ( bytes.length > buffer.remaining() ) flush(channel, buffer);
+
+		// 버퍼보다 큰 한 줄은 바로 쓴다
+		if ( bytes.length > buffer.capacity() ) {
+			ByteBuffer large = ByteBuffer.wrap(bytes);
+			while ( large.hasRemaining() ) channel.write(large);
+			return;
+		}
+
+		buffer.put(bytes);
+
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+		buffer.flip();
+		while ( buffer.hasRemaining() ) channel.write(buffer);
+		buffer.clear();
+
+	}
+
+	// 아직 실행 중인 작업은 끝나도 찾을 수 없으므로 결과 파일을 남기지 않도록 표시만 한다
+	private static void discard(ExportJob job) {
+
+		job.discard();
+
+		if ( job.isDone() ) {
+			deleteQuietly(job.getFile());
+			log.debug("member export {} discarded", job.getId());
+		}
+
+	}
+
+	private static void deleteQuietly(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch ( IOException e ) {
+			log.warn("failed to delete {}", path, e);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdown();
+	}
+
+}
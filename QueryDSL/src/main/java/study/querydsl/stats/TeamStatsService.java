@@ -0,0 +1,174 @@
+package study.querydsl.stats;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkOperationEvent;
+import study.querydsl.repository.support.DebouncedTask;
+import study.querydsl.stats.TeamStatsStore.TeamAggregate;
+
+/**
+ * 팀 통계 조회. 평소에는 {@link TeamStatsStore} 의 증분 값을 그대로 돌려주고,
+ * 주기적으로(그리고 벌크 연산 후에) 실제 group by 결과와 맞춰본다.
+ *
+ * 재계산은 reconcile 스레드에서만 한다. stale 이어도 요청 스레드는 마지막 값을 바로 돌려주고
+ * 재계산을 예약만 한다 (처음 한 번 적재하기 전에는 돌려줄 값이 없으므로 기다린다).
+ */
+@Slf4j
+@Service
+public class TeamStatsService implements DisposableBean {
+
+	private final TeamStatsStore store;
+	private final JPAQueryFactory queryFactory;
+	private final TransactionTemplate transactionTemplate;
+	private final Duration reconcileDelay;
+	private final DebouncedTask reconcileTask;
+
+	public TeamStatsService(
+			TeamStatsStore store,
+			EntityManager em,
+			PlatformTransactionManager transactionManager,
+			@Value("${querydsl.team-stats.reconcile-delay:1s}") Duration reconcileDelay) {
+
+		this.store = store;
+		this.queryFactory = new JPAQueryFactory(em);
+		this.reconcileDelay = reconcileDelay;
+
+		// 커밋 후 콜백에서도 호출되므로 항상 새 트랜잭션으로 읽는다
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.transactionTemplate.setReadOnly(true);
+
+		this.reconcileTask = new DebouncedTask("team-stats-reconcile", this::reconcile);
+
+	}
+
+	public List<TeamStatsDto> getStats() {
+
+		if ( !store.isLoaded() ) reconcile();
+		else if ( store.isStale() ) reconcileTask.schedule(reconcileDelay);
+
+		return store.snapshot();
+
+	}
+
+	/**
+	 * group by 로 다시 계산해서 증분 값과 비교하고 교체한다.
+	 * 계산하는 동안 들어온 증분 변경은 계산 결과에 다시 적용한다. 그래도 맞는지 알 수 없으면(그 사이 벌크 연산) 다시 예약하고 false
+	 */
+	public synchronized boolean reconcile() {
+
+		List<TeamStatsDto> before = store.snapshot();
+		long generation = store.beginReconcile();
+
+		Map<Long, TeamAggregate> fresh;
+
+		try {
+			fresh = transactionTemplate.execute(status -> groupByTeam());
+		} catch ( RuntimeException e ) {
+			store.abortReconcile();
+			throw e;
+		}
+
+		store.replace(fresh, generation);
+
+		List<TeamStatsDto> after = store.snapshot();
+
+		if ( !Objects.equals(before, after) ) {
+			log.info("team stats reconciled: {} teams, {} drifted", after.size(), drifted(before, after));
+		}
+
+		if ( store.isStale() ) {
+			log.debug("team stats changed while reconciling, retry in {}", reconcileDelay);
+			reconcileTask.schedule(reconcileDelay);
+			return false;
+		}
+
+		return true;
+
+	}
+
+	@Scheduled(initialDelayString = "${querydsl.team-stats.reconcile-interval:PT5M}", fixedDelayString = "${querydsl.team-stats.reconcile-interval:PT5M}")
+	public void scheduledReconcile() {
+		reconcileTask.schedule(Duration.ZERO);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		reconcileTask.schedule(Duration.ZERO);
+	}
+
+	// 벌크 연산은 어떤 행이 바뀌었는지 모르므로 커밋 후 전체를 다시 계산한다 (호출한 스레드에서는 예약만)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onBulkOperation(BulkOperationEvent event) {
+
+		if ( event.getEntityType() != Member.class && event.getEntityType() != Team.class ) return;
+
+		store.markStale();
+		reconcileTask.schedule(reconcileDelay);
+
+	}
+
+	@Override
+	public void destroy() {
+		reconcileTask.shutdown();
+	}
+
+	// 팀, 나이별 인원수로 읽어서 max/min 을 증분으로 유지할 수 있는 형태로 만든다
+	private Map<Long, TeamAggregate> groupByTeam() {
+
+		List<Tuple> rows = queryFactory
+							.select(team.id, team.name, member.age, member.count())
+							.from(member)
+							.join(member.team, team)
+							.groupBy(team.id, team.name, member.age)
+							.fetch();
+
+		Map<Long, TeamAggregate> result = new HashMap<>();
+
+		for ( Tuple row : rows ) {
+			result.computeIfAbsent(row.get(team.id), id -> new TeamAggregate(row.get(team.name)))
+				  .add(row.get(member.age), row.get(member.count()));
+		}
+
+		return result;
+
+	}
+
+	private static long drifted(List<TeamStatsDto> before, List<TeamStatsDto> after) {
+
+		Map<Long, TeamStatsDto> beforeById = new HashMap<>();
+		before.forEach(stats -> beforeById.put(stats.getTeamId(), stats));
+
+		long drifted = after.stream().filter(stats -> !stats.equals(beforeById.remove(stats.getTeamId()))).count();
+
+		return drifted + beforeById.size();
+
+	}
+
+}
@@ -0,0 +1,259 @@
+package study.querydsl.stats;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.repository.support.MemberChangeHandler;
+import study.querydsl.repository.support.MemberRow;
+
+/**
+ * 팀별 나이 통계를 커밋된 회원 변경 이벤트({@link MemberChangeHandler})로 증분 유지한다.
+ *
+ * 팀마다 count, sum 과 나이별 인원수(TreeMap)를 두어 회원이 빠질 때도 max/min 을 다시 계산하지 않는다.
+ * 조회는 O(팀 수). 모든 변경은 커밋 후 이벤트 한 건당 O(log 나이 종류) 라 store 전체를 잠가서 처리한다.
+ *
+ * 재계산(group by)하는 동안 들어온 변경은 모아 둔다. 재계산 쿼리가 시작되기 직전에 커밋된 변경은
+ * 조회 결과와 journal 양쪽에 들어갈 수 있어서 회원 수가 바뀌는 변경을 다시 적용하면 두 번 셀 수 있다.
+ * 그래서 그런 변경이 있었으면 재계산 결과를 쓰지 않고 증분 값을 그대로 둔 채 stale 로 남겨 다시 재계산한다
+ * (팀 이름 변경처럼 두 번 적용해도 같은 변경만 있었으면 재계산 결과에 다시 적용한다).
+ * 처음 적재할 때는 증분 값이 없으므로 재계산 결과에 다시 적용하고 stale 로 남긴다.
+ */
+@Component
+public class TeamStatsStore implements MemberChangeHandler {
+
+	private Map<Long, TeamAggregate> teams = new HashMap<>();
+
+	// 재계산 중에 들어온 변경 (재계산 중이 아니면 null). 적용한 결과가 정확하지 않으면 false
+	private List<Function<Map<Long, TeamAggregate>, Boolean>> journal;
+	// journal 에 회원 수가 바뀌는 변경(두 번 적용하면 틀리는 변경)이 있는지
+	private boolean journalCounted;
+	// markStale 마다 증가. 재계산 중에 증분으로 따라갈 수 없는 변경이 있었는지 확인하는 용도
+	private long staleGeneration;
+	private boolean stale = true;
+	private boolean loaded;
+
+	@Override
+	public synchronized void memberInserted(MemberRow member) {
+		if ( member.teamId() != null ) addMember(member.teamId(), member.teamName(), member.age());
+	}
+
+	// changeTeam, 나이 변경. 빼고 더하는 사이를 snapshot 이 보지 않게 한 번에 바꾼다
+	@Override
+	public synchronized void memberUpdated(MemberRow before, MemberRow after) {
+
+		if ( Objects.equals(before.teamId(), after.teamId()) && before.age() == after.age() ) return;
+
+		if ( before.teamId() != null ) removeMember(before.teamId(), before.age());
+		if ( after.teamId() != null ) addMember(after.teamId(), after.teamName(), after.age());
+
+	}
+
+	@Override
+	public synchronized void memberDeleted(MemberRow member) {
+		if ( member.teamId() != null ) removeMember(member.teamId(), member.age());
+	}
+
+	@Override
+	public void teamSaved(Long teamId, String teamName) {
+		renameTeam(teamId, teamName);
+	}
+
+	@Override
+	public void teamDeleted(Long teamId) {
+		removeTeam(teamId);
+	}
+
+	@Override
+	public void unknownChange() {
+		markStale();
+	}
+
+	public synchronized void addMember(Long teamId, String teamName, int age) {
+		applyCounted(target -> addMember(target, teamId, teamName, age));
+	}
+
+	public synchronized void removeMember(Long teamId, int age) {
+		applyCounted(target -> removeMember(target, teamId, age));
+	}
+
+	public synchronized void renameTeam(Long teamId, String teamName) {
+		apply(target -> {
+			target.computeIfAbsent(teamId, id -> new TeamAggregate()).name = teamName;
+			return true;
+		});
+	}
+
+	public synchronized void removeTeam(Long teamId) {
+		apply(target -> {
+			target.remove(teamId);
+			return true;
+		});
+	}
+
+	/**
+	 * 증분으로 따라갈 수 없는 변경(벌크 연산 등)이 있었음을 표시한다. 다음 재계산까지 stale
+	 */
+	public synchronized void markStale() {
+		stale = true;
+		staleGeneration++;
+	}
+
+	public synchronized boolean isStale() {
+		return stale;
+	}
+
+	/**
+	 * 한 번이라도 재계산 결과로 채워졌는지
+	 */
+	public synchronized boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * 재계산을 시작한다. 이후의 증분 변경은 {@link #replace(Map, long)} 에서 재계산 결과에 다시 적용된다
+	 */
+	synchronized long beginReconcile() {
+		journal = new ArrayList<>();
+		journalCounted = false;
+		return staleGeneration;
+	}
+
+	synchronized void abortReconcile() {
+		journal = null;
+	}
+
+	/**
+	 * 재계산한 값에 그 사이 들어온 변경을 적용해서 통째로 교체한다.
+	 * 재계산 중에 회원 수가 바뀌었으면 (이미 적재된 뒤라면) 교체하지 않는다.
+	 * 재계산 중에 markStale 이나 회원 수 변경이 있었거나 다시 적용한 변경이 맞지 않으면 stale 로 남는다
+	 */
+	synchronized void replace(Map<Long, TeamAggregate> fresh, long generation) {
+
+		boolean counted = journalCounted;
+
+		if ( counted && loaded ) {
+			journal = null;
+			stale = true;
+			return;
+		}
+
+		boolean exact = true;
+
+		if ( journal != null ) {
+			for ( Function<Map<Long, TeamAggregate>, Boolean> change : journal ) exact &= change.apply(fresh);
+		}
+
+		journal = null;
+		teams = fresh;
+		stale = counted || !exact || staleGeneration != generation;
+		loaded = true;
+
+	}
+
+	/**
+	 * 회원이 있는 팀만 team id 순으로 (member join team group by team 과 같은 결과)
+	 */
+	public synchronized List<TeamStatsDto> snapshot() {
+
+		List<TeamStatsDto> result = new ArrayList<>(teams.size());
+
+		teams.forEach((teamId, aggregate) -> {
+			if ( aggregate.count > 0 ) result.add(aggregate.toDto(teamId));
+		});
+
+		result.sort(Comparator.comparing(TeamStatsDto::getTeamId));
+
+		return result;
+
+	}
+
+	private void apply(Function<Map<Long, TeamAggregate>, Boolean> change) {
+
+		if ( !change.apply(teams) ) stale = true;
+		if ( journal != null ) journal.add(change);
+
+	}
+
+	private void applyCounted(Function<Map<Long, TeamAggregate>, Boolean> change) {
+
+		apply(change);
+		if ( journal != null ) journalCounted = true;
+
+	}
+
+	// 이름을 모르는 팀(getReference 로 연결)은 false, 재계산 때 채운다
+	private static boolean addMember(Map<Long, TeamAggregate> target, Long teamId, String teamName, int age) {
+
+		TeamAggregate aggregate = target.computeIfAbsent(teamId, id -> new TeamAggregate());
+
+		if ( teamName != null ) aggregate.name = teamName;
+		aggregate.add(age, 1);
+
+		return aggregate.name != null;
+
+	}
+
+	// 없는 팀이나 나이를 빼려고 하면 false (이벤트를 놓친 것)
+	private static boolean removeMember(Map<Long, TeamAggregate> target, Long teamId, int age) {
+
+		TeamAggregate aggregate = target.get(teamId);
+
+		return aggregate != null && aggregate.remove(age);
+
+	}
+
+	static class TeamAggregate {
+
+		private String name;
+		private long count;
+		private long sum;
+
+		// 나이 -> 인원수
+		private final TreeMap<Integer, Long> ages = new TreeMap<>();
+
+		TeamAggregate() {
+		}
+
+		TeamAggregate(String name) {
+			this.name = name;
+		}
+
+		void add(int age, long members) {
+			ages.merge(age, members, Long::sum);
+			count += members;
+			sum += (long) age * members;
+		}
+
+		// 없는 나이를 빼려고 하면 false (이벤트를 놓친 것)
+		boolean remove(int age) {
+
+			Long members = ages.get(age);
+
+			if ( members == null ) return false;
+
+			if ( members == 1 ) ages.remove(age);
+			else ages.put(age, members - 1);
+
+			count--;
+			sum -= age;
+
+			return true;
+
+		}
+
+		TeamStatsDto toDto(Long teamId) {
+			return new TeamStatsDto(teamId, name, count, sum, (double) sum / count, ages.lastKey(), ages.firstKey());
+		}
+
+	}
+
+}
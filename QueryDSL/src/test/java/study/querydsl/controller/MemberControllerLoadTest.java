@@ -0,0 +1,196 @@
+package study.querydsl.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import jakarta.persistence.EntityManager;
+import study.querydsl.QueryDslApplication;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 동시 접속 1000 이상에서 /v3/members 처리량 비교 (./gradlew loadTest)
+ *
+ * 요청 스레드 모델(Tomcat 200 스레드)과 가상 스레드 모델을 차례로 띄워 같은 부하로 실행하고
+ * 처리량, 503(bulkhead 거절) 비율, 최대 지연 시간, 커넥션 풀 사용량을 나란히 출력한다.
+ * 가상 스레드 모델은 요청 스레드 수에 제한이 없으므로 bulkhead 가 커넥션 풀 크기 안에서 DB 작업을 막는지 확인한다.
+ * loadTest 태스크는 JDK 21 툴체인으로 실행하므로 가상 스레드 모델도 건너뛰지 않는다.
+ */
+@Tag("load")
+class MemberControllerLoadTest {
+
+	static final int CLIENTS = 1200;
+	static final int REQUESTS_PER_CLIENT = 5;
+	static final int MEMBER_COUNT = 100;
+
+	@Test
+	public void searchMemberV3() {
+
+		List<LoadResult> results = new ArrayList<>();
+		results.add(run(false));
+
+		if ( Runtime.version().feature() >= 21 ) {
+			results.add(run(true));
+		} else {
+			System.out.println("virtual threads require JDK 21+, running platform threads only");
+		}
+
+		System.out.printf("%-8s %8s %8s %8s %12s %24s %10s %10s%n", "threads", "requests", "ms", "req/s", "max latency", "status", "active", "awaiting");
+		results.forEach(result -> System.out.printf("%-8s %8d %8d %8d %12d %24s %7d/%-2d %10d%n",
+				result.mode(), result.requests(), result.elapsedMillis(), result.requests() * 1000 / result.elapsedMillis(), result.maxLatencyMillis(),
+				result.statuses(), result.maxActiveConnections(), result.poolSize(), result.maxAwaitingConnections()));
+
+		for ( LoadResult result : results ) {
+
+			// bulkhead 가 커넥션 대기 대신 503 으로 거절하므로 200, 503 외의 응답(타임아웃, 500)은 없어야 한다
+			assertThat(result.statuses().keySet()).as(result.mode()).isSubsetOf(200, 503);
+			assertThat(result.statuses().getOrDefault(200, 0L)).as(result.mode()).isPositive();
+			assertThat(result.firstPage()).as(result.mode()).contains("\"totalElements\":" + MEMBER_COUNT);
+
+			// 동시 DB 작업(bulkhead 자리 + count 스레드)은 커넥션 풀 안에 머문다.
+			// bulkhead 가 없으면 가상 스레드 모드에서는 요청 수만큼 커넥션을 기다린다
+			assertThat(result.maxActiveConnections()).as(result.mode()).isLessThanOrEqualTo(result.poolSize());
+			assertThat(result.maxAwaitingConnections()).as(result.mode()).isLessThanOrEqualTo(result.poolSize());
+
+		}
+
+	}
+
+	private LoadResult run(boolean virtualThreads) {
+
+		try ( ConfigurableApplicationContext context = new SpringApplicationBuilder(QueryDslApplication.class)
+				.logStartupInfo(false)
+				.run("--spring.profiles.active=test", "--server.port=0", "--spring.threads.virtual.enabled=" + virtualThreads) ) {
+
+			TransactionTemplate transactionTemplate = context.getBean(TransactionTemplate.class);
+			EntityManager em = context.getBean(EntityManager.class);
+
+			// 요청이 실제로 내용 조회와 count 를 하도록 한 페이지(20)보다 많은 회원을 커밋해 둔다
+			transactionTemplate.executeWithoutResult(status -> {
+
+				Team loadTeam = new Team("loadTeam");
+				em.persist(loadTeam);
+
+				for ( int i=0; i<MEMBER_COUNT; i++ ) em.persist(new Member("loadMember" + i, i, loadTeam));
+
+			});
+
+			try {
+				int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+				return load(virtualThreads ? "virtual" : "platform", port, context.getBean(DataSource.class).unwrap(HikariDataSource.class));
+			} finally {
+				transactionTemplate.executeWithoutResult(status -> {
+					em.createQuery("delete from Member m where m.username like 'loadMember%'").executeUpdate();
+					em.createQuery("delete from Team t where t.name = 'loadTeam'").executeUpdate();
+				});
+			}
+
+		} catch ( SQLException e ) {
+			throw new IllegalStateException(e);
+		}
+
+	}
+
+	private LoadResult load(String mode, int port, HikariDataSource dataSource) {
+
+		HttpClient client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(10))
+				.build();
+
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v3/members?teamName=loadTeam&page=0&size=20"))
+				.timeout(Duration.ofMinutes(1))
+				.build();
+
+		ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+		AtomicLong maxLatencyMillis = new AtomicLong();
+
+		// 부하 중 커넥션 풀의 사용 중/대기 중 커넥션 수 최대값
+		HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+		AtomicInteger maxActive = new AtomicInteger();
+		AtomicInteger maxAwaiting = new AtomicInteger();
+		ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+		sampler.scheduleAtFixedRate(() -> {
+			maxActive.accumulateAndGet(pool.getActiveConnections(), Math::max);
+			maxAwaiting.accumulateAndGet(pool.getThreadsAwaitingConnection(), Math::max);
+		}, 0, 1, TimeUnit.MILLISECONDS);
+
+		long start = System.nanoTime();
+		List<CompletableFuture<Void>> clients = new ArrayList<>(CLIENTS);
+
+		try {
+
+			// 클라이언트마다 응답을 받으면 다음 요청을 보낸다 (동시 요청 수 = CLIENTS)
+			for ( int i=0; i<CLIENTS; i++ ) {
+
+				CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+
+				for ( int j=0; j<REQUESTS_PER_CLIENT; j++ ) {
+					chain = chain.thenCompose(ignored -> {
+						long sent = System.nanoTime();
+						return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+								.thenAccept(response -> {
+									statuses.computeIfAbsent(response.statusCode(), status -> new LongAdder()).increment();
+									maxLatencyMillis.accumulateAndGet((System.nanoTime() - sent) / 1_000_000, Math::max);
+								});
+					});
+				}
+
+				clients.add(chain);
+
+			}
+
+			CompletableFuture.allOf(clients.toArray(CompletableFuture[]::new)).join();
+
+		} finally {
+			sampler.shutdownNow();
+		}
+
+		long elapsedMillis = Math.max((System.nanoTime() - start) / 1_000_000, 1);
+
+		Map<Integer, Long> statusCounts = new TreeMap<>();
+		statuses.forEach((status, count) -> statusCounts.put(status, count.sum()));
+
+		String firstPage = client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).join().body();
+
+		return new LoadResult(mode, (long) CLIENTS * REQUESTS_PER_CLIENT, elapsedMillis, statusCounts, maxLatencyMillis.get(),
+				maxActive.get(), maxAwaiting.get(), dataSource.getMaximumPoolSize(), firstPage);
+
+	}
+
+	private record LoadResult(String mode, long requests, long elapsedMillis, Map<Integer, Long> statuses, long maxLatencyMillis,
+			int maxActiveConnections, int maxAwaitingConnections, int poolSize, String firstPage) {
+	}
+
+}
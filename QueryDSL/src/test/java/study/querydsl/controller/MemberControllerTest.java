@@ -0,0 +1,54 @@
+package study.querydsl.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import study.querydsl.repository.support.KeysetCursor;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MemberControllerTest {
+
+	@Autowired
+	MockMvc mockMvc;
+
+	@Test
+	public void keysetRejectsInvalidSize() throws Exception {
+
+		mockMvc.perform(get("/v4/members").param("size", "0")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/v4/members").param("size", "-1")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/v4/members").param("size", String.valueOf(Integer.MAX_VALUE))).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/v4/members").param("size", String.valueOf(MemberController.MAX_KEYSET_SIZE))).andExpect(status().isOk());
+
+	}
+
+	@Test
+	public void keysetRejectsMalformedCursor() throws Exception {
+
+		mockMvc.perform(get("/v4/members").param("cursor", "not-a-cursor")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/v4/members").param("cursor", "eDox")).andExpect(status().isBadRequest()); // "x:1" (항목 부족)
+
+	}
+
+	@Test
+	public void keysetRejectsCursorOfOtherSortKey() throws Exception {
+
+		// age 로 정렬하는 /v4 에 문자열 정렬키 커서
+		String usernameCursor = KeysetCursor.of("member1", 1L).encode();
+		String longCursor = KeysetCursor.of(10L, 1L).encode();
+
+		mockMvc.perform(get("/v4/members").param("cursor", usernameCursor)).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/v4/members").param("cursor", longCursor)).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/v4/members").param("cursor", KeysetCursor.of(10, 1L).encode())).andExpect(status().isOk());
+
+	}
+
+}
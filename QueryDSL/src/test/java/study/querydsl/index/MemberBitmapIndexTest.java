@@ -0,0 +1,332 @@
+package study.querydsl.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import jakarta.persistence.EntityManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTestRepository;
+import study.querydsl.repository.support.MemberRow;
+
+// 인덱스는 커밋된 변경만 반영하므로 트랜잭션 없이 커밋하고 끝나면 지운다
+// 예약된 재적재가 테스트 중간에 끼어들지 않도록 rebuild-delay, rebuild-interval 을 길게 둔다
+@SpringBootTest(properties = {"querydsl.bitmap-index.enabled=true", "querydsl.bitmap-index.rebuild-delay=1h", "querydsl.bitmap-index.rebuild-interval=1h"})
+@ActiveProfiles("test")
+class MemberBitmapIndexTest {
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	@Autowired
+	MemberBitmapIndex bitmapIndex;
+
+	@Autowired
+	MemberRepository memberRepository;
+
+	@Autowired
+	MemberTestRepository memberTestRepository;
+
+	Long teamBId;
+	Long member2Id;
+
+	@BeforeEach
+	public void before() {
+
+		transactionTemplate.executeWithoutResult(status -> {
+
+			Team teamA = new Team("bitmapTeamA");
+			Team teamB = new Team("bitmapTeamB");
+
+			em.persist(teamA);
+			em.persist(teamB);
+
+			Member member2 = new Member("bitmapMember2", 200_020, teamA);
+
+			em.persist(new Member("bitmapMember1", 200_010, teamA));
+			em.persist(member2);
+			em.persist(new Member("bitmapMember3", 200_030, teamB));
+			em.persist(new Member("bitmapMember4", 200_040, teamB));
+			em.persist(new Member("bitmapMember5", 200_020));
+
+			teamBId = teamB.getId();
+			member2Id = member2.getId();
+
+		});
+
+		bitmapIndex.rebuild();
+
+	}
+
+	@AfterEach
+	public void after() {
+
+		transactionTemplate.executeWithoutResult(status -> {
+			em.createQuery("delete from Member m where m.username like 'bitmapMember%'").executeUpdate();
+			em.createQuery("delete from Team t where t.name like 'bitmapTeam%'").executeUpdate();
+		});
+
+	}
+
+	@Test
+	public void countMatchesSql() {
+
+		assertThat(bitmapIndex.isReady()).isTrue();
+		assertCountsMatchSql();
+
+		// searchPageComplex 의 전체 건수도 인덱스에서
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("bitmapTeamB");
+
+		assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 1)).getTotalElements()).isEqualTo(2);
+
+	}
+
+	@Test
+	public void incrementalChangesMatchSql() {
+
+		// 팀 이동 + 나이 변경, 이름 변경, 삭제, 추가
+		transactionTemplate.executeWithoutResult(status -> {
+
+			Member member2 = em.find(Member.class, member2Id);
+			member2.changeTeam(em.find(Team.class, teamBId));
+			member2.setAge(200_050);
+
+			em.find(Team.class, teamBId).setName("bitmapTeamB2");
+
+			em.createQuery("select m from Member m where m.username = 'bitmapMember1'", Member.class)
+				.getResultList()
+				.forEach(em::remove);
+
+			em.persist(new Member("bitmapMember6", 200_060, em.find(Team.class, teamBId)));
+
+		});
+
+		assertThat(bitmapIndex.isReady()).isTrue();
+		assertCountsMatchSql();
+
+	}
+
+	@Test
+	public void bulkOperationRequiresRebuild() {
+
+		memberTestRepository.bulkDeleteByAgeGoe(200_035, 1_000_000_000L);
+
+		assertThat(bitmapIndex.isReady()).isFalse();
+		assertThat(bitmapIndex.count(new MemberSearchCondition())).isEmpty();
+
+		bitmapIndex.rebuild();
+
+		assertThat(bitmapIndex.isReady()).isTrue();
+		assertCountsMatchSql();
+
+	}
+
+	@Test
+	public void jpqlUpdateRequiresRebuild() {
+
+		// Querydsl4RepositorySupport 를 거치지 않은 DML 도 실행하는 순간 알려진다
+		transactionTemplate.executeWithoutResult(status -> em.createQuery("update Member m set m.age = 200099 where m.username = 'bitmapMember1'").executeUpdate());
+
+		assertThat(bitmapIndex.isReady()).isFalse();
+		assertThat(bitmapIndex.count(new MemberSearchCondition())).isEmpty();
+
+		bitmapIndex.rebuild();
+
+		assertThat(bitmapIndex.isReady()).isTrue();
+		assertCountsMatchSql();
+
+	}
+
+	@Test
+	public void writeInFlightFallsBackToSql() {
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+
+		transactionTemplate.executeWithoutResult(status -> {
+
+			em.persist(new Member("bitmapMember6", 200_060));
+			em.flush();
+
+			// 다른 스레드의 조회는 이 트랜잭션이 끝나 이벤트가 반영될 때까지 인덱스를 쓰지 않는다
+			assertThat(CompletableFuture.supplyAsync(() -> bitmapIndex.count(condition)).join()).isEmpty();
+
+		});
+
+		// 엔티티 저장은 다시 적재하지 않고 이벤트로 반영된다
+		assertThat(bitmapIndex.isReady()).isTrue();
+		assertCountsMatchSql();
+
+	}
+
+	@Test
+	public void usernameCandidatesMatchSql() {
+
+		for ( MemberSearchCondition condition : conditions() ) {
+
+			if ( !StringUtils.hasText(condition.getUsernameContains()) ) continue;
+
+			List<Long> expected = transactionTemplate.execute(status -> new JPAQueryFactory(em)
+					.select(member.id)
+					.from(member)
+					.where(member.username.contains(condition.getUsernameContains()))
+					.fetch());
+
+			// 후보는 username 조건만 보고 고른다 (나머지 조건은 쿼리에서)
+			MemberSearchCondition usernameOnly = new MemberSearchCondition();
+			usernameOnly.setUsername(condition.getUsername());
+			usernameOnly.setUsernameStartsWith(condition.getUsernameStartsWith());
+			usernameOnly.setUsernameContains(condition.getUsernameContains());
+
+			long expectedCount = sqlCount(usernameOnly);
+
+			// trigram 보다 짧으면 후보 없이 like 로만 조회한다
+			if ( condition.getUsernameContains().length() < MemberBitmaps.TRIGRAM_LENGTH ) {
+				assertThat(bitmapIndex.usernameCandidates(usernameOnly, em)).as("%s", condition).isEmpty();
+				continue;
+			}
+
+			assertThat(bitmapIndex.usernameCandidates(usernameOnly, em)).as("%s", condition)
+				.hasValueSatisfying(candidates -> assertThat(candidates.getMemberIds()).hasSize((int) expectedCount).isSubsetOf(expected));
+
+		}
+
+		// searchPageComplex 가 후보 id 로 조회해도 결과가 같다
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setUsernameContains("Member3");
+
+		assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 10)).getContent())
+			.extracting("username")
+			.containsExactly("bitmapMember3");
+
+	}
+
+	@Test
+	public void usernameCandidatesIncludeUnindexedMembers() {
+
+		// 커밋됐지만 아직 인덱스에 반영되지 않은 회원 (인덱스에서만 지워서 흉내낸다)
+		Member member7 = new Member("bitmapMember7", 200_070);
+		transactionTemplate.executeWithoutResult(status -> em.persist(member7));
+		bitmapIndex.memberDeleted(new MemberRow(member7.getId(), "bitmapMember7", 200_070, null, null));
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setUsernameContains("Member7");
+
+		assertThat(bitmapIndex.usernameCandidates(condition, em))
+			.hasValueSatisfying(candidates -> assertThat(candidates.getMemberIds()).containsExactly(member7.getId()));
+
+		// 인덱스 count 는 맞지 않으므로 SQL count 로
+		Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10));
+
+		assertThat(result.getContent()).extracting("username").containsExactly("bitmapMember7");
+		assertThat(result.getTotalElements()).isEqualTo(1);
+
+	}
+
+	@Test
+	public void usernameChangedByJpqlIsFoundByLike() {
+
+		transactionTemplate.executeWithoutResult(status -> em.createQuery("update Member m set m.username = 'bitmapMemberRenamed' where m.username = 'bitmapMember1'").executeUpdate());
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setUsernameContains("Renamed");
+
+		// 인덱스에는 아직 이전 username 이 있으므로 후보 없이 like 로 조회한다
+		assertThat(bitmapIndex.usernameCandidates(condition, em)).isEmpty();
+		assertThat(memberRepository.searchPageComplex(condition, PageRequest.of(0, 10)).getContent())
+			.extracting("username")
+			.containsExactly("bitmapMemberRenamed");
+
+	}
+
+	private void assertCountsMatchSql() {
+		for ( MemberSearchCondition condition : conditions() ) {
+			assertThat(bitmapIndex.count(condition)).as("%s", condition).hasValue(sqlCount(condition));
+		}
+	}
+
+	private long sqlCount(MemberSearchCondition condition) {
+
+		return transactionTemplate.execute(status -> new JPAQueryFactory(em)
+				.select(member.count())
+				.from(member)
+				.leftJoin(member.team, team)
+				.where(
+						  StringUtils.hasText(condition.getUsername()) ? member.username.eq(condition.getUsername()) : null
+						, StringUtils.hasText(condition.getTeamName()) ? team.name.eq(condition.getTeamName()) : null
+						, condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null
+						, condition.getAgeLoe() != null ? member.age.loe(condition.getAgeLoe()) : null
+						, StringUtils.hasText(condition.getUsernameStartsWith()) ? member.username.startsWith(condition.getUsernameStartsWith()) : null
+						, StringUtils.hasText(condition.getUsernameContains()) ? member.username.contains(condition.getUsernameContains()) : null
+					  )
+				.fetchOne());
+
+	}
+
+	private static List<MemberSearchCondition> conditions() {
+
+		List<MemberSearchCondition> conditions = new ArrayList<>();
+
+		String[] usernames = {null, "bitmapMember2", "bitmapMember6", "unknownMember"};
+		String[] teamNames = {null, "bitmapTeamA", "bitmapTeamB", "bitmapTeamB2", "unknownTeam"};
+		Integer[][] ageRanges = {{null, null}, {200_020, null}, {null, 200_020}, {200_015, 200_055}, {200_050, 200_010}, {20, 30}};
+
+		for ( String username : usernames ) {
+			for ( String teamName : teamNames ) {
+				for ( Integer[] ageRange : ageRanges ) {
+					MemberSearchCondition condition = new MemberSearchCondition();
+					condition.setUsername(username);
+					condition.setTeamName(teamName);
+					condition.setAgeGoe(ageRange[0]);
+					condition.setAgeLoe(ageRange[1]);
+					conditions.add(condition);
+				}
+			}
+		}
+
+		// username 시작/포함 조건 (포함은 trigram 보다 짧은 것과 긴 것)
+		String[][] usernamePatterns = {{"bitmapMember", null}, {null, "er"}, {null, "Member2"}, {"bitmap", "ber6"}, {"bitmapMember2", "Member3"}, {null, "zzz"}};
+
+		for ( String[] pattern : usernamePatterns ) {
+			for ( String teamName : teamNames ) {
+				for ( Integer[] ageRange : ageRanges ) {
+					MemberSearchCondition condition = new MemberSearchCondition();
+					condition.setUsernameStartsWith(pattern[0]);
+					condition.setUsernameContains(pattern[1]);
+					condition.setTeamName(teamName);
+					condition.setAgeGoe(ageRange[0]);
+					condition.setAgeLoe(ageRange[1]);
+					conditions.add(condition);
+				}
+			}
+		}
+
+		return conditions;
+
+	}
+
+}
@@ -0,0 +1,36 @@
+package study.querydsl.monitor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import study.querydsl.repository.support.CountCache;
+import study.querydsl.repository.support.QueryTemplateCache;
+
+class CacheMetricsBinderTest {
+
+	@Test
+	public void countCacheEvictions() {
+		
+		CountCache countCache = new CountCache(true, 1, Duration.ofMinutes(1));
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		new CacheMetricsBinder(countCache, new QueryTemplateCache()).bindTo(registry);
+		
+		// 트랜잭션 밖이므로 EntityManager 는 쓰지 않는다
+		for ( long i=0; i<10; i++ ) {
+			long count = i;
+			countCache.get("key" + i, null, () -> count);
+		}
+		countCache.nativeCache().cleanUp();
+		
+		double evictions = registry.get("querydsl.cache.evictions").tag("cache", "count").functionCounter().count();
+		
+		assertThat(evictions).isEqualTo(countCache.stats().evictionCount()).isPositive();
+		assertThat(registry.get("cache.evictions").tag("cache", "querydsl.count").functionCounter().count()).isEqualTo(evictions);
+		
+	}
+	
+}
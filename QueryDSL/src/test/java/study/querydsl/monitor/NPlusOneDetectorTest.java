@@ -0,0 +1,137 @@
+package study.querydsl.monitor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import jakarta.persistence.EntityManager;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+// fail 모드는 탐지기 테스트에서만 켠다 (다른 테스트는 설정 그대로 warn)
+// default_batch_fetch_size 를 꺼서 지연 로딩이 행마다 일어나게 한다
+@SpringBootTest(properties = {"querydsl.n-plus-one.mode=fail", "spring.jpa.properties.hibernate.default_batch_fetch_size=1"})
+@Transactional
+@ActiveProfiles("test")
+class NPlusOneDetectorTest {
+
+	@Autowired
+	EntityManager em;
+	
+	@Autowired
+	NPlusOneDetector detector;
+	
+	JPAQueryFactory queryFactory;
+	
+	List<Long> memberIds = new ArrayList<>();
+	
+	@BeforeEach
+	public void before() {
+		
+		queryFactory = new JPAQueryFactory(em);
+		
+		// 팀이 모두 달라야 지연 로딩이 멤버 수만큼 일어난다
+		for ( int i=0; i<20; i++ ) {
+			
+			Team team = new Team("nPlusOneTeam" + i);
+			em.persist(team);
+			
+			Member member = new Member("nPlusOneMember" + i, i, team);
+			em.persist(member);
+			memberIds.add(member.getId());
+			
+		}
+		
+		em.flush();
+		em.clear();
+		
+	}
+	
+	@Test
+	public void lazyLoadingPerRowFails() {
+		
+		List<Member> members = queryFactory
+				.selectFrom(member)
+				.where(member.id.in(memberIds))
+				.fetch();
+		
+		Throwable thrown = catchThrowable(() -> members.forEach(m -> m.getTeam().getName()));
+		
+		NPlusOneException exception = findCause(thrown);
+		
+		assertThat(exception).isNotNull();
+		assertThat(exception.getDetection().getShape()).contains("from team");
+		assertThat(exception.getDetection().getCallSites()).anyMatch(callSite -> callSite.contains(NPlusOneDetectorTest.class.getName()));
+		
+	}
+	
+	@Test
+	public void fetchJoinPasses() {
+		
+		try ( QueryScope scope = detector.open("fetchJoin") ) {
+			
+			List<Member> members = queryFactory
+					.selectFrom(member)
+					.join(member.team, team).fetchJoin()
+					.where(member.id.in(memberIds))
+					.fetch();
+			
+			members.forEach(m -> m.getTeam().getName());
+			
+			assertThat(members).hasSize(20);
+			assertThat(scope.getDetections()).isEmpty();
+			
+		}
+		
+	}
+	
+	@Test
+	public void normalizeSqlShape() {
+		
+		String shape1 = SqlShapes.normalize("/* select t from Team t */ select t1_0.team_id,t1_0.name from team t1_0 where t1_0.team_id=?");
+		String shape2 = SqlShapes.normalize("select  t1_0.team_id, t1_0.name\nfrom team t1_0 where t1_0.team_id = 3");
+		
+		assertThat(SqlShapes.normalize("select m1_0.member_id from member m1_0 where m1_0.team_id in (?,?,?)"))
+				.isEqualTo(SqlShapes.normalize("select m1_0.member_id from member m1_0 where m1_0.team_id in (?, ?)"));
+		assertThat(shape1.replace(" ", "")).isEqualTo(shape2.replace(" ", ""));
+		assertThat(SqlShapes.isTableQuery("select next value for member_seq")).isFalse();
+		
+	}
+	
+	@Test
+	public void callSitesExcludeOnlyDetectorClasses() {
+		
+		assertThat(NPlusOneDetector.isDetectorClass(NPlusOneDetector.class.getName())).isTrue();
+		assertThat(NPlusOneDetector.isDetectorClass(QueryScope.Detection.class.getName())).isTrue();
+		assertThat(NPlusOneDetector.isDetectorClass(NPlusOneDetector.class.getName() + "$1")).isTrue();
+		
+		// 같은 패키지라도 탐지기가 아니면 호출 위치로 남는다
+		assertThat(NPlusOneDetector.isDetectorClass(NPlusOneDetectorTest.class.getName())).isFalse();
+		assertThat(NPlusOneDetector.isDetectorClass(SlowQueryStore.class.getName())).isFalse();
+		
+	}
+	
+	private static NPlusOneException findCause(Throwable thrown) {
+		
+		for ( Throwable t = thrown; t != null; t = t.getCause() ) {
+			if ( t instanceof NPlusOneException e ) return e;
+		}
+		
+		return null;
+		
+	}
+	
+}
@@ -0,0 +1,74 @@
+package study.querydsl.monitor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepository;
+
+@SpringBootTest
+@Transactional
+@ActiveProfiles("test")
+class RepositoryMetricsAspectTest {
+
+	@Autowired
+	EntityManager em;
+	
+	@Autowired
+	MeterRegistry meterRegistry;
+	
+	@Autowired
+	MemberRepository memberRepository;
+	
+	@Test
+	public void searchPageComplexTaggedWithShapeAndCount() {
+		
+		Team team = new Team("metricsTeam");
+		em.persist(team);
+		em.persist(new Member("metricsMember1", 10, team));
+		em.persist(new Member("metricsMember2", 20, team));
+		
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("metricsTeam");
+		
+		// 한 페이지에 다 담기지 않으므로 count 쿼리가 실행된다
+		memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+		
+		Timer timer = meterRegistry.find("querydsl.repository")
+				.tag("repository", "MemberRepositoryImpl")
+				.tag("method", "searchPageComplex")
+				.tag("shape", "teamName")
+				.tag("count", "true")
+				.timer();
+		
+		assertThat(timer).isNotNull();
+		assertThat(timer.count()).isPositive();
+		assertThat(meterRegistry.find("querydsl.repository.rows").tag("method", "searchPageComplex").summary()).isNotNull();
+		
+	}
+	
+	@Test
+	public void shapeOf() {
+		
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setUsername("member1");
+		condition.setAgeLoe(30);
+		
+		assertThat(RepositoryMetricsAspect.shapeOf(new Object[] { condition })).isEqualTo("username+ageLoe");
+		assertThat(RepositoryMetricsAspect.shapeOf(new Object[] { new MemberSearchCondition() })).isEqualTo("none");
+		assertThat(RepositoryMetricsAspect.shapeOf(new Object[] { 1L })).isEqualTo("n/a");
+		
+	}
+	
+}
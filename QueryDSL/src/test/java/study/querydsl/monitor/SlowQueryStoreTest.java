@@ -0,0 +1,31 @@
+package study.querydsl.monitor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class SlowQueryStoreTest {
+
+	@Test
+	public void keepSlowestQueries() {
+		
+		SlowQueryStore store = new SlowQueryStore(3, Duration.ofMillis(10));
+		
+		for ( int millis : new int[] { 5, 40, 20, 30, 10, 50 } ) {
+			store.offer(new SlowQuery(Duration.ofMillis(millis).toNanos(), "select " + millis, null, null, -1));
+		}
+		
+		assertThat(store.snapshot()).extracting(SlowQuery::getSql).containsExactly("select 50", "select 40", "select 30");
+		assertThat(store.isCandidate(Duration.ofMillis(25).toNanos())).isFalse();
+		assertThat(store.isCandidate(Duration.ofMillis(35).toNanos())).isTrue();
+		
+		store.reset();
+		
+		assertThat(store.snapshot()).isEmpty();
+		assertThat(store.isCandidate(Duration.ofMillis(10).toNanos())).isTrue();
+		
+	}
+	
+}
@@ -0,0 +1,81 @@
+package study.querydsl.monitor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+class SqlLogRingBufferTest {
+
+	@Test
+	public void dropWhenFull() {
+		
+		SqlLogRingBuffer<Integer> buffer = new SqlLogRingBuffer<>(4);
+		
+		for ( int i=0; i<6; i++ ) buffer.offer(i);
+		
+		assertThat(buffer.size()).isEqualTo(4);
+		assertThat(buffer.dropped()).isEqualTo(2);
+		assertThat(buffer.poll()).isEqualTo(0);
+		assertThat(buffer.offer(6)).isTrue();
+		
+	}
+	
+	@Test
+	public void concurrentProducersSingleConsumer() throws InterruptedException {
+		
+		int producers = 4;
+		int perProducer = 50_000;
+		
+		SqlLogRingBuffer<Integer> buffer = new SqlLogRingBuffer<>(1024);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> threads = new ArrayList<>();
+		
+		for ( int p=0; p<producers; p++ ) {
+			
+			int base = p * perProducer;
+			
+			Thread thread = new Thread(() -> {
+				awaitQuietly(start);
+				for ( int i=0; i<perProducer; i++ ) {
+					// 가득 차면 버려지므로 성공할 때까지 다시 넣는다
+					while ( !buffer.offer(base + i) ) Thread.onSpinWait();
+				}
+			});
+			
+			thread.start();
+			threads.add(thread);
+			
+		}
+		
+		start.countDown();
+		
+		Set<Integer> received = new HashSet<>();
+		
+		while ( received.size() < producers * perProducer ) {
+			Integer element = buffer.poll();
+			if ( element != null ) assertThat(received.add(element)).isTrue();
+			else Thread.onSpinWait();
+		}
+		
+		for ( Thread thread : threads ) thread.join();
+		
+		assertThat(buffer.poll()).isNull();
+		assertThat(received).hasSize(producers * perProducer);
+		
+	}
+	
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+}
@@ -0,0 +1,224 @@
+package study.querydsl.replica;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberRepositoryImpl;
+
+// 복제본은 커밋된 데이터만 적재하므로 트랜잭션 없이 커밋하고 끝나면 지운다
+// 예약된 재적재가 테스트 중간에 끼어들지 않도록 refresh-delay, refresh-interval 을 길게 둔다
+@SpringBootTest(properties = {"querydsl.replica.enabled=true", "querydsl.replica.refresh-delay=1h", "querydsl.replica.refresh-interval=1h"})
+@ActiveProfiles("test")
+class ColumnarMemberRepositoryTest {
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	@Autowired
+	MemberReplica replica;
+
+	@Autowired
+	ColumnarMemberRepository columnarMemberRepository;
+
+	@Autowired
+	MemberRepositoryImpl memberRepositoryImpl;
+
+	@BeforeEach
+	public void before() {
+
+		transactionTemplate.executeWithoutResult(status -> {
+
+			Team teamA = new Team("replicaTeamA");
+			Team teamB = new Team("replicaTeamB");
+
+			em.persist(teamA);
+			em.persist(teamB);
+
+			em.persist(new Member("replicaMember1", 10, teamA));
+			em.persist(new Member("replicaMember2", 20, teamA));
+			em.persist(new Member("replicaMember3", 30, teamB));
+			em.persist(new Member("replicaMember4", 40, teamB));
+			em.persist(new Member("replicaMember5", 20));
+
+		});
+
+		replica.refresh();
+
+	}
+
+	@AfterEach
+	public void after() {
+
+		transactionTemplate.executeWithoutResult(status -> {
+			em.createQuery("delete from Member m where m.username like 'replicaMember%'").executeUpdate();
+			em.createQuery("delete from Team t where t.name like 'replicaTeam%'").executeUpdate();
+		});
+
+	}
+
+	@Test
+	public void searchMatchesJpa() {
+
+		assertThat(replica.isFresh()).isTrue();
+		assertSearchMatchesJpa();
+
+	}
+
+	@Test
+	public void searchPageComplexMatchesJpaTotal() {
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("replicaTeamA");
+		condition.setAgeGoe(15);
+
+		Page<MemberTeamDto> result = columnarMemberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+		Page<MemberTeamDto> expected = memberRepositoryImpl.searchPageComplex(condition, PageRequest.of(0, 1));
+
+		assertThat(result.getTotalElements()).isEqualTo(expected.getTotalElements()).isEqualTo(1);
+		assertThat(result.getContent()).extracting("username").containsExactly("replicaMember2");
+
+		// 마지막 페이지 다음
+		assertThat(columnarMemberRepository.searchPageComplex(condition, PageRequest.of(5, 1)).getContent()).isEmpty();
+
+	}
+
+	@Test
+	public void entityChangesAreAppliedWithoutReload() {
+
+		// 추가, 팀 이동 + 나이 변경, 이름 변경, 삭제, 팀 이름 변경
+		transactionTemplate.executeWithoutResult(status -> {
+
+			Team teamB = em.createQuery("select t from Team t where t.name = 'replicaTeamB'", Team.class).getSingleResult();
+			Team teamC = new Team("replicaTeamC");
+			em.persist(teamC);
+
+			em.persist(new Member("replicaMember6", 20, teamC));
+
+			Member member2 = em.createQuery("select m from Member m where m.username = 'replicaMember2'", Member.class).getSingleResult();
+			member2.changeTeam(teamB);
+			member2.setAge(35);
+
+			em.createQuery("select m from Member m where m.username = 'replicaMember3'", Member.class).getSingleResult().setUsername("replicaMember3b");
+			em.remove(em.createQuery("select m from Member m where m.username = 'replicaMember4'", Member.class).getSingleResult());
+
+			em.createQuery("select t from Team t where t.name = 'replicaTeamA'", Team.class).getSingleResult().setName("replicaTeamA2");
+
+		});
+
+		assertThat(replica.isFresh()).isTrue();
+		assertSearchMatchesJpa();
+
+		// 배열을 다시 만들어도 같다
+		replica.compact();
+
+		assertThat(replica.isFresh()).isTrue();
+		assertSearchMatchesJpa();
+
+	}
+
+	@Test
+	public void conditionIsNormalizedLikeJpa() {
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("replicaTeamA ");
+		condition.setUsername(" ");
+
+		assertThat(columnarMemberRepository.search(condition))
+			.containsExactlyElementsOf(byId(memberRepositoryImpl.search(condition.normalize())))
+			.hasSize(2);
+		assertThat(columnarMemberRepository.searchPageComplex(condition, PageRequest.of(0, 10)).getTotalElements())
+			.isEqualTo(memberRepositoryImpl.searchPageComplex(condition, PageRequest.of(0, 10)).getTotalElements())
+			.isEqualTo(2);
+
+	}
+
+	@Test
+	public void jpqlBulkDeleteMakesReplicaStale() {
+
+		assertThat(replica.isFresh()).isTrue();
+
+		// Querydsl4RepositorySupport 를 거치지 않은 벌크 연산도 복제본에 알려진다
+		transactionTemplate.executeWithoutResult(status -> em.createQuery("delete from Member m where m.username = 'replicaMember5'").executeUpdate());
+
+		assertThat(replica.isFresh()).isFalse();
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setUsername("replicaMember5");
+
+		assertThat(columnarMemberRepository.search(condition)).isEmpty();
+
+	}
+
+	private void assertSearchMatchesJpa() {
+		for ( MemberSearchCondition condition : conditions() ) {
+			assertThat(columnarMemberRepository.search(condition))
+				.as("%s", condition)
+				.containsExactlyElementsOf(byId(memberRepositoryImpl.search(condition)));
+		}
+	}
+
+	private static List<MemberSearchCondition> conditions() {
+
+		List<MemberSearchCondition> conditions = new ArrayList<>();
+
+		String[] usernames = {null, "replicaMember2", "replicaMember3b", "replicaMember6", "unknownMember"};
+		String[] teamNames = {null, "replicaTeamA", "replicaTeamA2", "replicaTeamB", "replicaTeamC", "unknownTeam"};
+		Integer[][] ageRanges = {{null, null}, {20, null}, {null, 20}, {15, 35}, {50, 10}};
+
+		for ( String username : usernames ) {
+			for ( String teamName : teamNames ) {
+				for ( Integer[] ageRange : ageRanges ) {
+					MemberSearchCondition condition = new MemberSearchCondition();
+					condition.setUsername(username);
+					condition.setTeamName(teamName);
+					condition.setAgeGoe(ageRange[0]);
+					condition.setAgeLoe(ageRange[1]);
+					conditions.add(condition);
+				}
+			}
+		}
+
+		String[][] usernamePatterns = {{"replicaMember", null}, {null, "Member2"}, {"replica", "ber3"}, {null, "zzz"}};
+
+		for ( String[] pattern : usernamePatterns ) {
+			for ( String teamName : teamNames ) {
+				MemberSearchCondition condition = new MemberSearchCondition();
+				condition.setUsernameStartsWith(pattern[0]);
+				condition.setUsernameContains(pattern[1]);
+				condition.setTeamName(teamName);
+				condition.setAgeGoe(15);
+				conditions.add(condition);
+			}
+		}
+
+		return conditions;
+
+	}
+
+	// 복제본은 member id 순, JPA 는 순서를 보장하지 않는다
+	private static List<MemberTeamDto> byId(List<MemberTeamDto> result) {
+		return result.stream().sorted(Comparator.comparing(MemberTeamDto::getMemberId)).toList();
+	}
+
+}
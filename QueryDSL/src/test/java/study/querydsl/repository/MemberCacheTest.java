@@ -0,0 +1,94 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import study.querydsl.entity.Member;
+
+// 2차 캐시, query cache 는 커밋된 데이터만 담으므로 트랜잭션 없이 커밋하고 끝나면 지운다
+@SpringBootTest(properties = "querydsl.query-cache.enabled=true")
+@ActiveProfiles("test")
+class MemberCacheTest {
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	EntityManagerFactory emf;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	@Autowired
+	MemberJpaRepository memberJpaRepository;
+
+	Long memberId;
+
+	@BeforeEach
+	public void before() {
+
+		memberId = transactionTemplate.execute(status -> {
+			Member cacheMember = new Member("cacheMember1", 10);
+			em.persist(cacheMember);
+			return cacheMember.getId();
+		});
+
+		emf.getCache().evictAll();
+
+	}
+
+	@AfterEach
+	public void after() {
+		transactionTemplate.executeWithoutResult(status -> em.createQuery("delete from Member m where m.username like 'cacheMember%'").executeUpdate());
+	}
+
+	@Test
+	public void bulkUpdateEvictsEntityAndQueryCache() {
+
+		assertThat(memberJpaRepository.findByUsername_QueryDsl("cacheMember1")).extracting("age").containsExactly(10);
+		assertThat(emf.getCache().contains(Member.class, memberId)).isTrue();
+
+		long updated = transactionTemplate.execute(status -> new JPAQueryFactory(em)
+				.update(member)
+				.set(member.age, 20)
+				.where(member.username.eq("cacheMember1"))
+				.execute());
+
+		assertThat(updated).isEqualTo(1);
+		assertThat(emf.getCache().contains(Member.class, memberId)).isFalse();
+		assertThat(memberJpaRepository.findByUsername_QueryDsl("cacheMember1")).extracting("age").containsExactly(20);
+
+	}
+
+	@Test
+	public void bulkDeleteInvalidatesQueryCache() {
+
+		assertThat(memberJpaRepository.findByUsername("cacheMember1")).hasSize(1);
+
+		transactionTemplate.executeWithoutResult(status -> new JPAQueryFactory(em)
+				.delete(member)
+				.where(member.username.eq("cacheMember1"))
+				.execute());
+
+		List<Member> result = memberJpaRepository.findByUsername("cacheMember1");
+
+		assertThat(result).isEmpty();
+		assertThat(emf.getCache().contains(Member.class, memberId)).isFalse();
+
+	}
+
+}
@@ -3,7 +3,10 @@ package study.querydsl.repository;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +20,7 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.support.QueryTemplateCache;
 
 @SpringBootTest
 @Transactional
@@ -28,6 +32,9 @@ class MemberJpaRepositoryTest {
 	
 	@Autowired
 	MemberJpaRepository memberJpaRepository;
+	
+	@Autowired
+	QueryTemplateCache queryTemplateCache;
 
 	@Test
 	public void basicTest() {
@@ -46,6 +53,28 @@ class MemberJpaRepositoryTest {
 		
 	}
 	
+	@Test
+	public void findAllInWriteTransactionReturnsManagedEntities() {
+		
+		Member member = new Member("member1", 10);
+		memberJpaRepository.save(member);
+		
+		em.flush();
+		em.clear();
+		
+		// 호출한 쪽의 쓰기 트랜잭션에 참여하면 읽기 전용 힌트를 주지 않으므로 변경이 flush 된다
+		memberJpaRepository.findAll_QueryDsl().get(0).setAge(20);
+		memberJpaRepository.findByUsername("member1").get(0).setUsername("member1b");
+		
+		em.flush();
+		em.clear();
+		
+		Member findMember = em.find(Member.class, member.getId());
+		assertThat(findMember.getAge()).isEqualTo(20);
+		assertThat(findMember.getUsername()).isEqualTo("member1b");
+		
+	}
+	
 	@Test
 	public void basicQueryDslTest() {
 		
@@ -127,4 +156,126 @@ class MemberJpaRepositoryTest {
 		
 	}
 	
+	@Test
+	public void streamTest_WhereParam() {
+		
+		Team teamA = new Team("teamA");
+		Team teamB = new Team("teamB");
+		
+		em.persist(teamA);
+		em.persist(teamB);
+		
+		Member member1 = new Member("member1", 10, teamA);
+		Member member2 = new Member("member2", 20, teamA);
+		Member member3 = new Member("member3", 30, teamB);
+		Member member4 = new Member("member4", 40, teamB);
+		
+		em.persist(member1);
+		em.persist(member2);
+		em.persist(member3);
+		em.persist(member4);
+		
+		MemberSearchCondition condition = new MemberSearchCondition();
+		
+		condition.setAgeGoe(15);
+		condition.setTeamName("teamB");
+		
+		List<MemberTeamDto> result = new ArrayList<>();
+		memberJpaRepository.streamByWhereParam(condition, result::add);
+		
+		assertThat(result).extracting("memberId").containsExactlyInAnyOrderElementsOf(
+				memberJpaRepository.searchByWhereParam(condition).stream().map(MemberTeamDto::getMemberId).toList());
+		
+	}
+	
+	@Test
+	public void searchTest_WhereParamTemplate() {
+		
+		Team teamA = new Team("teamA");
+		Team teamB = new Team("teamB");
+		
+		em.persist(teamA);
+		em.persist(teamB);
+		
+		em.persist(new Member("member1", 10, teamA));
+		em.persist(new Member("member2", 20, teamA));
+		em.persist(new Member("member3", 30, teamB));
+		em.persist(new Member("member4", 40, teamB));
+		
+		// 64가지 조건 조합 모두 BooleanBuilder 로 만든 쿼리와 결과가 같아야 한다
+		for ( int shape=0; shape<64; shape++ ) {
+			
+			MemberSearchCondition condition = new MemberSearchCondition();
+			
+			if ( (shape & MemberSearchShape.USERNAME) != 0 ) condition.setUsername("member3");
+			if ( (shape & MemberSearchShape.TEAM_NAME) != 0 ) condition.setTeamName("teamB");
+			if ( (shape & MemberSearchShape.AGE_GOE) != 0 ) condition.setAgeGoe(20);
+			if ( (shape & MemberSearchShape.AGE_LOE) != 0 ) condition.setAgeLoe(30);
+			if ( (shape & MemberSearchShape.USERNAME_STARTS_WITH) != 0 ) condition.setUsernameStartsWith("member");
+			if ( (shape & MemberSearchShape.USERNAME_CONTAINS) != 0 ) condition.setUsernameContains("ber3");
+			
+			List<Long> expected = memberJpaRepository.searchByBuilder(condition).stream().map(MemberTeamDto::getMemberId).toList();
+			
+			long hits = queryTemplateCache.hitCount();
+			
+			assertThat(memberJpaRepository.searchByWhereParam(condition)).extracting("memberId").containsExactlyInAnyOrderElementsOf(expected);
+			assertThat(memberJpaRepository.searchByWhereParam(condition)).extracting("memberId").containsExactlyInAnyOrderElementsOf(expected);
+			assertThat(queryTemplateCache.hitCount()).isGreaterThan(hits);
+			
+		}
+		
+	}
+	
+	@Test
+	public void findAllByIdsTest() {
+		
+		Member member1 = new Member("member1", 10);
+		Member member2 = new Member("member2", 20);
+		Member member3 = new Member("member3", 30);
+		Member member4 = new Member("member4", 40);
+		
+		em.persist(member1);
+		em.persist(member2);
+		em.persist(member3);
+		em.persist(member4);
+		
+		// 입력 순서대로, 중복과 없는 id 는 한 번만/빠진다
+		Map<Long, Member> result = memberJpaRepository.findAllByIds(Arrays.asList(member3.getId(), member1.getId(), -1L, member3.getId(), null));
+		
+		assertThat(result.keySet()).containsExactly(member3.getId(), member1.getId());
+		assertThat(result.get(member3.getId())).isEqualTo(member3);
+		assertThat(memberJpaRepository.findAllByIds(List.of())).isEmpty();
+		
+		// findById 처럼 관리되는 엔티티라 변경이 flush 된다
+		em.flush();
+		em.clear();
+		
+		memberJpaRepository.findAllByIds(List.of(member2.getId())).get(member2.getId()).setAge(25);
+		
+		em.flush();
+		em.clear();
+		
+		assertThat(em.find(Member.class, member2.getId()).getAge()).isEqualTo(25);
+		
+	}
+	
+	@Test
+	public void findAllByUsernamesTest() {
+		
+		Member member1 = new Member("member1", 10);
+		Member member2 = new Member("member2", 20);
+		Member sameName = new Member("member2", 21);
+		
+		em.persist(member1);
+		em.persist(member2);
+		em.persist(sameName);
+		
+		Map<String, List<Member>> result = memberJpaRepository.findAllByUsernames(List.of("member2", "unknown", "member1"));
+		
+		assertThat(result.keySet()).containsExactly("member2", "member1");
+		assertThat(result.get("member2")).containsExactly(member2, sameName);
+		assertThat(result.get("member1")).containsExactly(member1);
+		
+	}
+	
 }
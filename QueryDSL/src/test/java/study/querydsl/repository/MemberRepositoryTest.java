@@ -12,6 +12,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
@@ -19,6 +20,7 @@ import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.support.KeysetSlice;
 
 @SpringBootTest
 @Transactional
@@ -31,6 +33,9 @@ class MemberRepositoryTest {
 	@Autowired
 	MemberRepository memberRepository;
 	
+	@Autowired
+	TransactionTemplate transactionTemplate;
+	
 	@Test
 	public void basicTest() {
 		
@@ -110,6 +115,77 @@ class MemberRepositoryTest {
 		
 	}
 	
+	@Test
+	public void searchPageWindowTest() {
+		
+		Team teamA = new Team("teamA");
+		Team teamB = new Team("teamB");
+		
+		em.persist(teamA);
+		em.persist(teamB);
+		
+		Member member1 = new Member("member1", 10, teamA);
+		Member member2 = new Member("member2", 20, teamA);
+		Member member3 = new Member("member3", 30, teamB);
+		Member member4 = new Member("member4", 40, teamB);
+		
+		em.persist(member1);
+		em.persist(member2);
+		em.persist(member3);
+		em.persist(member4);
+		
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setAgeGoe(15);
+		
+		PageRequest pageRequest = PageRequest.of(0, 2);
+		
+		Page<MemberTeamDto> result = memberRepository.searchPageWindow(condition, pageRequest);
+		Page<MemberTeamDto> expected = memberRepository.searchPageComplex(condition, pageRequest);
+		
+		assertThat(result.getContent()).hasSize(expected.getContent().size());
+		assertThat(result.getTotalElements()).isEqualTo(expected.getTotalElements());
+		
+		Page<MemberTeamDto> outOfRange = memberRepository.searchPageWindow(condition, PageRequest.of(100, 2));
+		
+		assertThat(outOfRange.getContent()).isEmpty();
+		assertThat(outOfRange.getTotalElements()).isEqualTo(expected.getTotalElements());
+		
+	}
+	
+	@Test
+	public void searchKeysetTest() {
+		
+		Team teamA = new Team("teamA");
+		Team teamB = new Team("teamB");
+		
+		em.persist(teamA);
+		em.persist(teamB);
+		
+		Member member1 = new Member("member1", 10, teamA);
+		Member member2 = new Member("member2", 20, teamA);
+		Member member3 = new Member("member3", 30, teamB);
+		Member member4 = new Member("member4", 40, teamB);
+		
+		em.persist(member1);
+		em.persist(member2);
+		em.persist(member3);
+		em.persist(member4);
+		
+		MemberSearchCondition condition = new MemberSearchCondition();
+		
+		KeysetSlice<MemberTeamDto> first = memberRepository.searchKeyset(condition, null, 3);
+		
+		assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+		assertThat(first.isHasNext()).isTrue();
+		
+		KeysetSlice<MemberTeamDto> second = memberRepository.searchKeyset(condition, first.getNextCursor(), 3);
+		
+		assertThat(second.getContent()).extracting("username").containsExactly("member4");
+		assertThat(second.isHasNext()).isFalse();
+		assertThat(second.getNextCursor()).isNull();
+		
+	}
+	
 	@Test
 	public void querydslPredicateExeutorTest() {
 		
@@ -135,4 +211,35 @@ class MemberRepositoryTest {
 		
 	}
 	
+	// 테스트 트랜잭션 밖에서 실행해야 count 가 별도 EntityManager 로 동시에 실행된다
+	// count 용 EntityManager 는 커밋된 데이터만 보므로 회원을 커밋하고 끝나면 지운다
+	@Test
+	@Transactional(Transactional.TxType.NOT_SUPPORTED)
+	public void searchPageComplexConcurrentCountTest() {
+		
+		transactionTemplate.executeWithoutResult(status -> {
+			for ( int i=0; i<3; i++ ) em.persist(new Member("concurrentMember" + i, 500_000 + i));
+		});
+		
+		try {
+			
+			MemberSearchCondition condition = new MemberSearchCondition();
+			condition.setAgeGoe(500_000);
+			
+			// 첫 페이지가 가득 차야 count 를 실행한다
+			PageRequest pageRequest = PageRequest.of(0, 1);
+			
+			Page<MemberTeamDto> result = memberRepository.searchPageComplex(condition, pageRequest);
+			Page<MemberTeamDto> expected = memberRepository.searchPageSimple(condition, pageRequest);
+			
+			assertThat(result.getContent()).hasSize(1);
+			assertThat(result.getTotalElements()).isEqualTo(3);
+			assertThat(result.getTotalElements()).isEqualTo(expected.getTotalElements());
+			
+		} finally {
+			transactionTemplate.executeWithoutResult(status -> em.createQuery("delete from Member m where m.username like 'concurrentMember%'").executeUpdate());
+		}
+		
+	}
+	
 }
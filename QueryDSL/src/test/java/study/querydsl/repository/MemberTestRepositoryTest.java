@@ -0,0 +1,167 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.function.Supplier;
+
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+@SpringBootTest
+@Transactional
+@ActiveProfiles("test")
+class MemberTestRepositoryTest {
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	MemberTestRepository memberTestRepository;
+
+	Member member1;
+	Member member2;
+
+	@BeforeEach
+	public void before() {
+
+		Team teamA = new Team("teamA");
+		Team teamB = new Team("teamB");
+
+		em.persist(teamA);
+		em.persist(teamB);
+
+		member1 = new Member("member1", 1010, teamA);
+		member2 = new Member("member2", 1020, teamA);
+		Member member3 = new Member("member3", 30, teamB);
+		Member member4 = new Member("member4", 40, teamB);
+
+		em.persist(member1);
+		em.persist(member2);
+		em.persist(member3);
+		em.persist(member4);
+
+	}
+
+	@Test
+	public void applyPaginationTest() {
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("teamB");
+
+		PageRequest pageRequest = PageRequest.of(0, 1);
+
+		Page<Member> result = memberTestRepository.applyPagination(condition, pageRequest);
+		Page<Member> expected = memberTestRepository.applyPagination2(condition, pageRequest);
+
+		assertThat(result.getContent()).hasSize(1);
+		assertThat(result.getTotalElements()).isEqualTo(expected.getTotalElements());
+
+	}
+
+	@Test
+	public void bulkAddAgeTest() {
+
+		// flush 하지 않은 member1, member2 도 벌크 연산 전에 flush 되어 대상에 포함된다
+		long count = memberTestRepository.bulkAddAge(1000);
+
+		assertThat(count).isEqualTo(2);
+		assertThat(em.contains(member1)).isFalse();
+		assertThat(em.contains(member2)).isFalse();
+
+		Member findMember = em.find(Member.class, member1.getId());
+
+		assertThat(findMember.getAge()).isEqualTo(1011);
+
+	}
+
+	@Test
+	public void entityInWriteTransactionIsFlushed() {
+
+		em.flush();
+		em.clear();
+
+		// 쓰기 트랜잭션에 참여하면 읽기 전용 힌트를 주지 않으므로 관리되는 엔티티의 변경이 반영된다
+		Member selected = findMember1();
+
+		assertThat(em.unwrap(Session.class).isReadOnly(selected)).isFalse();
+
+		selected.setAge(2000);
+		em.flush();
+		em.clear();
+
+		assertThat(em.find(Member.class, member1.getId()).getAge()).isEqualTo(2000);
+
+	}
+
+	@Test
+	public void readOnlyEntityIsSkippedAtFlush() {
+
+		em.flush();
+		em.clear();
+
+		// 읽기 전용 트랜잭션에서 읽은 엔티티는 변경 감지 대상이 아니다
+		Member selected = readOnlyTransaction(this::findMember1);
+
+		assertThat(em.unwrap(Session.class).isReadOnly(selected)).isTrue();
+
+		selected.setAge(2000);
+		em.flush();
+		em.clear();
+
+		assertThat(em.find(Member.class, member1.getId()).getAge()).isEqualTo(1010);
+
+	}
+
+	@Test
+	public void paginationReturnsReadOnlyEntities() {
+
+		em.flush();
+		em.clear();
+
+		MemberSearchCondition condition = new MemberSearchCondition();
+		condition.setTeamName("teamA");
+
+		PageRequest pageRequest = PageRequest.of(0, 10);
+		Session session = em.unwrap(Session.class);
+
+		assertThat(readOnlyTransaction(() -> memberTestRepository.searchPageByApplyPage(condition, pageRequest).getContent())).isNotEmpty().allMatch(session::isReadOnly);
+		assertThat(readOnlyTransaction(() -> memberTestRepository.applyPagination(condition, pageRequest).getContent())).isNotEmpty().allMatch(session::isReadOnly);
+		assertThat(readOnlyTransaction(() -> memberTestRepository.applyPagination2(condition, pageRequest).getContent())).isNotEmpty().allMatch(session::isReadOnly);
+		assertThat(readOnlyTransaction(() -> memberTestRepository.applyKeyset(condition, null, 10).getContent())).isNotEmpty().allMatch(session::isReadOnly);
+
+	}
+
+	private Member findMember1() {
+		return memberTestRepository.basicSelect().stream()
+				.filter(m -> m.getId().equals(member1.getId()))
+				.findFirst()
+				.orElseThrow();
+	}
+
+	// 테스트 트랜잭션의 데이터를 보려면 같은 트랜잭션이어야 하므로, 새 트랜잭션 대신 읽기 전용으로 시작한 트랜잭션처럼 표시만 한다
+	private static <T> T readOnlyTransaction(Supplier<T> work) {
+
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		try {
+			return work.get();
+		} finally {
+			TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		}
+
+	}
+
+}
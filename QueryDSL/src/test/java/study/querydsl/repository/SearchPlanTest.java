@@ -0,0 +1,151 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.JdbcEventListener;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+/**
+ * 모든 검색 조건 조합의 SQL 을 H2 EXPLAIN 으로 확인해 테이블 풀스캔이 없는지 검사한다.
+ * 조건이 하나도 없는 전체 조회(shape 0)는 검사하지 않는다.
+ */
+@SpringBootTest
+@Transactional
+@ActiveProfiles("test")
+@Import(SearchPlanTest.SqlRecorderConfig.class)
+class SearchPlanTest {
+
+	@Autowired
+	EntityManager em;
+	
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	
+	@Autowired
+	MemberRepository memberRepository;
+	
+	@Autowired
+	MemberJpaRepository memberJpaRepository;
+	
+	@Autowired
+	SqlRecorder sqlRecorder;
+	
+	@Test
+	public void noTableScanForSearchShapes() {
+		
+		Team teamA = new Team("teamA");
+		Team teamB = new Team("teamB");
+		
+		em.persist(teamA);
+		em.persist(teamB);
+		
+		for ( int i=0; i<100; i++ ) {
+			em.persist(new Member("member" + i, i, i % 2 == 0 ? teamA : teamB));
+		}
+		
+		em.flush();
+		em.clear();
+		
+		List<String> violations = new ArrayList<>();
+		
+		for ( int shape=1; shape<16; shape++ ) {
+			
+			MemberSearchCondition condition = new MemberSearchCondition();
+			
+			if ( (shape & MemberSearchShape.USERNAME) != 0 ) condition.setUsername("member10");
+			if ( (shape & MemberSearchShape.TEAM_NAME) != 0 ) condition.setTeamName("teamA");
+			if ( (shape & MemberSearchShape.AGE_GOE) != 0 ) condition.setAgeGoe(10);
+			if ( (shape & MemberSearchShape.AGE_LOE) != 0 ) condition.setAgeLoe(20);
+			
+			List<String> sqls = sqlRecorder.record(() -> {
+				memberRepository.search(condition);
+				memberRepository.searchPageComplex(condition, PageRequest.of(0, 1));
+				memberJpaRepository.searchByWhereParam(condition);
+			});
+			
+			assertThat(sqls).isNotEmpty();
+			
+			for ( String sql : sqls ) {
+				
+				String plan = jdbcTemplate.queryForObject("explain " + sql, String.class);
+				
+				if ( plan.toLowerCase(Locale.ROOT).contains(".tablescan") ) violations.add("shape=" + shape + "\n" + plan);
+				
+			}
+			
+		}
+		
+		assertThat(violations).as("table scans").isEmpty();
+		
+	}
+	
+	/**
+	 * 바인딩 값이 들어간 select 문을 모은다 (P6Spy 리스너는 datasource-decorator 가 자동 등록)
+	 */
+	static class SqlRecorder extends JdbcEventListener {
+		
+		// use_sql_comments 로 붙는 /* ... */ 주석은 건너뛴다
+		private static final Pattern SELECT = Pattern.compile("^\\s*(?:/\\*.*?\\*/\\s*)*select\\s", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+		
+		private final ThreadLocal<List<String>> recorded = new ThreadLocal<>();
+		
+		List<String> record(Runnable work) {
+			
+			List<String> sqls = new ArrayList<>();
+			recorded.set(sqls);
+			
+			try {
+				work.run();
+			} finally {
+				recorded.remove();
+			}
+			
+			return sqls;
+			
+		}
+		
+		@Override
+		public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+			
+			List<String> sqls = recorded.get();
+			String sql = statementInformation.getSqlWithValues();
+			
+			if ( sqls != null && SELECT.matcher(sql).find() ) sqls.add(sql);
+			
+		}
+		
+	}
+	
+	@TestConfiguration
+	static class SqlRecorderConfig {
+		
+		@Bean
+		SqlRecorder sqlRecorder() {
+			return new SqlRecorder();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,208 @@
+package study.querydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import jakarta.persistence.EntityManager;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.monitor.NPlusOneDetector;
+import study.querydsl.monitor.QueryScope;
+
+// default_batch_fetch_size 를 꺼서 로더 없이는 팀마다 한 번씩 조회되게 한다
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.default_batch_fetch_size=1")
+@AutoConfigureMockMvc
+@Transactional
+@ActiveProfiles("test")
+class TeamBatchLoaderTest {
+
+	private static final int TEAM_COUNT = 8;
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	NPlusOneDetector detector;
+
+	@Autowired
+	TeamBatchLoader teamBatchLoader;
+
+	@Autowired
+	MockMvc mockMvc;
+
+	JPAQueryFactory queryFactory;
+
+	List<Long> memberIds = new ArrayList<>();
+	List<Long> teamIds = new ArrayList<>();
+
+	@BeforeEach
+	public void before() {
+
+		queryFactory = new JPAQueryFactory(em);
+
+		// 팀마다 회원 두 명, 팀 하나는 회원 없이
+		for ( int i=0; i<TEAM_COUNT; i++ ) {
+
+			Team batchTeam = new Team("batchTeam" + i);
+			em.persist(batchTeam);
+			teamIds.add(batchTeam.getId());
+
+			for ( int j=0; j<2; j++ ) {
+				Member batchMember = new Member("batchMember" + i + "_" + j, i, batchTeam);
+				em.persist(batchMember);
+				memberIds.add(batchMember.getId());
+			}
+
+		}
+
+		Member noTeam = new Member("batchMemberNoTeam", 99);
+		em.persist(noTeam);
+		memberIds.add(noTeam.getId());
+
+		em.flush();
+		em.clear();
+
+	}
+
+	@Test
+	public void lazyTeamPerDistinctTeamWithoutLoader() {
+
+		try ( QueryScope scope = detector.open("withoutLoader") ) {
+
+			List<Member> members = findMembers();
+			members.forEach(m -> teamName(m));
+
+			// 회원 목록 1 + 팀마다 1
+			assertThat(scope.statementCount()).isEqualTo(1 + TEAM_COUNT);
+
+		}
+
+	}
+
+	@Test
+	public void loaderResolvesTeamsInOneQuery() {
+
+		try ( QueryScope scope = detector.open("withLoader") ) {
+
+			List<Member> members = findMembers();
+			Map<Long, Team> teams = teamBatchLoader.loadTeams(members);
+
+			List<String> teamNames = members.stream().map(TeamBatchLoaderTest::teamName).toList();
+
+			// 회원 목록 1 + team.id in (...) 1
+			assertThat(scope.statementCount()).isEqualTo(2);
+			assertThat(teams.keySet()).containsExactlyElementsOf(teamIds);
+			assertThat(teamNames).containsOnly("batchTeam0", "batchTeam1", "batchTeam2", "batchTeam3", "batchTeam4", "batchTeam5", "batchTeam6", "batchTeam7", null);
+
+			// 이미 읽은 팀은 요청이 끝날 때까지 다시 조회하지 않는다
+			assertThat(teamBatchLoader.load(teamIds.get(0))).isCompletedWithValue(teams.get(teamIds.get(0)));
+			teamBatchLoader.dispatch();
+			assertThat(scope.statementCount()).isEqualTo(2);
+
+		}
+
+	}
+
+	@Test
+	public void loadUnknownTeam() {
+
+		CompletableFuture<Team> future = teamBatchLoader.load(-1L);
+
+		assertThat(future).isNotDone();
+		teamBatchLoader.dispatch();
+		assertThat(future).isCompletedWithValue(null);
+
+		// 없는 팀의 프록시를 영속성 컨텍스트에 남기지 않는다
+		SessionImplementor session = em.unwrap(SessionImplementor.class);
+		EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Team.class);
+		assertThat(session.getPersistenceContextInternal().getProxy(session.generateEntityKey(-1L, persister))).isNull();
+
+	}
+
+	@Test
+	public void loaderIsBoundToRequest() {
+
+		// export 작업, count executor 처럼 요청 컨텍스트가 없는 스레드에서는 쓸 수 없다
+		CompletableFuture<Team> future = CompletableFuture.supplyAsync(() -> teamBatchLoader.load(-1L).join());
+
+		assertThatThrownBy(future::join)
+			.isInstanceOf(CompletionException.class)
+			.hasCauseInstanceOf(BeanCreationException.class);
+
+	}
+
+	@Test
+	public void findMembersByIdsLoadsTeamsInOneQuery() throws Exception {
+
+		try ( QueryScope scope = detector.open("byIds") ) {
+
+			mockMvc.perform(get("/v1/members/by-ids").param("ids", memberIds.stream().map(String::valueOf).toArray(String[]::new)))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(memberIds.size()))
+				.andExpect(jsonPath("$[0].teamName").value("batchTeam0"))
+				.andExpect(jsonPath("$[%d].teamName", memberIds.size() - 1).isEmpty());
+
+			// 회원 id in (...) 1 + team.id in (...) 1
+			assertThat(scope.statementCount()).isEqualTo(2);
+
+		}
+
+	}
+
+	@Test
+	public void teamMembersBatchSize() {
+
+		try ( QueryScope scope = detector.open("teamMembers") ) {
+
+			List<Team> teams = queryFactory
+					.selectFrom(team)
+					.where(team.id.in(teamIds))
+					.fetch();
+
+			teams.forEach(t -> assertThat(t.getMembers()).hasSize(2));
+
+			// 팀 목록 1 + @BatchSize 로 members 를 한 번에 1
+			assertThat(scope.statementCount()).isEqualTo(2);
+
+		}
+
+	}
+
+	private List<Member> findMembers() {
+		return queryFactory
+				.selectFrom(member)
+				.where(member.id.in(memberIds))
+				.orderBy(member.id.asc())
+				.fetch();
+	}
+
+	private static String teamName(Member m) {
+		return m.getTeam() == null ? null : m.getTeam().getName();
+	}
+
+}
@@ -0,0 +1,63 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import study.querydsl.dto.MemberSearchCondition;
+
+class CountCacheTest {
+
+	@Test
+	public void normalizedConditionSharesCount() {
+
+		CountCache countCache = new CountCache(true, 100, Duration.ofMinutes(1));
+		AtomicInteger executed = new AtomicInteger();
+
+		MemberSearchCondition condition1 = new MemberSearchCondition();
+		condition1.setTeamName(" teamA ");
+		condition1.setUsername("");
+
+		MemberSearchCondition condition2 = new MemberSearchCondition();
+		condition2.setTeamName("teamA");
+
+		long count1 = countCache.get(condition1.normalize(), null, () -> executed.incrementAndGet() * 10L);
+		long count2 = countCache.get(condition2.normalize(), null, () -> executed.incrementAndGet() * 10L);
+
+		assertThat(count1).isEqualTo(10L);
+		assertThat(count2).isEqualTo(10L);
+		assertThat(executed.get()).isEqualTo(1);
+		assertThat(countCache.stats().hitCount()).isEqualTo(1);
+
+	}
+
+	@Test
+	public void invalidateOnWrite() {
+
+		CountCache countCache = new CountCache(true, 100, Duration.ofMinutes(1));
+		AtomicInteger executed = new AtomicInteger();
+
+		countCache.get("key", null, executed::incrementAndGet);
+		countCache.invalidateOnWrite();
+		long count = countCache.get("key", null, executed::incrementAndGet);
+
+		assertThat(count).isEqualTo(2L);
+
+	}
+
+	@Test
+	public void detectMemberAndTeamWrites() {
+
+		assertThat(CountCacheInvalidationListener.touchesCountedTable("insert into member (age,team_id,username,member_id) values (?,?,?,?)")).isTrue();
+		assertThat(CountCacheInvalidationListener.touchesCountedTable("/* insert for study.querydsl.entity.Team */insert into team (name,team_id) values (?,?)")).isTrue();
+		assertThat(CountCacheInvalidationListener.touchesCountedTable("update member m1_0 set age=(m1_0.age+?)")).isTrue();
+		assertThat(CountCacheInvalidationListener.touchesCountedTable("delete from member m1_0 where m1_0.age>?")).isTrue();
+		assertThat(CountCacheInvalidationListener.touchesCountedTable("insert into hello (id) values (?)")).isFalse();
+		assertThat(CountCacheInvalidationListener.touchesCountedTable("select m1_0.member_id from member m1_0")).isFalse();
+
+	}
+
+}
@@ -0,0 +1,114 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import jakarta.persistence.EntityManager;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+@SpringBootTest
+@Transactional
+@ActiveProfiles("test")
+class CountQueryRewriterTest {
+
+	@Autowired
+	EntityManager em;
+
+	JPAQueryFactory queryFactory;
+
+	@BeforeEach
+	public void before() {
+
+		queryFactory = new JPAQueryFactory(em);
+
+		Team teamA = new Team("teamA");
+		Team teamB = new Team("teamB");
+
+		em.persist(teamA);
+		em.persist(teamB);
+
+		em.persist(new Member("member1", 10, teamA));
+		em.persist(new Member("member2", 20, teamA));
+		em.persist(new Member("member3", 30, teamB));
+		em.persist(new Member("member4", 40, teamB));
+
+	}
+
+	@Test
+	public void dropUnreferencedLeftJoin() {
+
+		JPAQuery<Member> query = queryFactory
+								.selectFrom(member)
+								.leftJoin(member.team, team)
+								.where(member.age.goe(20));
+
+		JPAQuery<Member> pagedQuery = query.clone()
+								.orderBy(member.username.desc())
+								.offset(1)
+								.limit(2);
+
+		JPAQuery<Long> countQuery = CountQueryRewriter.rewrite(pagedQuery, em);
+
+		assertThat(countQuery.toString())
+			.contains("count(member1.id)")
+			.doesNotContain("join")
+			.doesNotContain("order by");
+		assertThat(countQuery.fetchOne()).isEqualTo((long) query.fetch().size());
+
+	}
+
+	@Test
+	public void keepReferencedLeftJoin() {
+
+		JPAQuery<Member> query = queryFactory
+								.selectFrom(member)
+								.leftJoin(member.team, team)
+								.where(team.name.eq("teamB"));
+
+		JPAQuery<Long> countQuery = CountQueryRewriter.rewrite(query, em);
+
+		assertThat(countQuery.toString()).contains("left join member1.team as team");
+		assertThat(countQuery.fetchOne()).isEqualTo((long) query.fetch().size());
+
+	}
+
+	@Test
+	public void dropFetchJoinFlag() {
+
+		JPAQuery<Member> query = queryFactory
+								.selectFrom(member)
+								.join(member.team, team).fetchJoin();
+
+		JPAQuery<Long> countQuery = CountQueryRewriter.rewrite(query, em);
+
+		assertThat(countQuery.toString()).doesNotContain("fetch");
+		assertThat(countQuery.fetchOne()).isEqualTo((long) query.fetch().size());
+
+	}
+
+	@Test
+	public void groupByIsNotRewritten() {
+
+		JPAQuery<String> query = queryFactory
+								.select(team.name)
+								.from(member)
+								.join(member.team, team)
+								.groupBy(team.name);
+
+		assertThat(CountQueryRewriter.rewrite(query, em)).isNull();
+
+	}
+
+}
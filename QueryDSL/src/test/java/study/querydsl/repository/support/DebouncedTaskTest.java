@@ -0,0 +1,74 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class DebouncedTaskTest {
+
+	@Test
+	public void requestsBeforeRunAreCoalesced() throws Exception {
+		
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(1);
+		
+		DebouncedTask task = new DebouncedTask("debounce-test", () -> {
+			runs.incrementAndGet();
+			done.countDown();
+		});
+		
+		try {
+			
+			for ( int i=0; i<10; i++ ) task.schedule(Duration.ofMillis(200));
+			
+			assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+			Thread.sleep(300);
+			
+			assertThat(runs.get()).isEqualTo(1);
+			
+		} finally {
+			task.shutdown();
+		}
+		
+	}
+	
+	@Test
+	public void requestDuringRunSchedulesNextRun() throws Exception {
+		
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch twice = new CountDownLatch(2);
+		
+		DebouncedTask task = new DebouncedTask("debounce-test", () -> {
+			started.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+			twice.countDown();
+		});
+		
+		try {
+			
+			task.schedule(Duration.ZERO);
+			assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+			
+			// 실행 중에 들어온 요청은 버리지 않고 다음 실행으로 예약한다
+			task.schedule(Duration.ZERO);
+			release.countDown();
+			
+			assertThat(twice.await(5, TimeUnit.SECONDS)).isTrue();
+			
+		} finally {
+			task.shutdown();
+		}
+		
+	}
+	
+}
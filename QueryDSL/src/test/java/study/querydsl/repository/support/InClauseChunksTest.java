@@ -0,0 +1,42 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+class InClauseChunksTest {
+
+	@Test
+	public void splitDistinctKeysInOrder() {
+
+		List<List<Long>> chunks = InClauseChunks.split(Arrays.asList(5L, 3L, null, 5L, 1L, 2L, 4L), 2);
+
+		assertThat(chunks).containsExactly(List.of(5L, 3L), List.of(1L, 2L), List.of(4L));
+
+	}
+
+	@Test
+	public void chunkSizeBoundsEveryChunk() {
+
+		List<Long> keys = LongStream.rangeClosed(1, 1000).boxed().toList();
+
+		List<List<Long>> chunks = InClauseChunks.split(keys, 256);
+
+		assertThat(chunks).hasSize(4);
+		assertThat(chunks).allSatisfy(chunk -> assertThat(chunk).hasSizeLessThanOrEqualTo(256));
+		assertThat(chunks.stream().flatMap(List::stream).toList()).isEqualTo(keys);
+		assertThat(InClauseChunks.split(List.<Long>of(), 256)).isEmpty();
+
+	}
+
+	@Test
+	public void chunkSizeMustBePowerOfTwo() {
+		assertThatThrownBy(() -> InClauseChunks.split(List.of(1L), 500)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+}
@@ -0,0 +1,163 @@
+package study.querydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static study.querydsl.entity.QMember.member;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import jakarta.persistence.EntityManager;
+import study.querydsl.entity.Member;
+
+// executeInChunks 는 범위마다 커밋하므로 트랜잭션 없이 커밋하고 끝나면 지운다
+@SpringBootTest
+@ActiveProfiles("test")
+class Querydsl4RepositorySupportTest {
+
+	private static final int AGE = 400_000;
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	ChunkRepository chunkRepository;
+
+	List<Long> memberIds = new ArrayList<>();
+
+	@BeforeEach
+	public void before() {
+
+		chunkRepository = new ChunkRepository();
+		chunkRepository.setEntityManager(em);
+		chunkRepository.setTransactionManager(transactionManager);
+
+		transactionTemplate.executeWithoutResult(status -> {
+			for ( int i=0; i<5; i++ ) {
+				Member chunkMember = new Member("chunkMember" + i, AGE);
+				em.persist(chunkMember);
+				memberIds.add(chunkMember.getId());
+			}
+		});
+
+	}
+
+	@AfterEach
+	public void after() {
+		transactionTemplate.executeWithoutResult(status -> em.createQuery("delete from Member m where m.username like 'chunkMember%'").executeUpdate());
+	}
+
+	@Test
+	public void chunkBoundaries() {
+
+		BulkOperationResult result = chunkRepository.deleteByAge(2, id -> {});
+
+		List<BulkOperationResult.Chunk> chunks = result.getChunks();
+
+		// 범위는 남은 가장 작은 id 부터 chunkSize 씩, 겹치지 않게 이어진다
+		for ( int i=0; i<chunks.size(); i++ ) {
+
+			BulkOperationResult.Chunk chunk = chunks.get(i);
+
+			assertThat(chunk.getToId() - chunk.getFromId()).isEqualTo(2);
+			if ( i > 0 ) assertThat(chunk.getFromId()).isGreaterThanOrEqualTo(chunks.get(i - 1).getToId());
+
+			long expected = memberIds.stream().filter(id -> id >= chunk.getFromId() && id < chunk.getToId()).count();
+			assertThat(chunk.getAffectedRows()).as("%s", chunk).isEqualTo(expected);
+
+		}
+
+		assertThat(chunksFrom(chunks, memberIds.get(0), memberIds.get(4))).extracting(BulkOperationResult.Chunk::getFromId)
+			.containsExactly(memberIds.get(0), memberIds.get(2), memberIds.get(4));
+		assertThat(result.getAffectedRows()).isEqualTo(5);
+		assertThat(remainingIds()).isEmpty();
+
+	}
+
+	@Test
+	public void sparseIdsSkipEmptyRanges() {
+
+		// 가운데 회원을 지워 id 사이에 빈 구간을 만든다
+		transactionTemplate.executeWithoutResult(status -> em.createQuery("delete from Member m where m.id in :ids")
+				.setParameter("ids", memberIds.subList(1, 4))
+				.executeUpdate());
+
+		BulkOperationResult result = chunkRepository.deleteByAge(1, id -> {});
+
+		// 빈 구간의 id 마다 트랜잭션을 열지 않고 다음 id 로 건너뛴다
+		assertThat(chunksFrom(result.getChunks(), memberIds.get(0), memberIds.get(4))).extracting(BulkOperationResult.Chunk::getFromId)
+			.containsExactly(memberIds.get(0), memberIds.get(4));
+		assertThat(result.getChunks()).allMatch(chunk -> chunk.getToId() - chunk.getFromId() == 1);
+		assertThat(result.getAffectedRows()).isEqualTo(2);
+		assertThat(remainingIds()).isEmpty();
+
+	}
+
+	@Test
+	public void commitPerChunk() {
+
+		Long failingId = memberIds.get(2);
+
+		// 세 번째 회원의 범위에서 실패해도 앞 범위의 삭제는 이미 커밋되어 있다
+		assertThatThrownBy(() -> chunkRepository.deleteByAge(1, fromId -> {
+			if ( fromId == failingId ) throw new IllegalStateException("chunk failed");
+		})).isInstanceOf(IllegalStateException.class);
+
+		assertThat(remainingIds()).containsExactlyInAnyOrderElementsOf(memberIds.subList(2, 5));
+
+	}
+
+	// 다른 테스트가 남긴 회원의 범위는 빼고 이 테스트 회원의 범위만
+	private static List<BulkOperationResult.Chunk> chunksFrom(List<BulkOperationResult.Chunk> chunks, long firstId, long lastId) {
+		return chunks.stream().filter(chunk -> chunk.getFromId() >= firstId && chunk.getFromId() <= lastId).toList();
+	}
+
+	private List<Long> remainingIds() {
+		return transactionTemplate.execute(status -> new JPAQueryFactory(em)
+				.select(member.id)
+				.from(member)
+				.where(member.id.in(memberIds))
+				.fetch());
+	}
+
+	interface ChunkHook {
+		void beforeChunk(long fromId);
+	}
+
+	static class ChunkRepository extends Querydsl4RepositorySupport {
+
+		ChunkRepository() {
+			super(Member.class);
+		}
+
+		BulkOperationResult deleteByAge(long chunkSize, ChunkHook hook) {
+
+			return executeInChunks(member, member.id, chunkSize, (query, idRange, fromId, toId) -> {
+
+				hook.beforeChunk(fromId);
+
+				return query.delete(member).where(member.age.eq(AGE), idRange);
+
+			});
+
+		}
+
+	}
+
+}
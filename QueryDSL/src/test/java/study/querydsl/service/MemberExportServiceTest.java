@@ -0,0 +1,119 @@
+package study.querydsl.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.EntityManager;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+// export 는 별도 커넥션(StatelessSession)으로 읽으므로 데이터를 커밋해 두고 끝나면 지운다
+@SpringBootTest
+@ActiveProfiles("test")
+class MemberExportServiceTest {
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	@Autowired
+	MemberExportService memberExportService;
+
+	Long teamId;
+
+	@BeforeEach
+	public void before() {
+
+		teamId = transactionTemplate.execute(status -> {
+
+			Team team = new Team("export,\"team\"");
+			em.persist(team);
+
+			em.persist(new Member("exportMember1", 10, team));
+			em.persist(new Member("exportMember2", 20, team));
+			em.persist(new Member("exportMember3", 30));
+
+			return team.getId();
+
+		});
+
+	}
+
+	@AfterEach
+	public void after() {
+
+		transactionTemplate.executeWithoutResult(status -> {
+			em.createQuery("delete from Member m where m.username like 'exportMember%'").executeUpdate();
+			em.createQuery("delete from Team t where t.id = :id").setParameter("id", teamId).executeUpdate();
+		});
+
+	}
+
+	@Test
+	public void exportAllMembers() throws Exception {
+
+		ExportJob job = memberExportService.start();
+		awaitDone(job);
+
+		assertThat(job.getStatus()).isEqualTo(ExportJob.Status.COMPLETED);
+		assertThat(job.getProgressPercent()).isEqualTo(100);
+		assertThat(memberExportService.find(job.getId())).containsSame(job);
+
+		List<String> lines = Files.readAllLines(job.getFile(), StandardCharsets.UTF_8);
+
+		assertThat(lines.get(0)).isEqualTo("member_id,username,age,team_id,team_name");
+		assertThat(lines).hasSize((int) job.getTotal() + 1);
+		assertThat(job.getExported()).isEqualTo(job.getTotal());
+
+		// 쉼표/따옴표는 CSV 규칙대로 감싸고, 팀이 없으면 빈 칸
+		assertThat(lines).anyMatch(line -> line.endsWith(",exportMember1,10," + teamId + ",\"export,\"\"team\"\"\""));
+		assertThat(lines).anyMatch(line -> line.endsWith(",exportMember3,30,,"));
+
+		Files.deleteIfExists(job.getFile());
+
+	}
+
+	@Test
+	public void expiredJobIsRemovedWithFile() throws Exception {
+
+		ExportJob job = memberExportService.start();
+		awaitDone(job);
+
+		assertThat(job.getStatus()).isEqualTo(ExportJob.Status.COMPLETED);
+		assertThat(job.getError()).isNull();
+		assertThat(job.getFile()).exists();
+
+		// 아직 ttl 이 지나지 않았으면 남겨둔다
+		memberExportService.removeFinishedBefore(job.getFinishedAt());
+		assertThat(memberExportService.find(job.getId())).isPresent();
+
+		assertThat(memberExportService.removeFinishedBefore(Instant.now().plusSeconds(1))).isPositive();
+		assertThat(memberExportService.find(job.getId())).isEmpty();
+		assertThat(job.getFile()).doesNotExist();
+
+	}
+
+	private static void awaitDone(ExportJob job) throws InterruptedException {
+
+		long deadline = System.currentTimeMillis() + 30_000;
+		while ( !job.isDone() && System.currentTimeMillis() < deadline ) {
+			Thread.sleep(50);
+		}
+
+	}
+
+}
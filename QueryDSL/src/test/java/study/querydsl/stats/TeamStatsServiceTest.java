@@ -0,0 +1,189 @@
+package study.querydsl.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+
+import jakarta.persistence.EntityManager;
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberTestRepository;
+
+// 통계는 커밋된 변경만 반영하므로 데이터를 커밋하고 끝나면 지운다 (다른 테스트와 겹치지 않게 나이를 크게 잡는다)
+@SpringBootTest
+@ActiveProfiles("test")
+class TeamStatsServiceTest {
+
+	@Autowired
+	EntityManager em;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	@Autowired
+	TeamStatsService teamStatsService;
+
+	@Autowired
+	TeamStatsStore teamStatsStore;
+
+	@Autowired
+	MemberTestRepository memberTestRepository;
+
+	Long teamAId;
+	Long teamBId;
+
+	@AfterEach
+	public void after() {
+
+		List<Long> teamIds = Stream.of(teamAId, teamBId).filter(Objects::nonNull).toList();
+
+		transactionTemplate.executeWithoutResult(status -> {
+			em.createQuery("delete from Member m where m.username like 'statsMember%'").executeUpdate();
+			if ( !teamIds.isEmpty() ) em.createQuery("delete from Team t where t.id in (:ids)").setParameter("ids", teamIds).executeUpdate();
+		});
+
+		teamStatsService.reconcile();
+
+	}
+
+	@Test
+	public void incrementalStatsMatchGroupBy() {
+
+		teamStatsService.reconcile();
+
+		Long[] memberId = new Long[1];
+
+		transactionTemplate.executeWithoutResult(status -> {
+
+			Team teamA = new Team("statsTeamA");
+			Team teamB = new Team("statsTeamB");
+
+			em.persist(teamA);
+			em.persist(teamB);
+
+			Member member1 = new Member("statsMember1", 100_010, teamA);
+			Member member2 = new Member("statsMember2", 100_020, teamA);
+
+			em.persist(member1);
+			em.persist(member2);
+			em.persist(new Member("statsMember3", 100_030, teamB));
+
+			teamAId = teamA.getId();
+			teamBId = teamB.getId();
+			memberId[0] = member2.getId();
+
+		});
+
+		assertThat(stats(teamAId)).isEqualTo(new TeamStatsDto(teamAId, "statsTeamA", 2, 200_030, 100_015.0, 100_020, 100_010));
+		assertThat(stats(teamBId)).isEqualTo(new TeamStatsDto(teamBId, "statsTeamB", 1, 100_030, 100_030.0, 100_030, 100_030));
+
+		// changeTeam 으로 팀 이동
+		transactionTemplate.executeWithoutResult(status ->
+			em.find(Member.class, memberId[0]).changeTeam(em.find(Team.class, teamBId))
+		);
+
+		assertThat(stats(teamAId)).isEqualTo(new TeamStatsDto(teamAId, "statsTeamA", 1, 100_010, 100_010.0, 100_010, 100_010));
+		assertThat(stats(teamBId)).isEqualTo(new TeamStatsDto(teamBId, "statsTeamB", 2, 200_050, 100_025.0, 100_030, 100_020));
+
+		// 롤백된 변경은 반영되지 않는다
+		transactionTemplate.executeWithoutResult(status -> {
+			em.persist(new Member("statsMember4", 100_040, em.find(Team.class, teamAId)));
+			status.setRollbackOnly();
+		});
+
+		assertThat(stats(teamAId).getCount()).isEqualTo(1);
+		assertThat(teamStatsService.getStats()).containsAll(groupBy());
+
+	}
+
+	@Test
+	public void bulkOperationReconciles() throws Exception {
+
+		transactionTemplate.executeWithoutResult(status -> {
+
+			Team teamA = new Team("statsTeamA");
+			em.persist(teamA);
+			em.persist(new Member("statsMember1", 100_010, teamA));
+			em.persist(new Member("statsMember2", 100_020, teamA));
+
+			teamAId = teamA.getId();
+
+		});
+
+		assertThat(stats(teamAId).getCount()).isEqualTo(2);
+
+		memberTestRepository.bulkDeleteByAgeGoe(100_015, 1_000_000_000L);
+
+		// 재계산은 reconcile 스레드에서 하고, 그 전의 조회는 마지막 값을 돌려준다
+		assertThat(teamStatsStore.isStale()).isTrue();
+		assertThat(stats(teamAId).getCount()).isEqualTo(2);
+		awaitReconciled();
+
+		assertThat(stats(teamAId)).isEqualTo(new TeamStatsDto(teamAId, "statsTeamA", 1, 100_010, 100_010.0, 100_010, 100_010));
+		assertThat(teamStatsService.getStats()).containsAll(groupBy());
+
+	}
+
+	private void awaitReconciled() throws InterruptedException {
+
+		long deadline = System.currentTimeMillis() + 30_000;
+		while ( teamStatsStore.isStale() && System.currentTimeMillis() < deadline ) {
+			Thread.sleep(50);
+		}
+
+	}
+
+	private TeamStatsDto stats(Long teamId) {
+		return teamStatsService.getStats().stream()
+				.filter(stats -> stats.getTeamId().equals(teamId))
+				.findFirst()
+				.orElse(null);
+	}
+
+	private List<TeamStatsDto> groupBy() {
+
+		return transactionTemplate.execute(status -> {
+
+			List<Tuple> rows = new JPAQueryFactory(em)
+								.select(
+										  team.id
+										, team.name
+										, member.count()
+										, member.age.sum().longValue()
+										, member.age.max()
+										, member.age.min()
+									   )
+								.from(member)
+								.join(member.team, team)
+								.where(team.id.in(Stream.of(teamAId, teamBId).filter(Objects::nonNull).toList()))
+								.groupBy(team.id, team.name)
+								.fetch();
+
+			return rows.stream()
+					.map(row -> {
+						long count = row.get(member.count());
+						long sum = row.get(member.age.sum().longValue());
+						return new TeamStatsDto(row.get(team.id), row.get(team.name), count, sum, (double) sum / count, row.get(member.age.max()), row.get(member.age.min()));
+					})
+					.toList();
+
+		});
+
+	}
+
+}
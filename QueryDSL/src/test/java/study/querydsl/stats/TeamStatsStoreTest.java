@@ -0,0 +1,112 @@
+package study.querydsl.stats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import study.querydsl.dto.TeamStatsDto;
+import study.querydsl.stats.TeamStatsStore.TeamAggregate;
+
+class TeamStatsStoreTest {
+
+	@Test
+	public void countChangesDuringReconcileKeepIncrementalValues() {
+		
+		TeamStatsStore store = new TeamStatsStore();
+		store.replace(new HashMap<>(), store.beginReconcile());
+		store.addMember(1L, "team1", 10);
+		
+		long generation = store.beginReconcile();
+		
+		// 재계산 직전에 커밋된 회원이 group by 결과와 journal 양쪽에 들어간 경우
+		Map<Long, TeamAggregate> fresh = new HashMap<>();
+		fresh.computeIfAbsent(1L, id -> new TeamAggregate("team1")).add(10, 1);
+		fresh.get(1L).add(20, 1);
+		
+		store.addMember(1L, null, 20);
+		
+		store.replace(fresh, generation);
+		
+		// 두 번 세지 않고 증분 값을 유지하며 다시 재계산한다
+		assertThat(store.isStale()).isTrue();
+		assertThat(store.snapshot()).containsExactly(new TeamStatsDto(1L, "team1", 2, 30, 15.0, 20, 10));
+		
+		store.replace(fresh, store.beginReconcile());
+		
+		assertThat(store.isStale()).isFalse();
+		assertThat(store.snapshot()).containsExactly(new TeamStatsDto(1L, "team1", 2, 30, 15.0, 20, 10));
+		
+	}
+	
+	@Test
+	public void renamesDuringReconcileAreApplied() {
+		
+		TeamStatsStore store = new TeamStatsStore();
+		store.replace(new HashMap<>(), store.beginReconcile());
+		
+		long generation = store.beginReconcile();
+		
+		Map<Long, TeamAggregate> fresh = new HashMap<>();
+		fresh.computeIfAbsent(1L, id -> new TeamAggregate("team1")).add(10, 1);
+		
+		store.renameTeam(1L, "team1b");
+		
+		store.replace(fresh, generation);
+		
+		assertThat(store.isStale()).isFalse();
+		assertThat(store.snapshot()).containsExactly(new TeamStatsDto(1L, "team1b", 1, 10, 10.0, 10, 10));
+		
+	}
+	
+	@Test
+	public void countChangesDuringFirstLoadAreAppliedButStale() {
+		
+		TeamStatsStore store = new TeamStatsStore();
+		long generation = store.beginReconcile();
+		
+		Map<Long, TeamAggregate> fresh = new HashMap<>();
+		fresh.computeIfAbsent(1L, id -> new TeamAggregate("team1")).add(10, 1);
+		
+		store.addMember(2L, "team2", 30);
+		
+		store.replace(fresh, generation);
+		
+		assertThat(store.isLoaded()).isTrue();
+		assertThat(store.isStale()).isTrue();
+		assertThat(store.snapshot()).containsExactly(
+				  new TeamStatsDto(1L, "team1", 1, 10, 10.0, 10, 10)
+				, new TeamStatsDto(2L, "team2", 1, 30, 30.0, 30, 30)
+			);
+		
+	}
+	
+	@Test
+	public void staleDuringReconcileStaysStale() {
+		
+		TeamStatsStore store = new TeamStatsStore();
+		long generation = store.beginReconcile();
+		
+		store.markStale();
+		store.replace(new HashMap<>(), generation);
+		
+		assertThat(store.isLoaded()).isTrue();
+		assertThat(store.isStale()).isTrue();
+		
+	}
+	
+	@Test
+	public void missedRemoveMarksStale() {
+		
+		TeamStatsStore store = new TeamStatsStore();
+		store.replace(new HashMap<>(), store.beginReconcile());
+		
+		store.removeMember(1L, 10);
+		
+		assertThat(store.isStale()).isTrue();
+		
+	}
+	
+}